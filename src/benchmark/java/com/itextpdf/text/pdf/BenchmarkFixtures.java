@@ -0,0 +1,176 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.io.StreamUtil;
+
+/**
+ * Generates the documents used by the benchmarks, so that the suite runs
+ * without any external files.
+ */
+public class BenchmarkFixtures {
+
+    /** The TrueType font that is shipped with the test resources. */
+    public static final String FONT = "/com/itextpdf/text/pdf/MultithreadedTtfTest/FreeSans.ttf";
+
+    private static final String TEXT = "The quick brown fox jumps over the lazy dog. "
+        + "Pack my box with five dozen liquor jugs. Sphinx of black quartz, judge my vow.";
+
+    /**
+     * Creates a document with a few paragraphs of text on every page.
+     * @param pages the number of pages
+     * @param fullCompression <CODE>true</CODE> to write a cross-reference stream and object streams
+     * @return the document
+     * @throws DocumentException on error
+     */
+    public static byte[] createTextPdf(final int pages, final boolean fullCompression) throws DocumentException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        if (fullCompression)
+            writer.setFullCompression();
+        document.open();
+        for (int i = 1; i <= pages; ++i) {
+            for (int k = 0; k < 20; ++k)
+                document.add(new Paragraph("Page " + i + ", paragraph " + k + ": " + TEXT));
+            document.newPage();
+        }
+        document.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Creates a copy of a document with a broken <CODE>startxref</CODE> offset,
+     * so that the reader has to rebuild the cross-reference table.
+     * @param pdf the document
+     * @return the broken document
+     */
+    public static byte[] breakXref(final byte pdf[]) {
+        byte broken[] = pdf.clone();
+        int pos = lastIndexOf(broken, "startxref");
+        if (pos < 0)
+            throw new IllegalArgumentException("startxref not found");
+        pos += "startxref".length();
+        while (PRTokeniser.isWhitespace(broken[pos]))
+            ++pos;
+        while (broken[pos] >= '0' && broken[pos] <= '9')
+            broken[pos++] = '0';
+        return broken;
+    }
+
+    /**
+     * Creates a document with a grid of text fields.
+     * @param fields the number of text fields
+     * @return the document
+     * @throws DocumentException on error
+     * @throws IOException on error
+     */
+    public static byte[] createFormPdf(final int fields) throws DocumentException, IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        document.open();
+        int perPage = 40;
+        for (int i = 0; i < fields; ++i) {
+            if (i > 0 && i % perPage == 0)
+                document.newPage();
+            int row = i % perPage / 2;
+            int col = i % 2;
+            float x = 36 + col * 270;
+            float y = 770 - row * 36;
+            TextField field = new TextField(writer, new Rectangle(x, y - 24, x + 250, y), getFieldName(i));
+            field.setFontSize(10);
+            writer.addAnnotation(field.getTextField());
+        }
+        document.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Gets the name of a field created by {@link #createFormPdf(int)}.
+     * @param i the index of the field
+     * @return the name of the field
+     */
+    public static String getFieldName(final int i) {
+        return "field" + i;
+    }
+
+    /**
+     * Reads the TrueType font of the test resources.
+     * @return the font program
+     * @throws IOException on error
+     */
+    public static byte[] readFont() throws IOException {
+        InputStream is = BenchmarkFixtures.class.getResourceAsStream(FONT);
+        if (is == null)
+            throw new IOException(FONT + " not found");
+        try {
+            return StreamUtil.inputStreamToArray(is);
+        }
+        finally {
+            is.close();
+        }
+    }
+
+    private static int lastIndexOf(final byte b[], final String s) {
+        byte key[] = PdfEncodings.convertToBytes(s, null);
+        for (int k = b.length - key.length; k >= 0; --k) {
+            int j = 0;
+            while (j < key.length && b[k + j] == key[j])
+                ++j;
+            if (j == key.length)
+                return k;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Kevin Day, Bruno Lowagie, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General License for more
+ * details. You should have received a copy of the GNU Affero General License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General License, a covered
+ * work must retain the producer line in every PDF that is created or
+ * manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing a
+ * commercial license. Buying such a license is mandatory as soon as you develop
+ * commercial activities involving the iText software without disclosing the
+ * source code of your own applications. These activities include: offering paid
+ * services to customers as an ASP, serving PDFs on the fly in a web
+ * application, shipping iText with a closed source product.
+ *
+ * For more information, please contact iText Software Corp. at this address:
+ * sales@itextpdf.com
+ */
+package com.itextpdf.text.io;
+
+import java.io.IOException;
+
+/**
+ * A RandomAccessSource that wraps another RandomAccessSource and serializes all access to it.  Most of the
+ * sources created by {@link RandomAccessSourceFactory} keep per-read state (a file pointer, a buffer position or a
+ * most-recently-used page list), so a single source must not be read by several threads at the same time.  Wrap it
+ * in this class and give every thread its own {@link GetBufferedRandomAccessSource} on top of the wrapper, so that
+ * single byte reads are served from the thread's buffer and only the bulk refills take the lock.
+ * @since 5.5.6
+ */
+public class SynchronizedRandomAccessSource implements RandomAccessSource {
+	/**
+	 * The source
+	 */
+	private final RandomAccessSource source;
+	
+	/**
+	 * Constructs a new SynchronizedRandomAccessSource
+	 * @param source the source
+	 */
+	public SynchronizedRandomAccessSource(RandomAccessSource source) {
+		this.source = source;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized int get(long position) throws IOException {
+		return source.get(position);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized int get(long position, byte[] bytes, int off, int len) throws IOException {
+		return source.get(position, bytes, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized long length() {
+		return source.length();
+	}
+
+	/**
+	 * Closes the underlying source
+	 */
+	public synchronized void close() throws IOException {
+		source.close();
+	}
+
+}
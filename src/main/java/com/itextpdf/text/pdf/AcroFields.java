@@ -576,7 +576,10 @@ public class AcroFields {
         // the text size and color
         PdfString da = merged.getAsString(PdfName.DA);
         if (da != null) {
-            Object dab[] = splitDAelements(da.toUnicodeString());
+            String daString = da.toUnicodeString();
+            Object dab[] = template == null ? null : template.getDAelements(daString);
+            if (dab == null)
+                dab = splitDAelements(daString);
             if (dab[DA_SIZE] != null)
                 tx.setFontSize(((Float)dab[DA_SIZE]).floatValue());
             if (dab[DA_COLOR] != null)
@@ -589,27 +592,25 @@ public class AcroFields {
                         PdfObject po = font.get(new PdfName((String)dab[DA_FONT]));
                         if (po != null && po.type() == PdfObject.INDIRECT) {
                             PRIndirectReference por = (PRIndirectReference)po;
-                            BaseFont bp = new DocumentFont((PRIndirectReference)po, dr.getAsDict(PdfName.ENCODING));
+                            BaseFont bp = null;
+                            if (template != null && dr.get(PdfName.ENCODING) == null)
+                                bp = template.getDocumentFont(por.getNumber());
+                            if (bp == null)
+                                bp = new DocumentFont((PRIndirectReference)po, dr.getAsDict(PdfName.ENCODING));
                             tx.setFont(bp);
                             Integer porkey = Integer.valueOf(por.getNumber());
                             BaseFont porf = extensionFonts.get(porkey);
                             if (porf == null) {
                                 if (!extensionFonts.containsKey(porkey)) {
-                                    PdfDictionary fo = (PdfDictionary)PdfReader.getPdfObject(po);
-                                    PdfDictionary fd = fo.getAsDict(PdfName.FONTDESCRIPTOR);
-                                    if (fd != null) {
-                                        PRStream prs = (PRStream)PdfReader.getPdfObject(fd.get(PdfName.FONTFILE2));
-                                        if (prs == null)
-                                            prs = (PRStream)PdfReader.getPdfObject(fd.get(PdfName.FONTFILE3));
-                                        if (prs == null) {
-                                            extensionFonts.put(porkey, null);
-                                        }
-                                        else {
-                                            try {
-                                                porf = BaseFont.createFont("font.ttf", BaseFont.IDENTITY_H, true, false, PdfReader.getStreamBytes(prs), null);
-                                            }
-                                            catch (Exception e) {
-                                            }
+                                    if (template != null && template.hasFontProgram(por.getNumber())) {
+                                        porf = createExtensionFont(template.getFontProgram(por.getNumber()));
+                                        extensionFonts.put(porkey, porf);
+                                    }
+                                    else {
+                                        PdfDictionary fo = (PdfDictionary)PdfReader.getPdfObject(po);
+                                        PdfDictionary fd = fo.getAsDict(PdfName.FONTDESCRIPTOR);
+                                        if (fd != null) {
+                                            porf = createExtensionFont(readFontProgram(fd));
                                             extensionFonts.put(porkey, porf);
                                         }
                                     }
@@ -717,6 +718,38 @@ public class AcroFields {
         }
     }
 
+    /**
+     * Reads the embedded TrueType or OpenType font program of a font descriptor.
+     * @param fd the font descriptor
+     * @return the font program or <CODE>null</CODE> if the font isn't embedded as such
+     * or its stream can't be decoded
+     */
+    static byte[] readFontProgram(PdfDictionary fd) {
+        PRStream prs = (PRStream)PdfReader.getPdfObject(fd.get(PdfName.FONTFILE2));
+        if (prs == null)
+            prs = (PRStream)PdfReader.getPdfObject(fd.get(PdfName.FONTFILE3));
+        if (prs == null)
+            return null;
+        try {
+            return PdfReader.getStreamBytes(prs);
+        }
+        catch (Exception e) {
+            // the field is drawn without an extension font
+            return null;
+        }
+    }
+
+    private static BaseFont createExtensionFont(byte[] program) {
+        if (program == null)
+            return null;
+        try {
+            return BaseFont.createFont("font.ttf", BaseFont.IDENTITY_H, true, false, program, null);
+        }
+        catch (Exception e) {
+            return null;
+        }
+    }
+
     PdfAppearance getAppearance(PdfDictionary merged, String values[], String fieldName) throws IOException, DocumentException {
         PdfName fieldType = merged.getAsName(PdfName.FT);
 
@@ -822,6 +855,83 @@ public class AcroFields {
       return getAppearance( merged, valueArr, fieldName );
     }
 
+    /**
+     * Builds the appearance of a widget and writes it. When an appearance cache
+     * is set, the widgets with the same appearance share one stream.
+     * @param merged the merged field and widget dictionary
+     * @param values the values to show
+     * @param fieldName the fully qualified field name
+     * @return the reference of the appearance stream
+     * @throws IOException on error
+     * @throws DocumentException on error
+     */
+    private PdfIndirectReference getAppearanceReference(PdfDictionary merged, String values[], String fieldName) throws IOException, DocumentException {
+        String key = appearanceCache == null ? null : getAppearanceKey(merged, values, fieldName);
+        if (key == null) {
+            PdfAppearance app = getAppearance(merged, values, fieldName);
+            writer.releaseTemplate(app);
+            return app.getIndirectReference();
+        }
+        Object written[] = appearances.get(key);
+        if (written != null) {
+            topFirst = ((Integer)written[1]).intValue();
+            return (PdfIndirectReference)written[0];
+        }
+        PdfIndirectReference ref;
+        PdfAppearanceCache.Appearance shared = appearanceCache.get(key);
+        if (shared != null) {
+            ref = writer.addToBody(shared.createStream()).getIndirectReference();
+            topFirst = shared.getTopFirst();
+        }
+        else {
+            PdfAppearance app = getAppearance(merged, values, fieldName);
+            appearanceCache.put(key, writer.writeTemplate(app), topFirst);
+            ref = app.getIndirectReference();
+        }
+        appearances.put(key, new Object[]{ref, Integer.valueOf(topFirst)});
+        return ref;
+    }
+
+    /**
+     * Lists everything the appearance of a widget is built from.
+     * @param merged the merged field and widget dictionary
+     * @param values the values to show
+     * @param fieldName the fully qualified field name
+     * @return the key of the appearance or <CODE>null</CODE> if it can't be cached
+     * @throws IOException on error
+     */
+    private String getAppearanceKey(PdfDictionary merged, String values[], String fieldName) throws IOException {
+        if (formKey == null)
+            formKey = template != null ? template.getFormKey() : PdfAppearanceCache.getFormKey(reader.getSafeFile().createSourceView());
+        StringBuilder key = new StringBuilder(formKey);
+        key.append(' ').append(extraMarginLeft).append(' ').append(extraMarginTop);
+        if (substitutionFonts != null) {
+            for (BaseFont bf : substitutionFonts)
+                key.append(' ').append(bf.getPostscriptFontName()).append(' ').append(bf.getEncoding());
+        }
+        if (fieldCache != null)
+            key.append(' ').append(fieldName.length()).append(':').append(fieldName);
+        PdfArray rect = merged.getAsArray(PdfName.RECT);
+        if (rect != null) {
+            Rectangle box = PdfReader.getNormalizedRectangle(rect);
+            key.append(' ').append(box.getWidth()).append(' ').append(box.getHeight());
+        }
+        for (PdfName name : APPEARANCE_KEYS) {
+            key.append(' ');
+            if (!PdfAppearanceCache.appendKey(key, merged.get(name)))
+                return null;
+        }
+        if (!PdfName.BTN.equals(merged.getAsName(PdfName.FT))) {
+            for (String value : values) {
+                if (value == null)
+                    key.append(" -");
+                else
+                    key.append(' ').append(value.length()).append(':').append(value);
+            }
+        }
+        return key.toString();
+    }
+
     BaseColor getMKColor(PdfArray ar) {
         if (ar == null)
             return null;
@@ -1053,8 +1163,8 @@ public class AcroFields {
                                         fd = new FontDetails(null, ((DocumentFont)bf).getIndirectReference(), bf);
                                     }
                                     else {
-                                        bf.setSubset(false);
                                         fd = writer.addSimple(bf);
+                                        fd.setSubset(false);
                                         localFonts.put(psn.toString().substring(1), bf);
                                     }
                                     fontsTop.put(psn, fd.getIndirectReference());
@@ -1454,7 +1564,7 @@ public class AcroFields {
                 merged.put(PdfName.V, v);
                 PdfDictionary widget = item.getWidget(idx);
                 if (generateAppearances) {
-                    PdfAppearance app = getAppearance(merged, display, name);
+                    PdfIndirectReference app = getAppearanceReference(merged, new String[]{display}, name);
                     if (PdfName.CH.equals(type)) {
                         PdfNumber n = new PdfNumber(topFirst);
                         widget.put(PdfName.TI, n);
@@ -1466,8 +1576,7 @@ public class AcroFields {
                         widget.put(PdfName.AP, appDic);
                         merged.put(PdfName.AP, appDic);
                     }
-                    appDic.put(PdfName.N, app.getIndirectReference());
-                    writer.releaseTemplate(app);
+                    appDic.put(PdfName.N, app);
                 }
                 else {
                     widget.remove(PdfName.AP);
@@ -1535,12 +1644,11 @@ public class AcroFields {
                     widget.put(PdfName.AS, PdfName.Off);
                 }
                 if (generateAppearances) {
-                    PdfAppearance app = getAppearance(merged, display, name);
+                    PdfIndirectReference app = getAppearanceReference(merged, new String[]{display}, name);
                     if (normal != null)
-                        normal.put(merged.getAsName(PdfName.AS), app.getIndirectReference());
+                        normal.put(merged.getAsName(PdfName.AS), app);
                     else
-                        appDic.put(PdfName.N, app.getIndirectReference());
-                    writer.releaseTemplate(app);
+                        appDic.put(PdfName.N, app);
                 }
             }
             return true;
@@ -1584,14 +1692,12 @@ public class AcroFields {
         }
         item.writeToAll(PdfName.V, vals, Item.WRITE_MERGED | Item.WRITE_VALUE);
 
-        PdfAppearance app = getAppearance( merged, value, name );
+        PdfIndirectReference app = getAppearanceReference( merged, value, name );
 
         PdfDictionary apDic = new PdfDictionary();
-        apDic.put( PdfName.N, app.getIndirectReference() );
+        apDic.put( PdfName.N, app );
         item.writeToAll(PdfName.AP, apDic, Item.WRITE_MERGED | Item.WRITE_WIDGET);
 
-        writer.releaseTemplate( app );
-
         item.markUsed( this, Item.WRITE_VALUE | Item.WRITE_WIDGET );
         return true;
 	}
@@ -2535,6 +2641,74 @@ public class AcroFields {
      */
     private int totalRevisions;
 
+    /**
+     * The compiled template the fields are filled from, if any.
+     * @since 5.5.6
+     */
+    private AcroFieldsTemplate template;
+
+    /**
+     * Uses the parsed appearance strings and fonts of a compiled template
+     * instead of decoding them again for every appearance.
+     * @param template the template the document was duplicated from
+     * @since 5.5.6
+     */
+    void setTemplate(AcroFieldsTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * The entries of the merged dictionary the appearances are built from.
+     * @since 5.5.6
+     */
+    private static final PdfName APPEARANCE_KEYS[] = {PdfName.FT, PdfName.DA, PdfName.DR, PdfName.MK, PdfName.F,
+        PdfName.FF, PdfName.MAXLEN, PdfName.Q, PdfName.BS, PdfName.BORDER, PdfName.AS, PdfName.OPT};
+
+    /**
+     * The cache of appearances shared with other documents, if any.
+     * @since 5.5.6
+     */
+    private PdfAppearanceCache appearanceCache;
+
+    /**
+     * The identity of the form in the keys of the appearance cache.
+     * @since 5.5.6
+     */
+    private String formKey;
+
+    /**
+     * The appearances written to this document by key, with their first visible item.
+     * @since 5.5.6
+     */
+    private HashMap<String, Object[]> appearances = new HashMap<String, Object[]>();
+
+    /**
+     * Gets the appearance cache.
+     * @return the appearance cache or <CODE>null</CODE>
+     * @since 5.5.6
+     */
+    public PdfAppearanceCache getAppearanceCache() {
+        return appearanceCache;
+    }
+
+    /**
+     * Sets a cache for the generated appearances. With a cache, the widgets whose
+     * appearances are built from the same values, sizes, fonts, borders and flags
+     * share a single appearance stream in the document. The appearances that only
+     * use fonts of the original document are also kept in the cache and copied to
+     * the next documents that use the same cache, without being built again.
+     * <p>
+     * The appearances are bound to the form file by its SHA-256 digest, so only the
+     * documents stamped from copies of the same form, for instance with
+     * {@link AcroFieldsTemplate}, share them. Without a template the digest is computed
+     * once for every document.
+     * @param appearanceCache the cache or <CODE>null</CODE> to build every appearance
+     * @since 5.5.6
+     */
+    public void setAppearanceCache(PdfAppearanceCache appearanceCache) {
+        this.appearanceCache = appearanceCache;
+    }
+
     /**
      * Holds value of property fieldCache.
      *
@@ -0,0 +1,421 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.ExceptionConverter;
+import com.itextpdf.text.io.GetBufferedRandomAccessSource;
+import com.itextpdf.text.io.IndependentRandomAccessSource;
+import com.itextpdf.text.io.RandomAccessSource;
+import com.itextpdf.text.io.SynchronizedRandomAccessSource;
+
+/**
+ * A form compiled once to be filled with many records.
+ * <p>
+ * Filling the same form again and again with a <CODE>PdfStamper</CODE> parses
+ * the document, the default appearance strings of the fields and their fonts for
+ * every copy. This class does that work once: every record is stamped on a
+ * duplicate of the parsed reader (see {@link PdfReader#PdfReader(PdfReader, RandomAccessFileOrArray)})
+ * and the appearances are built with the appearance strings and document fonts
+ * decoded when the template was created. The names, types and positions of the
+ * fields are also available without opening a copy of the form.
+ * <p>
+ * The records can be filled one by one, from a {@link RecordSource} or on the
+ * threads of an <CODE>ExecutorService</CODE>. The original reader must not be
+ * used by other code while the template is in use.
+ * @since 5.5.6
+ */
+public class AcroFieldsTemplate {
+
+    /**
+     * Supplies the records to fill and the streams the filled documents are written to.
+     * The methods are always called from the thread that fills the records.
+     */
+    public interface RecordSource {
+        /**
+         * @return the field values of the next record, by fully qualified field name,
+         * or <CODE>null</CODE> if there are no more records
+         * @throws IOException on error
+         */
+        Map<String, String> nextRecord() throws IOException;
+
+        /**
+         * @param index the number of the record, 0 for the first one
+         * @param record the field values of the record
+         * @return the stream the filled document is written to; it is closed when the document is complete
+         * @throws IOException on error
+         */
+        OutputStream getOutputStream(int index, Map<String, String> record) throws IOException;
+    }
+
+    /** the reader of the form */
+    private final PdfReader reader;
+    /** the thread safe view of the reader's source shared by all the duplicates */
+    private final RandomAccessSource source;
+    /** the field types by field name */
+    private final Map<String, Integer> fieldTypes = new HashMap<String, Integer>();
+    /** the widget positions by field name */
+    private final Map<String, List<AcroFields.FieldPosition>> fieldPositions = new HashMap<String, List<AcroFields.FieldPosition>>();
+    /** the result of {@link AcroFields#splitDAelements(String)} by appearance string */
+    private final Map<String, Object[]> daElements = new HashMap<String, Object[]>();
+    /** the fonts of the appearance strings by object number */
+    private final Map<Integer, DocumentFont> documentFonts = new HashMap<Integer, DocumentFont>();
+    /** the embedded font programs of those fonts, <CODE>null</CODE> if they are not TrueType or OpenType */
+    private final Map<Integer, byte[]> fontPrograms = new HashMap<Integer, byte[]>();
+    /** <CODE>true</CODE> to flatten the filled forms */
+    private boolean flatten;
+    /** the appearances shared by the filled forms */
+    private PdfAppearanceCache appearanceCache;
+    /** the SHA-256 digest of the form file, the identity of the form in the appearance cache */
+    private final String formKey;
+
+    /**
+     * Compiles a form.
+     * @param reader the reader of the form
+     * @throws IOException on error
+     */
+    public AcroFieldsTemplate(PdfReader reader) throws IOException {
+        this.reader = reader;
+        this.source = new SynchronizedRandomAccessSource(reader.getSafeFile().createSourceView());
+        this.formKey = PdfAppearanceCache.getFormKey(source);
+        AcroFields form = reader.getAcroFields();
+        for (Map.Entry<String, AcroFields.Item> entry : form.getFields().entrySet()) {
+            String name = entry.getKey();
+            fieldTypes.put(name, Integer.valueOf(form.getFieldType(name)));
+            fieldPositions.put(name, Collections.unmodifiableList(form.getFieldPositions(name)));
+            AcroFields.Item item = entry.getValue();
+            for (int k = 0; k < item.size(); ++k)
+                compileAppearance(item.getMerged(k));
+        }
+    }
+
+    /**
+     * Parses the appearance string of a widget and loads its font.
+     * @param merged the merged field and widget dictionary
+     * @throws IOException on error
+     */
+    private void compileAppearance(PdfDictionary merged) throws IOException {
+        PdfString da = merged.getAsString(PdfName.DA);
+        if (da == null)
+            return;
+        String daString = da.toUnicodeString();
+        Object dab[] = daElements.get(daString);
+        if (dab == null) {
+            dab = AcroFields.splitDAelements(daString);
+            daElements.put(daString, dab);
+        }
+        if (dab[AcroFields.DA_FONT] == null)
+            return;
+        PdfDictionary dr = merged.getAsDict(PdfName.DR);
+        if (dr == null)
+            return;
+        PdfDictionary font = dr.getAsDict(PdfName.FONT);
+        if (font == null)
+            return;
+        PdfObject po = font.get(new PdfName((String)dab[AcroFields.DA_FONT]));
+        if (po == null || po.type() != PdfObject.INDIRECT)
+            return;
+        Integer number = Integer.valueOf(((PRIndirectReference)po).getNumber());
+        if (dr.get(PdfName.ENCODING) == null && !documentFonts.containsKey(number))
+            documentFonts.put(number, new DocumentFont((PRIndirectReference)po));
+        if (!fontPrograms.containsKey(number)) {
+            PdfDictionary fd = ((PdfDictionary)PdfReader.getPdfObject(po)).getAsDict(PdfName.FONTDESCRIPTOR);
+            if (fd != null)
+                fontPrograms.put(number, AcroFields.readFontProgram(fd));
+        }
+    }
+
+    /**
+     * Gets the names of the fields of the form.
+     * @return the fully qualified field names
+     */
+    public Set<String> getFieldNames() {
+        return Collections.unmodifiableSet(fieldTypes.keySet());
+    }
+
+    /**
+     * Gets the type of a field, one of the <CODE>AcroFields.FIELD_TYPE_</CODE> constants.
+     * @param name the fully qualified field name
+     * @return the field type or <CODE>AcroFields.FIELD_TYPE_NONE</CODE> if the field doesn't exist
+     */
+    public int getFieldType(String name) {
+        Integer type = fieldTypes.get(name);
+        return type == null ? AcroFields.FIELD_TYPE_NONE : type.intValue();
+    }
+
+    /**
+     * Gets the positions of the widgets of a field, as {@link AcroFields#getFieldPositions(String)}.
+     * @param name the fully qualified field name
+     * @return the positions or <CODE>null</CODE> if the field doesn't exist
+     */
+    public List<AcroFields.FieldPosition> getFieldPositions(String name) {
+        return fieldPositions.get(name);
+    }
+
+    /**
+     * Sets if the filled forms are flattened.
+     * @param flatten <CODE>true</CODE> to flatten the filled forms
+     */
+    public void setFlatten(boolean flatten) {
+        this.flatten = flatten;
+    }
+
+    /**
+     * Checks if the filled forms are flattened.
+     * @return <CODE>true</CODE> if the filled forms are flattened
+     */
+    public boolean isFlatten() {
+        return flatten;
+    }
+
+    /**
+     * Sets a cache for the appearances of the fields, shared by all the filled forms.
+     * See {@link AcroFields#setAppearanceCache(PdfAppearanceCache)}.
+     * @param appearanceCache the cache or <CODE>null</CODE> to build every appearance
+     */
+    public void setAppearanceCache(PdfAppearanceCache appearanceCache) {
+        this.appearanceCache = appearanceCache;
+    }
+
+    /**
+     * Gets the cache for the appearances of the fields.
+     * @return the cache or <CODE>null</CODE>
+     */
+    public PdfAppearanceCache getAppearanceCache() {
+        return appearanceCache;
+    }
+
+    /**
+     * Gets the identity of the form in the keys of the appearance cache.
+     * @return the SHA-256 digest of the form file in hexadecimal
+     */
+    String getFormKey() {
+        return formKey;
+    }
+
+    /**
+     * Gets the parsed appearance string.
+     * @param da the appearance string
+     * @return the elements or <CODE>null</CODE> if the string isn't part of the template
+     */
+    Object[] getDAelements(String da) {
+        return daElements.get(da);
+    }
+
+    /**
+     * Gets a font loaded from the template.
+     * @param number the object number of the font dictionary
+     * @return the font or <CODE>null</CODE> if it isn't used by an appearance string of the template
+     */
+    DocumentFont getDocumentFont(int number) {
+        return documentFonts.get(Integer.valueOf(number));
+    }
+
+    /**
+     * Checks if the font descriptor of a font was read by the template.
+     * @param number the object number of the font dictionary
+     * @return <CODE>true</CODE> if {@link #getFontProgram(int)} holds the result
+     */
+    boolean hasFontProgram(int number) {
+        return fontPrograms.containsKey(Integer.valueOf(number));
+    }
+
+    /**
+     * Gets the embedded font program of a font. The <CODE>BaseFont</CODE> built from
+     * it isn't shared, as a TrueType font can't be written by several threads at once.
+     * @param number the object number of the font dictionary
+     * @return the font program or <CODE>null</CODE>
+     */
+    byte[] getFontProgram(int number) {
+        return fontPrograms.get(Integer.valueOf(number));
+    }
+
+    /**
+     * Fills the form with one record. Fields of the record that are not in the
+     * form are ignored, as are <CODE>null</CODE> values.
+     * @param record the field values by fully qualified field name
+     * @param os the stream the filled document is written to; it is closed at the end,
+     * also when the record can't be filled
+     * @throws IOException on error
+     * @throws DocumentException on error
+     */
+    public void fill(Map<String, String> record, OutputStream os) throws IOException, DocumentException {
+        PdfReader duplicate = createDuplicate();
+        boolean closed = false;
+        try {
+            PdfStamper stamper = new PdfStamper(duplicate, os);
+            AcroFields form = stamper.getAcroFields();
+            form.setTemplate(this);
+            form.setAppearanceCache(appearanceCache);
+            for (Map.Entry<String, String> field : record.entrySet()) {
+                if (field.getValue() != null)
+                    form.setField(field.getKey(), field.getValue());
+            }
+            stamper.setFormFlattening(flatten);
+            stamper.close();
+            closed = true;
+        }
+        finally {
+            duplicate.close();
+            if (!closed) {
+                // the stamper only closes the stream when the document is complete
+                try {
+                    os.close();
+                }
+                catch (IOException e) {
+                    // keep the exception that stopped the record
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the form with all the records of a source, one after the other.
+     * @param source the records and their output streams
+     * @return the number of documents written
+     * @throws IOException on error
+     * @throws DocumentException on error
+     */
+    public int fill(RecordSource source) throws IOException, DocumentException {
+        int count = 0;
+        Map<String, String> record;
+        while ((record = source.nextRecord()) != null) {
+            fill(record, source.getOutputStream(count, record));
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * Fills the form with all the records of a source on the threads of an executor.
+     * The records are read and their streams opened on the calling thread; at most
+     * <CODE>maxPending</CODE> records are waiting or being filled at any time.
+     * @param source the records and their output streams
+     * @param executor the executor that fills the records; it is not shut down by this class
+     * @param maxPending the maximum number of records submitted and not yet written
+     * @return the number of documents written
+     * @throws IOException on error
+     * @throws DocumentException on error
+     */
+    public int fill(RecordSource source, ExecutorService executor, int maxPending) throws IOException, DocumentException {
+        if (maxPending < 1)
+            throw new IllegalArgumentException("maxPending must be at least 1");
+        LinkedList<Future<Void>> futures = new LinkedList<Future<Void>>();
+        int count = 0;
+        try {
+            Map<String, String> record;
+            while ((record = source.nextRecord()) != null) {
+                if (futures.size() >= maxPending)
+                    futures.removeFirst().get();
+                final Map<String, String> fields = record;
+                final OutputStream os = source.getOutputStream(count, record);
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        fill(fields, os);
+                        return null;
+                    }
+                }));
+                ++count;
+            }
+            while (!futures.isEmpty())
+                futures.removeFirst().get();
+        }
+        catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new ExceptionConverter(e);
+        }
+        catch (ExecutionException e) {
+            cancel(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException)cause;
+            if (cause instanceof DocumentException)
+                throw (DocumentException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            throw new ExceptionConverter(e);
+        }
+        catch (IOException e) {
+            cancel(futures);
+            throw e;
+        }
+        catch (RuntimeException e) {
+            cancel(futures);
+            throw e;
+        }
+        return count;
+    }
+
+    /**
+     * Creates a duplicate of the reader with its own buffer over the shared source.
+     * @return a new duplicate of the reader
+     */
+    private PdfReader createDuplicate() {
+        RandomAccessSource buffered = new GetBufferedRandomAccessSource(new IndependentRandomAccessSource(source));
+        synchronized (reader) {
+            return new PdfReader(reader, new RandomAccessFileOrArray(buffered));
+        }
+    }
+
+    private static void cancel(List<Future<Void>> futures) {
+        for (Future<Void> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
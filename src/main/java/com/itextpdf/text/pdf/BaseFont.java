@@ -51,9 +51,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Base class for the several font types supported
+ * <P>
+ * Once created, a font can be shared by any number of threads and documents:
+ * the metrics are read without locking and the glyphs used by each document are
+ * tracked by the document itself. The methods that change the font, such as
+ * <CODE>setKerning</CODE>, <CODE>setCharAdvance</CODE>, <CODE>setSubset</CODE> or
+ * <CODE>addSubsetRange</CODE>, must be called before the font is shared.
  *
  * @author Paulo Soares
  */
@@ -356,13 +363,26 @@ public abstract class BaseFont {
          * @since	2.1.3 (replaces the constructor without param compressionLevel)
          */
         public StreamFont(byte contents[], int lengths[], int compressionLevel) throws DocumentException {
+            this(contents, lengths, compressionLevel, null);
+        }
+
+        /** Generates the PDF stream with the Type1 and Truetype fonts returning
+         * a PdfStream, compressing it on an executor.
+         * @param contents the content of the stream
+         * @param lengths an array of int that describes the several lengths of each part of the font
+         * @param compressionLevel	the compression level of the Stream
+         * @param executor the executor compressing the stream, or <CODE>null</CODE> to compress on the calling thread
+         * @throws DocumentException error in the stream compression
+         * @since	5.5.6
+         */
+        public StreamFont(byte contents[], int lengths[], int compressionLevel, ExecutorService executor) throws DocumentException {
             try {
                 bytes = contents;
                 put(PdfName.LENGTH, new PdfNumber(bytes.length));
                 for (int k = 0; k < lengths.length; ++k) {
                     put(new PdfName("Length" + (k + 1)), new PdfNumber(lengths[k]));
                 }
-                flateCompress(compressionLevel);
+                flateCompress(compressionLevel, executor);
             }
             catch (Exception e) {
                 throw new DocumentException(e);
@@ -378,12 +398,25 @@ public abstract class BaseFont {
          * @since	2.1.3 (replaces the constructor without param compressionLevel)
          */
         public StreamFont(byte contents[], String subType, int compressionLevel) throws DocumentException {
+            this(contents, subType, compressionLevel, null);
+        }
+
+        /**
+         * Generates the PDF stream for a font, compressing it on an executor.
+         * @param contents the content of a stream
+         * @param subType the subtype of the font.
+         * @param compressionLevel	the compression level of the Stream
+         * @param executor the executor compressing the stream, or <CODE>null</CODE> to compress on the calling thread
+         * @throws DocumentException error in the stream compression
+         * @since	5.5.6
+         */
+        public StreamFont(byte contents[], String subType, int compressionLevel, ExecutorService executor) throws DocumentException {
             try {
                 bytes = contents;
                 put(PdfName.LENGTH, new PdfNumber(bytes.length));
                 if (subType != null)
                     put(PdfName.SUBTYPE, new PdfName(subType));
-                flateCompress(compressionLevel);
+                flateCompress(compressionLevel, executor);
             }
             catch (Exception e) {
                 throw new DocumentException(e);
@@ -716,10 +749,9 @@ public abstract class BaseFont {
         else
             throw new DocumentException(MessageLocalization.getComposedMessage("font.1.with.2.is.not.recognized", name, encoding));
         if (cached) {
-                fontFound = fontCache.get(key);
+                fontFound = fontCache.putIfAbsent(key, fontBuilt);
                 if (fontFound != null)
                     return fontFound;
-                fontCache.putIfAbsent(key, fontBuilt);
         }
         return fontBuilt;
     }
@@ -189,15 +189,41 @@ public class BidiLine {
                 orderLevels = new byte[pieceSize];
                 indexChars = new int[pieceSize];
             }
-            ArabicLigaturizer.processNumbers(text, 0, totalTextLength, arabicOptions);
-            BidiOrder order = new BidiOrder(text, 0, totalTextLength, (byte)(runDirection == PdfWriter.RUN_DIRECTION_RTL ? 1 : 0));
-            byte od[] = order.getLevels();
-            for (int k = 0; k < totalTextLength; ++k) {
-                orderLevels[k] = od[k];
-                indexChars[k] = k;
+            BidiShapingCache.Key key = null;
+            BidiShapingCache.Entry entry = null;
+            if (BidiShapingCache.isCacheable(totalTextLength)) {
+                key = new BidiShapingCache.Key(text, totalTextLength, runDirection, arabicOptions);
+                entry = BidiShapingCache.get(key);
+            }
+            if (entry != null) {
+                // the shaping only moves characters to lower positions
+                totalTextLength = entry.text.length;
+                System.arraycopy(entry.text, 0, text, 0, totalTextLength);
+                System.arraycopy(entry.orderLevels, 0, orderLevels, 0, totalTextLength);
+                for (int k = 0; k < totalTextLength; ++k) {
+                    detailChunks[k] = detailChunks[entry.source[k]];
+                    indexChars[k] = k;
+                }
+            }
+            else {
+                int source[] = null;
+                if (key != null) {
+                    source = new int[totalTextLength];
+                    for (int k = 0; k < totalTextLength; ++k)
+                        source[k] = k;
+                }
+                ArabicLigaturizer.processNumbers(text, 0, totalTextLength, arabicOptions);
+                BidiOrder order = new BidiOrder(text, 0, totalTextLength, (byte)(runDirection == PdfWriter.RUN_DIRECTION_RTL ? 1 : 0));
+                byte od[] = order.getLevels();
+                for (int k = 0; k < totalTextLength; ++k) {
+                    orderLevels[k] = od[k];
+                    indexChars[k] = k;
+                }
+                doArabicShapping(source);
+                mirrorGlyphs();
+                if (key != null)
+                    BidiShapingCache.put(key, new BidiShapingCache.Entry(text, orderLevels, source, totalTextLength));
             }
-            doArabicShapping();
-            mirrorGlyphs();
         }
         totalTextLength = trimRightEx(0, totalTextLength - 1) + 1;
         return true;
@@ -288,6 +314,15 @@ public class BidiLine {
     }
 
     public void doArabicShapping() {
+        doArabicShapping(null);
+    }
+
+    /**
+     * Shapes the Arabic words of the paragraph.
+     * @param source the original position of every character, moved along
+     * with the characters, or <CODE>null</CODE>
+     */
+    private void doArabicShapping(int source[]) {
         int src = 0;
         int dest = 0;
         for (;;) {
@@ -299,6 +334,8 @@ public class BidiLine {
                     text[dest] = text[src];
                     detailChunks[dest] = detailChunks[src];
                     orderLevels[dest] = orderLevels[src];
+                    if (source != null)
+                        source[dest] = source[src];
                 }
                 ++src;
                 ++dest;
@@ -320,6 +357,8 @@ public class BidiLine {
             if (startArabicIdx != dest) {
                 for (int k = 0; k < size; ++k) {
                     detailChunks[dest] = detailChunks[startArabicIdx];
+                    if (source != null)
+                        source[dest] = source[startArabicIdx];
                     orderLevels[dest++] = orderLevels[startArabicIdx++];
                 }
             }
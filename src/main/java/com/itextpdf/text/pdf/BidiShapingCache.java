@@ -0,0 +1,260 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the result of the bidirectional ordering and of the Arabic shaping
+ * of the paragraphs laid out by {@link ColumnText} with a run direction of
+ * {@link PdfWriter#RUN_DIRECTION_LTR} or {@link PdfWriter#RUN_DIRECTION_RTL}.
+ * Labels, headers and table cells that repeat the same short text in every
+ * document are then only processed once per JVM. The shaping doesn't depend
+ * on the font, only on the text, the run direction and the Arabic options,
+ * the widths are still measured for every line.
+ * <P>
+ * The cache is shared by all the threads, it keeps at most
+ * {@link #getMaxCachedParagraphs()} paragraphs, dropping the least recently
+ * used first, and only paragraphs up to {@link #getMaxTextLength()} characters.
+ * @since 5.5.6
+ */
+public class BidiShapingCache {
+
+    /** The text of a paragraph and the options it was processed with. */
+    static final class Key {
+        private final String text;
+        private final int runDirection;
+        private final int arabicOptions;
+
+        Key(final char text[], final int length, final int runDirection, final int arabicOptions) {
+            this.text = new String(text, 0, length);
+            this.runDirection = runDirection;
+            this.arabicOptions = arabicOptions;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key)obj;
+            return runDirection == other.runDirection && arabicOptions == other.arabicOptions && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return text.hashCode() * 31 + runDirection * 7 + arabicOptions;
+        }
+    }
+
+    /**
+     * A processed paragraph. The characters at the position <CODE>k</CODE>
+     * of the result came from the character at <CODE>source[k]</CODE> of the
+     * original text. The arrays must not be changed.
+     */
+    static final class Entry {
+        final char text[];
+        final byte orderLevels[];
+        final int source[];
+
+        Entry(final char text[], final byte orderLevels[], final int source[], final int length) {
+            this.text = new char[length];
+            this.orderLevels = new byte[length];
+            this.source = new int[length];
+            System.arraycopy(text, 0, this.text, 0, length);
+            System.arraycopy(orderLevels, 0, this.orderLevels, 0, length);
+            System.arraycopy(source, 0, this.source, 0, length);
+        }
+    }
+
+    private static final LinkedHashMap<Key, Entry> cache = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    private static volatile int maxCachedParagraphs = 1000;
+    private static volatile int maxTextLength = 256;
+
+    private BidiShapingCache() {
+    }
+
+    /**
+     * Sets the maximum number of paragraphs kept in the cache. When the limit
+     * is exceeded the least recently used paragraphs are dropped.
+     * @param maxCachedParagraphs the maximum number of paragraphs or 0 to disable the cache
+     */
+    public static void setMaxCachedParagraphs(final int maxCachedParagraphs) {
+        BidiShapingCache.maxCachedParagraphs = maxCachedParagraphs;
+        synchronized (cache) {
+            evict();
+        }
+    }
+
+    /**
+     * Gets the maximum number of paragraphs kept in the cache, 1000 by default.
+     * @return the maximum number of paragraphs or 0 if the cache is disabled
+     */
+    public static int getMaxCachedParagraphs() {
+        return maxCachedParagraphs;
+    }
+
+    /**
+     * Sets the length of the longest paragraph that is cached. Longer
+     * paragraphs are seldom repeated and are always processed.
+     * @param maxTextLength the maximum number of characters
+     */
+    public static void setMaxTextLength(final int maxTextLength) {
+        BidiShapingCache.maxTextLength = maxTextLength;
+    }
+
+    /**
+     * Gets the length of the longest paragraph that is cached, 256 characters by default.
+     * @return the maximum number of characters
+     */
+    public static int getMaxTextLength() {
+        return maxTextLength;
+    }
+
+    /**
+     * Gets the number of paragraphs in the cache.
+     * @return the number of paragraphs
+     */
+    public static int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Gets the number of paragraphs that were found in the cache.
+     * @return the number of hits
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of cacheable paragraphs that had to be processed.
+     * @return the number of misses
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of paragraphs dropped from the cache because of the
+     * limit set with {@link #setMaxCachedParagraphs(int)}.
+     * @return the number of evictions
+     */
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Sets all the statistics to zero.
+     */
+    public static void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * Removes all the paragraphs from the cache.
+     */
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Checks if a paragraph may be cached.
+     * @param length the number of characters of the paragraph
+     * @return <CODE>true</CODE> if the paragraph may be cached
+     */
+    static boolean isCacheable(final int length) {
+        return maxCachedParagraphs > 0 && length <= maxTextLength;
+    }
+
+    /**
+     * Gets a processed paragraph.
+     * @param key the paragraph
+     * @return the processed paragraph or <CODE>null</CODE>
+     */
+    static Entry get(final Key key) {
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (entry == null)
+            misses.incrementAndGet();
+        else
+            hits.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Adds a processed paragraph.
+     * @param key the paragraph
+     * @param entry the processed paragraph
+     */
+    static void put(final Key key, final Entry entry) {
+        synchronized (cache) {
+            cache.put(key, entry);
+            evict();
+        }
+    }
+
+    private static void evict() {
+        int max = maxCachedParagraphs;
+        Iterator<Entry> it = cache.values().iterator();
+        while (cache.size() > max && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+}
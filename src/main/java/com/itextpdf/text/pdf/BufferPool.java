@@ -0,0 +1,304 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * A pool of byte arrays and <CODE>Deflater</CODE>s that are reused for the
+ * temporary buffers of {@link ByteBuffer}, the page contents, the object
+ * streams and the compression of {@link PdfStream}s.
+ * <P>
+ * The pool is disabled by default: every request then allocates a new
+ * object, as before. Once enabled, every thread keeps its own small cache,
+ * so no locking is needed. The byte arrays are grouped in size classes that
+ * are powers of two from 256 bytes to 4 MB, larger arrays are never cached.
+ * The statistics are only kept while the pool is enabled, a disabled pool
+ * doesn't touch any shared state.
+ * @since 5.5.6
+ */
+public final class BufferPool {
+
+    /** The smallest size class: 2^8 bytes. */
+    private static final int MIN_SHIFT = 8;
+    /** The largest size class: 2^22 bytes. */
+    private static final int MAX_SHIFT = 22;
+    /** The maximum number of arrays of one size class that a thread keeps. */
+    private static final int MAX_ARRAYS_PER_CLASS = 8;
+
+    private static volatile boolean enabled = false;
+    private static volatile long maxRetainedBytes = 4L * 1024 * 1024;
+
+    private static final AtomicLong allocatedArrays = new AtomicLong();
+    private static final AtomicLong allocatedBytes = new AtomicLong();
+    private static final AtomicLong reusedArrays = new AtomicLong();
+    private static final AtomicLong reusedBytes = new AtomicLong();
+    private static final AtomicLong allocatedDeflaters = new AtomicLong();
+    private static final AtomicLong reusedDeflaters = new AtomicLong();
+
+    /** The cache of one thread. */
+    private static class Cache {
+        final byte[][][] arrays = new byte[MAX_SHIFT - MIN_SHIFT + 1][MAX_ARRAYS_PER_CLASS][];
+        final int[] counts = new int[MAX_SHIFT - MIN_SHIFT + 1];
+        long retainedBytes;
+        /** One deflater per compression level, from -1 to 9. */
+        final Deflater[] deflaters = new Deflater[11];
+    }
+
+    private static final ThreadLocal<Cache> caches = new ThreadLocal<Cache>() {
+        @Override
+        protected Cache initialValue() {
+            return new Cache();
+        }
+    };
+
+    private BufferPool() {
+    }
+
+    /**
+     * Enables or disables the pool. Disabling the pool doesn't release the arrays
+     * that are already cached, use {@link #clear()} in every thread for that.
+     * @param enabled <CODE>true</CODE> to reuse buffers
+     */
+    public static void setEnabled(final boolean enabled) {
+        BufferPool.enabled = enabled;
+    }
+
+    /**
+     * Checks if the pool is enabled.
+     * @return <CODE>true</CODE> if buffers are reused
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the maximum number of bytes that every thread keeps in its cache.
+     * The default is 4 MB.
+     * @param maxRetainedBytes the maximum number of bytes per thread
+     */
+    public static void setMaxRetainedBytes(final long maxRetainedBytes) {
+        BufferPool.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * Gets a byte array. The array isn't cleared.
+     * @param minLength the minimum length of the array
+     * @return an array of at least <CODE>minLength</CODE> bytes
+     */
+    public static byte[] borrow(final int minLength) {
+        if (enabled) {
+            int cls = sizeClass(minLength);
+            if (cls >= 0) {
+                Cache cache = caches.get();
+                int n = cache.counts[cls];
+                if (n > 0) {
+                    byte b[] = cache.arrays[cls][--n];
+                    cache.arrays[cls][n] = null;
+                    cache.counts[cls] = n;
+                    cache.retainedBytes -= b.length;
+                    reusedArrays.incrementAndGet();
+                    reusedBytes.addAndGet(b.length);
+                    return b;
+                }
+                return allocate(1 << cls + MIN_SHIFT);
+            }
+        }
+        return allocate(minLength);
+    }
+
+    /**
+     * Returns a byte array to the cache of the current thread. The array must
+     * not be used anymore by the caller. Arrays that don't have the length of a
+     * size class are ignored.
+     * @param b the array, may be <CODE>null</CODE>
+     */
+    public static void release(final byte b[]) {
+        if (!enabled || b == null)
+            return;
+        int cls = sizeClass(b.length);
+        if (cls < 0 || b.length != 1 << cls + MIN_SHIFT)
+            return;
+        Cache cache = caches.get();
+        int n = cache.counts[cls];
+        if (n == MAX_ARRAYS_PER_CLASS || cache.retainedBytes + b.length > maxRetainedBytes)
+            return;
+        cache.arrays[cls][n] = b;
+        cache.counts[cls] = n + 1;
+        cache.retainedBytes += b.length;
+    }
+
+    /**
+     * Gets a <CODE>Deflater</CODE> that is ready to compress new data.
+     * @param compressionLevel the compression level
+     * @return the deflater
+     */
+    public static Deflater borrowDeflater(final int compressionLevel) {
+        if (enabled && compressionLevel >= -1 && compressionLevel <= 9) {
+            Cache cache = caches.get();
+            Deflater deflater = cache.deflaters[compressionLevel + 1];
+            if (deflater != null) {
+                cache.deflaters[compressionLevel + 1] = null;
+                reusedDeflaters.incrementAndGet();
+                return deflater;
+            }
+        }
+        if (enabled)
+            allocatedDeflaters.incrementAndGet();
+        return new Deflater(compressionLevel);
+    }
+
+    /**
+     * Returns a <CODE>Deflater</CODE> obtained with {@link #borrowDeflater(int)}.
+     * It is reset and kept for the next request or ended if the pool is disabled.
+     * @param deflater the deflater
+     * @param compressionLevel the compression level used to get the deflater
+     */
+    public static void releaseDeflater(final Deflater deflater, final int compressionLevel) {
+        if (enabled && compressionLevel >= -1 && compressionLevel <= 9) {
+            Cache cache = caches.get();
+            if (cache.deflaters[compressionLevel + 1] == null) {
+                deflater.reset();
+                cache.deflaters[compressionLevel + 1] = deflater;
+                return;
+            }
+        }
+        deflater.end();
+    }
+
+    /**
+     * Releases the arrays and the deflaters cached by the current thread.
+     */
+    public static void clear() {
+        Cache cache = caches.get();
+        for (Deflater deflater : cache.deflaters) {
+            if (deflater != null)
+                deflater.end();
+        }
+        caches.remove();
+    }
+
+    /**
+     * Gets the number of byte arrays that had to be allocated.
+     * @return the number of arrays
+     */
+    public static long getAllocatedArrays() {
+        return allocatedArrays.get();
+    }
+
+    /**
+     * Gets the number of bytes in the arrays that had to be allocated.
+     * @return the number of bytes
+     */
+    public static long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * Gets the number of byte arrays that were taken from the pool.
+     * @return the number of arrays
+     */
+    public static long getReusedArrays() {
+        return reusedArrays.get();
+    }
+
+    /**
+     * Gets the number of bytes in the arrays that were taken from the pool.
+     * @return the number of bytes
+     */
+    public static long getReusedBytes() {
+        return reusedBytes.get();
+    }
+
+    /**
+     * Gets the number of deflaters that had to be created.
+     * @return the number of deflaters
+     */
+    public static long getAllocatedDeflaters() {
+        return allocatedDeflaters.get();
+    }
+
+    /**
+     * Gets the number of deflaters that were taken from the pool.
+     * @return the number of deflaters
+     */
+    public static long getReusedDeflaters() {
+        return reusedDeflaters.get();
+    }
+
+    /**
+     * Sets all the statistics to zero.
+     */
+    public static void resetStatistics() {
+        allocatedArrays.set(0);
+        allocatedBytes.set(0);
+        reusedArrays.set(0);
+        reusedBytes.set(0);
+        allocatedDeflaters.set(0);
+        reusedDeflaters.set(0);
+    }
+
+    private static byte[] allocate(final int length) {
+        if (enabled) {
+            allocatedArrays.incrementAndGet();
+            allocatedBytes.addAndGet(length);
+        }
+        return new byte[length];
+    }
+
+    /**
+     * Gets the size class of a length.
+     * @param length the length
+     * @return the index of the smallest size class that can hold <CODE>length</CODE> bytes or -1 if there is none
+     */
+    private static int sizeClass(final int length) {
+        if (length > 1 << MAX_SHIFT)
+            return -1;
+        if (length <= 1 << MIN_SHIFT)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(length - 1) - MIN_SHIFT;
+    }
+}
@@ -51,7 +51,6 @@ import java.text.DecimalFormatSymbols;
 import java.util.Locale;
 import com.itextpdf.text.error_messages.MessageLocalization;
 
-import com.itextpdf.text.DocWriter;
 
 /**
  * Acts like a <CODE>StringBuffer</CODE> but works with <CODE>byte</CODE> arrays.
@@ -65,6 +64,9 @@ public class ByteBuffer extends OutputStream {
     
     /** The buffer where the bytes are stored. */
     protected byte buf[];
+
+    /** <CODE>true</CODE> if the buffer was given away and must not go back to the {@link BufferPool}. */
+    private boolean exposed;
     
     private static int byteCacheSize = 0;
     
@@ -78,6 +80,13 @@ public class ByteBuffer extends OutputStream {
      */    
     public static boolean HIGH_PRECISION = false;
     private static final DecimalFormatSymbols dfs = new DecimalFormatSymbols(Locale.US);
+    /** The format of the numbers with {@link #HIGH_PRECISION}, <CODE>DecimalFormat</CODE> isn't thread safe. */
+    private static final ThreadLocal<DecimalFormat> highPrecisionFormat = new ThreadLocal<DecimalFormat>() {
+        @Override
+        protected DecimalFormat initialValue() {
+            return new DecimalFormat("0.######", dfs);
+        }
+    };
     
     /** Creates new ByteBuffer with capacity 128 */
     public ByteBuffer() {
@@ -91,7 +100,7 @@ public class ByteBuffer extends OutputStream {
     public ByteBuffer(int size) {
         if (size < 1)
             size = 128;
-        buf = new byte[size];
+        buf = BufferPool.borrow(size);
     }
     
     /**
@@ -185,15 +194,22 @@ public class ByteBuffer extends OutputStream {
     public ByteBuffer append_i(int b) {
         int newcount = count + 1;
         if (newcount > buf.length) {
-            byte newbuf[] = new byte[Math.max(buf.length << 1, newcount)];
-            System.arraycopy(buf, 0, newbuf, 0, count);
-            buf = newbuf;
+            grow(newcount);
         }
         buf[count] = (byte)b;
         count = newcount;
         return this;
     }
     
+    private void grow(int newcount) {
+        byte newbuf[] = BufferPool.borrow(Math.max(buf.length << 1, newcount));
+        System.arraycopy(buf, 0, newbuf, 0, count);
+        if (!exposed)
+            BufferPool.release(buf);
+        exposed = false;
+        buf = newbuf;
+    }
+    
     /**
      * Appends the subarray of the <CODE>byte</CODE> array. The buffer will grow by
      * <CODE>len</CODE> bytes.
@@ -208,9 +224,7 @@ public class ByteBuffer extends OutputStream {
             return this;
         int newcount = count + len;
         if (newcount > buf.length) {
-            byte newbuf[] = new byte[Math.max(buf.length << 1, newcount)];
-            System.arraycopy(buf, 0, newbuf, 0, count);
-            buf = newbuf;
+            grow(newcount);
         }
         System.arraycopy(b, off, buf, count, len);
         count = newcount;
@@ -233,8 +247,16 @@ public class ByteBuffer extends OutputStream {
      * @return a reference to this <CODE>ByteBuffer</CODE> object
      */
     public ByteBuffer append(String str) {
-        if (str != null)
-            return append(DocWriter.getISOBytes(str));
+        if (str != null) {
+            int len = str.length();
+            int newcount = count + len;
+            if (newcount > buf.length) {
+                grow(newcount);
+            }
+            for (int k = 0; k < len; ++k)
+                buf[count + k] = (byte)str.charAt(k);
+            count = newcount;
+        }
         return this;
     }
     
@@ -301,9 +323,145 @@ public class ByteBuffer extends OutputStream {
      * @return a reference to this <CODE>ByteBuffer</CODE> object
      */
     public ByteBuffer append(double d) {
-        append(formatDouble(d, this));
+        if (HIGH_PRECISION) {
+            if (!appendHighPrecision(d))
+                append(highPrecisionFormat.get().format(d));
+            return this;
+        }
+        // the longest number is a minus sign and 19 digits
+        if (count + 20 > buf.length) {
+            grow(count + 20);
+        }
+        byte b[] = buf;
+        int c = count;
+        if (Math.abs(d) < 0.000015) {
+            b[c++] = ZERO;
+            count = c;
+            return this;
+        }
+        if (d < 0) {
+            b[c++] = (byte)'-';
+            d = -d;
+        }
+        if (d < 1.0) {
+            d += 0.000005;
+            if (d >= 1) {
+                b[c++] = (byte)'1';
+            }
+            else {
+                int v = (int) (d * 100000);
+                b[c++] = ZERO;
+                b[c++] = (byte)'.';
+                b[c++] = bytes[v / 10000];
+                if (v % 10000 != 0) {
+                    b[c++] = bytes[(v / 1000) % 10];
+                    if (v % 1000 != 0) {
+                        b[c++] = bytes[(v / 100) % 10];
+                        if (v % 100 != 0) {
+                            b[c++] = bytes[(v / 10) % 10];
+                            if (v % 10 != 0) {
+                                b[c++] = bytes[v % 10];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        else if (d <= 32767) {
+            d += 0.005;
+            int v = (int) (d * 100);
+            byte cache[] = v < byteCacheSize ? byteCache[v] : null;
+            if (cache != null) {
+                System.arraycopy(cache, 0, b, c, cache.length);
+                c += cache.length;
+            }
+            else {
+                int start = c;
+                c = appendDigits(b, c, v / 100);
+                if (v % 100 != 0) {
+                    b[c++] = (byte)'.';
+                    b[c++] = bytes[(v / 10) % 10];
+                    if (v % 10 != 0) {
+                        b[c++] = bytes[v % 10];
+                    }
+                }
+                if (v < byteCacheSize) {
+                    cache = new byte[c - start];
+                    System.arraycopy(b, start, cache, 0, cache.length);
+                    byteCache[v] = cache;
+                }
+            }
+        }
+        else {
+            c = appendDigits(b, c, (long) (d + 0.5));
+        }
+        count = c;
         return this;
     }
+
+    /**
+     * Appends a number with up to 6 decimals, as the <CODE>DecimalFormat</CODE>
+     * "0.######" would, when the rounding can be done without doubt.
+     * @param d the number
+     * @return <CODE>false</CODE> if nothing was appended and <CODE>DecimalFormat</CODE> must be used
+     */
+    private boolean appendHighPrecision(double d) {
+        double scaled = Math.abs(d) * 1000000;
+        // the error of scaled is less than 2^-22, far from the ties of the half even rounding
+        if (!(scaled < Integer.MAX_VALUE))
+            return false;
+        long v = (long) scaled;
+        double fraction = scaled - v;
+        if (Math.abs(fraction - 0.5) < 0.000001)
+            return false;
+        if (fraction > 0.5)
+            ++v;
+        if (v == 0)
+            return false;
+        if (count + 20 > buf.length) {
+            grow(count + 20);
+        }
+        byte b[] = buf;
+        int c = count;
+        if (d < 0)
+            b[c++] = (byte)'-';
+        c = appendDigits(b, c, v / 1000000);
+        int decimals = (int) (v % 1000000);
+        if (decimals != 0) {
+            b[c++] = (byte)'.';
+            int digits = 6;
+            while (decimals % 10 == 0) {
+                decimals /= 10;
+                --digits;
+            }
+            for (int k = c + digits - 1; k >= c; --k) {
+                b[k] = bytes[decimals % 10];
+                decimals /= 10;
+            }
+            c += digits;
+        }
+        count = c;
+        return true;
+    }
+
+    /**
+     * Writes the decimal digits of a positive number.
+     * @param b the array to write to
+     * @param c the position of the first digit
+     * @param v the number
+     * @return the position after the last digit
+     */
+    private static int appendDigits(byte b[], int c, long v) {
+        int end = c + 1;
+        for (long t = v; t >= 10; t /= 10)
+            ++end;
+        for (int k = end - 1; k >= c; --k) {
+            b[k] = bytes[(int) (v % 10)];
+            v /= 10;
+        }
+        return end;
+    }
+
     
     /**
      * Outputs a <CODE>double</CODE> into a format suitable for the PDF.
@@ -323,24 +481,15 @@ public class ByteBuffer extends OutputStream {
      * then the double is appended directly to the buffer and this methods returns <CODE>null</CODE>.
      */
     public static String formatDouble(double d, ByteBuffer buf) {
-        if (HIGH_PRECISION) {
-            DecimalFormat dn = new DecimalFormat("0.######", dfs);
-            String sform = dn.format(d);
-            if (buf == null)
-                return sform;
-            else {
-                buf.append(sform);
-                return null;
-            }
+        if (buf != null) {
+            buf.append(d);
+            return null;
         }
+        if (HIGH_PRECISION)
+            return highPrecisionFormat.get().format(d);
         boolean negative = false;
         if (Math.abs(d) < 0.000015) {
-            if (buf != null) {
-                buf.append(ZERO);
-                return null;
-            } else {
-                return "0";
-            }
+            return "0";
         }
         if (d < 0) {
             negative = true;
@@ -350,189 +499,64 @@ public class ByteBuffer extends OutputStream {
             d += 0.000005;
             if (d >= 1) {
                 if (negative) {
-                    if (buf != null) {
-                        buf.append((byte)'-');
-                        buf.append((byte)'1');
-                        return null;
-                    } else {
-                        return "-1";
-                    }
+                    return "-1";
                 } else {
-                    if (buf != null) {
-                        buf.append((byte)'1');
-                        return null;
-                    } else {
-                        return "1";
-                    }
+                    return "1";
                 }
             }
-            if (buf != null) {
-                int v = (int) (d * 100000);
-                
-                if (negative) buf.append((byte)'-');
-                buf.append((byte)'0');
-                buf.append((byte)'.');
-                
-                buf.append( (byte)(v / 10000 + ZERO) );
-                if (v % 10000 != 0) {
-                    buf.append( (byte)((v / 1000) % 10 + ZERO) );
-                    if (v % 1000 != 0) {
-                        buf.append( (byte)((v / 100) % 10 + ZERO) );
-                        if (v % 100 != 0) {
-                            buf.append((byte)((v / 10) % 10 + ZERO) );
-                            if (v % 10 != 0) {
-                                buf.append((byte)((v) % 10 + ZERO) );
-                            }
-                        }
-                    }
-                }
-                return null;
-            } else {
-                int x = 100000;
-                int v = (int) (d * x);
-                
-                StringBuilder res = new StringBuilder();
-                if (negative) res.append('-');
-                res.append("0.");
-                
-                while( v < x/10 ) {
-                    res.append('0');
-                    x /= 10;
-                }
-                res.append(v);
-                int cut = res.length() - 1;
-                while (res.charAt(cut) == '0') {
-                    --cut;
-                }
-                res.setLength(cut + 1);
-                return res.toString();
+            int x = 100000;
+            int v = (int) (d * x);
+            
+            StringBuilder res = new StringBuilder();
+            if (negative) res.append('-');
+            res.append("0.");
+            
+            while( v < x/10 ) {
+                res.append('0');
+                x /= 10;
+            }
+            res.append(v);
+            int cut = res.length() - 1;
+            while (res.charAt(cut) == '0') {
+                --cut;
             }
+            res.setLength(cut + 1);
+            return res.toString();
         } else if (d <= 32767) {
             d += 0.005;
             int v = (int) (d * 100);
             
             if (v < byteCacheSize && byteCache[v] != null) {
-                if (buf != null) {
-                    if (negative) buf.append((byte)'-');
-                    buf.append(byteCache[v]);
-                    return null;
-                } else {
-                    String tmp = PdfEncodings.convertToString(byteCache[v], null);
-                    if (negative) tmp = "-" + tmp;
-                    return tmp;
-                }
+                String tmp = PdfEncodings.convertToString(byteCache[v], null);
+                if (negative) tmp = "-" + tmp;
+                return tmp;
             }
-            if (buf != null) {
-                if (v < byteCacheSize) {
-                    //create the cachebyte[]
-                    byte[] cache;
-                    int size = 0;
-                    if (v >= 1000000) {
-                        //the original number is >=10000, we need 5 more bytes
-                        size += 5;
-                    } else if (v >= 100000) {
-                        //the original number is >=1000, we need 4 more bytes
-                        size += 4;
-                    } else if (v >= 10000) {
-                        //the original number is >=100, we need 3 more bytes
-                        size += 3;
-                    } else if (v >= 1000) {
-                        //the original number is >=10, we need 2 more bytes
-                        size += 2;
-                    } else if (v >= 100) {
-                        //the original number is >=1, we need 1 more bytes
-                        size += 1;
-                    }
-                    
-                    //now we must check if we have a decimal number
-                    if (v % 100 != 0) {
-                        //yes, do not forget the "."
-                        size += 2;
-                    }
-                    if (v % 10 != 0) {
-                        size++;
-                    }
-                    cache = new byte[size];
-                    int add = 0;
-                    if (v >= 1000000) {
-                        cache[add++] = bytes[(v / 1000000)];
-                    }
-                    if (v >= 100000) {
-                        cache[add++] = bytes[(v / 100000) % 10];
-                    }
-                    if (v >= 10000) {
-                        cache[add++] = bytes[(v / 10000) % 10];
-                    }
-                    if (v >= 1000) {
-                        cache[add++] = bytes[(v / 1000) % 10];
-                    }
-                    if (v >= 100) {
-                        cache[add++] = bytes[(v / 100) % 10];
-                    }
-                    
-                    if (v % 100 != 0) {
-                        cache[add++] = (byte)'.';
-                        cache[add++] = bytes[(v / 10) % 10];
-                        if (v % 10 != 0) {
-                            cache[add++] = bytes[v % 10];
-                        }
-                    }
-                    byteCache[v] = cache;
-                }
-                
-                if (negative) buf.append((byte)'-');
-                if (v >= 1000000) {
-                    buf.append( bytes[(v / 1000000)] );
-                }
-                if (v >= 100000) {
-                    buf.append( bytes[(v / 100000) % 10] );
-                }
-                if (v >= 10000) {
-                    buf.append( bytes[(v / 10000) % 10] );
-                }
-                if (v >= 1000) {
-                    buf.append( bytes[(v / 1000) % 10] );
-                }
-                if (v >= 100) {
-                    buf.append( bytes[(v / 100) % 10] );
-                }
-                
-                if (v % 100 != 0) {
-                    buf.append((byte)'.');
-                    buf.append( bytes[(v / 10) % 10] );
-                    if (v % 10 != 0) {
-                        buf.append( bytes[v % 10] );
-                    }
-                }
-                return null;
-            } else {
-                StringBuilder res = new StringBuilder();
-                if (negative) res.append('-');
-                if (v >= 1000000) {
-                    res.append( chars[(v / 1000000)] );
-                }
-                if (v >= 100000) {
-                    res.append( chars[(v / 100000) % 10] );
-                }
-                if (v >= 10000) {
-                    res.append( chars[(v / 10000) % 10] );
-                }
-                if (v >= 1000) {
-                    res.append( chars[(v / 1000) % 10] );
-                }
-                if (v >= 100) {
-                    res.append( chars[(v / 100) % 10] );
-                }
-                
-                if (v % 100 != 0) {
-                    res.append('.');
-                    res.append( chars[(v / 10) % 10] );
-                    if (v % 10 != 0) {
-                        res.append( chars[v % 10] );
-                    }
+            StringBuilder res = new StringBuilder();
+            if (negative) res.append('-');
+            if (v >= 1000000) {
+                res.append( chars[(v / 1000000)] );
+            }
+            if (v >= 100000) {
+                res.append( chars[(v / 100000) % 10] );
+            }
+            if (v >= 10000) {
+                res.append( chars[(v / 10000) % 10] );
+            }
+            if (v >= 1000) {
+                res.append( chars[(v / 1000) % 10] );
+            }
+            if (v >= 100) {
+                res.append( chars[(v / 100) % 10] );
+            }
+            
+            if (v % 100 != 0) {
+                res.append('.');
+                res.append( chars[(v / 10) % 10] );
+                if (v % 10 != 0) {
+                    res.append( chars[v % 10] );
                 }
-                return res.toString();
             }
+            return res.toString();
         } else {
             d += 0.5;
             long v = (long) d;
@@ -550,6 +574,20 @@ public class ByteBuffer extends OutputStream {
         count = 0;
     }
     
+    /**
+     * Sets the size to zero and gives the internal array back to the
+     * {@link BufferPool}. The buffer can still be used afterwards, it
+     * will allocate a new array when needed.
+     * @since 5.5.6
+     */
+    public void release() {
+        count = 0;
+        if (!exposed)
+            BufferPool.release(buf);
+        exposed = false;
+        buf = new byte[0];
+    }
+    
     /**
      * Creates a newly allocated byte array. Its size is the current
      * size of this output stream and the valid contents of the buffer
@@ -624,6 +662,7 @@ public class ByteBuffer extends OutputStream {
     }
     
     public byte[] getBuffer() {
+        exposed = true;
         return buf;
     }
 }
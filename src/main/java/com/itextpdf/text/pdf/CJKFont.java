@@ -78,7 +78,7 @@ class CJKFont extends BaseFont {
     static Properties cjkFonts = new Properties();
     static Properties cjkEncodings = new Properties();
     private static final HashMap<String, HashMap<String, Object>> allFonts = new HashMap<String, HashMap<String, Object>>();
-    private static boolean propertiesLoaded = false;
+    private static volatile boolean propertiesLoaded = false;
     
     /** The path to the font resources. */
     public static final String RESOURCE_PATH_CMAP = RESOURCE_PATH + "cmaps/";
@@ -100,6 +100,13 @@ class CJKFont extends BaseFont {
     //private char[] translationMap;
     private IntHashtable vMetrics;
     private IntHashtable hMetrics;
+    /** The widths of the chars, looked up in the CMap and the metrics only once. */
+    private final CharMetricsTable widthTable = new CharMetricsTable() {
+        @Override
+        int compute(int c) {
+            return getUncachedWidth(c);
+        }
+    };
     private HashMap<String, Object> fontDesc;
 
     private static void loadProperties() {
@@ -238,6 +245,10 @@ class CJKFont extends BaseFont {
      */
     @Override
     public int getWidth(int char1) {
+        return widthTable.get(char1);
+    }
+
+    private int getUncachedWidth(int char1) {
         int c = char1;
         if (!cidDirect)
             c = uniCid.lookup(char1);
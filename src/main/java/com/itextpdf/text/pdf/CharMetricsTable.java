@@ -0,0 +1,108 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.util.Arrays;
+
+/**
+ * A flat table with one metric, a width or a glyph index, for every Unicode
+ * code point of a font. The table is made of pages of 256 code points that
+ * are filled the first time one of their code points is needed, so the hot
+ * layout loops read an array instead of looking up the font maps for every
+ * character. The table may be read by several threads, a page is always
+ * complete when another thread sees it.
+ * @since 5.5.6
+ */
+abstract class CharMetricsTable {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    /** The metrics of 256 code points. */
+    private static final class Page {
+        final int values[];
+
+        Page(final int values[]) {
+            this.values = values;
+        }
+    }
+
+    private final Page pages[] = new Page[(Character.MAX_CODE_POINT + 1) >> PAGE_BITS];
+
+    /**
+     * Computes the metric of a code point from the font.
+     * @param c the code point
+     * @return the metric
+     */
+    abstract int compute(int c);
+
+    /**
+     * Gets the metric of a code point.
+     * @param c the code point
+     * @return the metric
+     */
+    final int get(final int c) {
+        if (c < 0 || c > Character.MAX_CODE_POINT)
+            return compute(c);
+        int idx = c >> PAGE_BITS;
+        Page page = pages[idx];
+        if (page == null) {
+            int values[] = new int[PAGE_SIZE];
+            int first = idx << PAGE_BITS;
+            for (int k = 0; k < PAGE_SIZE; ++k)
+                values[k] = compute(first + k);
+            page = new Page(values);
+            pages[idx] = page;
+        }
+        return page.values[c & (PAGE_SIZE - 1)];
+    }
+
+    /**
+     * Drops all the metrics, they will be computed again from the font.
+     */
+    final void clear() {
+        Arrays.fill(pages, null);
+    }
+}
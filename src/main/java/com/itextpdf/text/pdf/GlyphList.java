@@ -53,8 +53,9 @@ import java.util.HashMap;
 import java.util.StringTokenizer;
 
 public class GlyphList {
-    private static HashMap<Integer, String> unicode2names = new HashMap<Integer, String>();
-    private static HashMap<String, int[]> names2unicode = new HashMap<String, int[]>();
+    // filled once by the static initializer and only read afterwards, no locking is needed
+    private static final HashMap<Integer, String> unicode2names = new HashMap<Integer, String>();
+    private static final HashMap<String, int[]> names2unicode = new HashMap<String, int[]>();
 
     static {
         InputStream is = null;
@@ -0,0 +1,209 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.security.MessageDigest;
+
+/**
+ * A <CODE>MessageDigest</CODE> that computes the 128 bit x64 variant of
+ * MurmurHash3. It is a fast non-cryptographic hash, meant to find identical
+ * content, not to protect it: it must not be used where an attacker
+ * could choose the content.
+ * @since 5.5.6
+ */
+public class MurmurHash3Digest extends MessageDigest implements Cloneable {
+
+    /** The name of the algorithm. */
+    public static final String ALGORITHM = "MurmurHash3_x64_128";
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final int seed;
+    private long h1;
+    private long h2;
+    private long length;
+    /** The bytes that don't fill a block yet. */
+    private byte tail[] = new byte[16];
+    private int tailLength;
+
+    /**
+     * Creates a digest with seed 0.
+     */
+    public MurmurHash3Digest() {
+        this(0);
+    }
+
+    /**
+     * Creates a digest.
+     * @param seed the seed
+     */
+    public MurmurHash3Digest(final int seed) {
+        super(ALGORITHM);
+        this.seed = seed;
+        engineReset();
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return 16;
+    }
+
+    @Override
+    protected void engineUpdate(final byte input) {
+        tail[tailLength++] = input;
+        ++length;
+        if (tailLength == 16) {
+            processBlock(tail, 0);
+            tailLength = 0;
+        }
+    }
+
+    @Override
+    protected void engineUpdate(final byte input[], int offset, int len) {
+        length += len;
+        if (tailLength > 0) {
+            int n = Math.min(16 - tailLength, len);
+            System.arraycopy(input, offset, tail, tailLength, n);
+            tailLength += n;
+            offset += n;
+            len -= n;
+            if (tailLength < 16)
+                return;
+            processBlock(tail, 0);
+            tailLength = 0;
+        }
+        while (len >= 16) {
+            processBlock(input, offset);
+            offset += 16;
+            len -= 16;
+        }
+        System.arraycopy(input, offset, tail, 0, len);
+        tailLength = len;
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        long k1 = 0;
+        long k2 = 0;
+        for (int k = tailLength - 1; k >= 8; --k)
+            k2 = k2 << 8 | tail[k] & 0xff;
+        for (int k = Math.min(tailLength, 8) - 1; k >= 0; --k)
+            k1 = k1 << 8 | tail[k] & 0xff;
+        if (tailLength > 8)
+            h2 ^= mixK2(k2);
+        if (tailLength > 0)
+            h1 ^= mixK1(k1);
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        byte out[] = new byte[16];
+        for (int k = 0; k < 8; ++k) {
+            out[k] = (byte)(h1 >>> 8 * k);
+            out[k + 8] = (byte)(h2 >>> 8 * k);
+        }
+        engineReset();
+        return out;
+    }
+
+    @Override
+    protected void engineReset() {
+        h1 = seed & 0xffffffffL;
+        h2 = seed & 0xffffffffL;
+        length = 0;
+        tailLength = 0;
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        MurmurHash3Digest digest = (MurmurHash3Digest)super.clone();
+        digest.tail = tail.clone();
+        return digest;
+    }
+
+    private void processBlock(final byte b[], final int off) {
+        long k1 = getLong(b, off);
+        long k2 = getLong(b, off + 8);
+        h1 ^= mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    private static long getLong(final byte b[], final int off) {
+        return (b[off] & 0xffL) | (b[off + 1] & 0xffL) << 8 | (b[off + 2] & 0xffL) << 16 | (b[off + 3] & 0xffL) << 24
+            | (b[off + 4] & 0xffL) << 32 | (b[off + 5] & 0xffL) << 40 | (b[off + 6] & 0xffL) << 48 | (b[off + 7] & 0xffL) << 56;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
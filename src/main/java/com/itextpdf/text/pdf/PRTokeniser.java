@@ -103,11 +103,26 @@ public class PRTokeniser {
     
     static final String EMPTY = "";
 
+    /** The powers of ten that are exactly represented by a <CODE>double</CODE>. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     
     private final RandomAccessFileOrArray file;
     
     protected TokenType type;
-    protected String stringValue;
+    /**
+     * The value of the current token as a <CODE>String</CODE>. It is created by
+     * {@link #getStringValue()} when it is first needed, so it is private: it was
+     * protected before 5.5.6, subclasses must now use {@link #getStringValue()}.
+     */
+    private String stringValue;
+    /** The bytes of the current token, reused from token to token. */
+    private byte[] tokenBytes = new byte[64];
+    /** The number of bytes of the current token. */
+    private int tokenLength;
     protected int reference;
     protected int generation;
     protected boolean hexString;
@@ -198,8 +213,60 @@ public class PRTokeniser {
     }
     
     public String getStringValue() {
+        if (stringValue == null) {
+            char[] chars = new char[tokenLength];
+            for (int k = 0; k < tokenLength; ++k)
+                chars[k] = (char)(tokenBytes[k] & 0xff);
+            stringValue = new String(chars);
+        }
         return stringValue;
     }
+
+    /**
+     * Gets the bytes of the current token. The array is reused for the next tokens, only
+     * the first {@link #getTokenLength()} bytes belong to the current token. The bytes
+     * are the same as the characters of {@link #getStringValue()}: names without the
+     * slash and with the escapes resolved, strings decoded, numbers and operators as is.
+     * This gives access to the token without creating a <CODE>String</CODE>.
+     * @return the bytes of the current token
+     * @since 5.5.6
+     */
+    public byte[] getTokenBytes() {
+        return tokenBytes;
+    }
+
+    /**
+     * Gets the number of bytes of the current token.
+     * @return the number of bytes in {@link #getTokenBytes()}
+     * @since 5.5.6
+     */
+    public int getTokenLength() {
+        return tokenLength;
+    }
+
+    /**
+     * Sets the value of the current token.
+     * @param value the value
+     */
+    private void setStringValue(String value) {
+        tokenLength = 0;
+        for (int k = 0; k < value.length(); ++k)
+            append(value.charAt(k));
+        stringValue = value;
+    }
+
+    /**
+     * Appends a byte to the current token.
+     * @param b the byte
+     */
+    private void append(int b) {
+        if (tokenLength == tokenBytes.length) {
+            byte[] newBytes = new byte[tokenLength * 2];
+            System.arraycopy(tokenBytes, 0, newBytes, 0, tokenLength);
+            tokenBytes = newBytes;
+        }
+        tokenBytes[tokenLength++] = (byte)b;
+    }
     
     public int getReference() {
         return reference;
@@ -286,7 +353,7 @@ public class PRTokeniser {
                     if (type != TokenType.NUMBER)
                         return;
                     ptr = file.getFilePointer();
-                    n1 = stringValue;
+                    n1 = getStringValue();
                     ++level;
                     break;
                 }
@@ -295,19 +362,19 @@ public class PRTokeniser {
                     if (type != TokenType.NUMBER) {
                         file.seek(ptr);
                         type = TokenType.NUMBER;
-                        stringValue = n1;
+                        setStringValue(n1);
                         return;
                     }
-                    n2 = stringValue;
+                    n2 = getStringValue();
                     ++level;
                     break;
                 }
                 default:
                 {
-                    if (type != TokenType.OTHER || !stringValue.equals("R")) {
+                    if (type != TokenType.OTHER || tokenLength != 1 || tokenBytes[0] != 'R') {
                         file.seek(ptr);
                         type = TokenType.NUMBER;
-                        stringValue = n1;
+                        setStringValue(n1);
                         return;
                     }
                     type = TokenType.REF;
@@ -336,11 +403,11 @@ public class PRTokeniser {
             return false;
         }
 
-        // Note:  We have to initialize stringValue here, after we've looked for the end of the stream,
+        // Note:  We have to initialize the token here, after we've looked for the end of the stream,
         // to ensure that we don't lose the value of a token that might end exactly at the end
         // of the stream
-        final StringBuilder outBuf = new StringBuilder();
-        stringValue = EMPTY;
+        tokenLength = 0;
+        stringValue = null;
 
         switch (ch) {
             case '[':
@@ -351,7 +418,7 @@ public class PRTokeniser {
                 break;
             case '/':
             {
-                outBuf.setLength(0);
+                tokenLength = 0;
                 type = TokenType.NAME;
                 while (true) {
                     ch = file.read();
@@ -360,7 +427,7 @@ public class PRTokeniser {
                     if (ch == '#') {
                         ch = (getHex(file.read()) << 4) + getHex(file.read());
                     }
-                    outBuf.append((char)ch);
+                    append(ch);
                 }
                 backOnePosition(ch);
                 break;
@@ -378,7 +445,7 @@ public class PRTokeniser {
                     type = TokenType.START_DIC;
                     break;
                 }
-                outBuf.setLength(0);
+                tokenLength = 0;
                 type = TokenType.STRING;
                 hexString = true;
                 int v2 = 0;
@@ -395,14 +462,14 @@ public class PRTokeniser {
                         v2 = file.read();
                     if (v2 == '>') {
                         ch = v1 << 4;
-                        outBuf.append((char)ch);
+                        append(ch);
                         break;
                     }
                     v2 = getHex(v2);
                     if (v2 < 0)
                         break;
                     ch = (v1 << 4) + v2;
-                    outBuf.append((char)ch);
+                    append(ch);
                     v1 = file.read();
                 }
                 if (v1 < 0 || v2 < 0)
@@ -417,7 +484,7 @@ public class PRTokeniser {
                 break;
             case '(':
             {
-                outBuf.setLength(0);
+                tokenLength = 0;
                 type = TokenType.STRING;
                 hexString = false;
                 int nesting = 0;
@@ -503,7 +570,7 @@ public class PRTokeniser {
                     }
                     if (nesting == -1)
                         break;
-                    outBuf.append((char)ch);
+                    append(ch);
                 }
                 if (ch == -1)
                     throwError(MessageLocalization.getComposedMessage("error.reading.string"));
@@ -511,7 +578,7 @@ public class PRTokeniser {
             }
             default:
             {
-                outBuf.setLength(0);
+                tokenLength = 0;
                 if (ch == '-' || ch == '+' || ch == '.' || (ch >= '0' && ch <= '9')) {
                     type = TokenType.NUMBER;
                     boolean isReal = false;
@@ -522,10 +589,10 @@ public class PRTokeniser {
                             ++numberOfMinuses;
                             ch = file.read();
                         } while (ch == '-');
-                        outBuf.append('-');
+                        append('-');
                     }
                     else {
-                        outBuf.append((char)ch);
+                        append(ch);
                         // We don't need to check if the number is real over here
                         // as we need to know that fact only in case if there are any minuses.
                         ch = file.read();
@@ -533,20 +600,20 @@ public class PRTokeniser {
                     while (ch != -1 && ((ch >= '0' && ch <= '9') || ch == '.')) {
                         if (ch == '.')
                             isReal = true;
-                        outBuf.append((char)ch);
+                        append(ch);
                         ch = file.read();
                     }
                     if (numberOfMinuses > 1 && !isReal) {
                         // Numbers of integer type and with more than one minus before them
                         // are interpreted by Acrobat as zero.
-                        outBuf.setLength(0);
-                        outBuf.append('0');
+                        tokenLength = 0;
+                        append('0');
                     }
                 }
                 else {
                     type = TokenType.OTHER;
                     do {
-                        outBuf.append((char)ch);
+                        append(ch);
                         ch = file.read();
                     } while (!delims[ch + 1]);
                 }
@@ -555,17 +622,54 @@ public class PRTokeniser {
                 break;
             }
         }
-        if (outBuf != null)
-            stringValue = outBuf.toString();
         return true;
     }
     
     public long longValue() {
-        return Long.parseLong(stringValue);
+        return Long.parseLong(getStringValue());
     }
     
     public int intValue() {
-        return Integer.parseInt(stringValue);
+        return Integer.parseInt(getStringValue());
+    }
+
+    /**
+     * Gets the value of the current token as a <CODE>double</CODE>. The common
+     * forms of numbers are converted without creating a <CODE>String</CODE>.
+     * @return the value of the number
+     * @throws NumberFormatException if the token is not a number
+     * @since 5.5.6
+     */
+    public double doubleValue() {
+        int k = 0;
+        boolean negative = false;
+        if (tokenLength > 0 && (tokenBytes[0] == '-' || tokenBytes[0] == '+')) {
+            negative = tokenBytes[0] == '-';
+            k = 1;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; k < tokenLength; ++k) {
+            int b = tokenBytes[k];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + b - '0';
+                ++digits;
+                if (decimals >= 0)
+                    ++decimals;
+            }
+            else if (b == '.' && decimals < 0)
+                decimals = 0;
+            else {
+                digits = -1;
+                break;
+            }
+        }
+        // both the mantissa and the power of ten are exact, so the division is correctly rounded
+        if (digits <= 0 || digits > 15 || decimals >= POWERS_OF_TEN.length)
+            return Double.parseDouble(getStringValue());
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
     }
 
     /**
@@ -143,7 +143,8 @@ public class PdfAppearance extends PdfTemplate {
             state.fontDetails = writer.addSimple(bf);
         PdfName psn = stdFieldFontNames.get(bf.getPostscriptFontName());
         if (psn == null) {
-            if (bf.isSubset() && bf.getFontType() == BaseFont.FONT_TYPE_TTUNI)
+            // AcroFields turns subsetting off on the document's FontDetails, never on the shared font
+            if (state.fontDetails.isSubset() && bf.isSubset() && bf.getFontType() == BaseFont.FONT_TYPE_TTUNI)
                 psn = state.fontDetails.getFontName();
             else {
                 psn = new PdfName(bf.getPostscriptFontName());
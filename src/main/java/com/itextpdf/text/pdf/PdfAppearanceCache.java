@@ -0,0 +1,327 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.itextpdf.text.ExceptionConverter;
+import com.itextpdf.text.io.RandomAccessSource;
+
+/**
+ * A cache of generated field appearances that several documents filled from
+ * the same form can share, see {@link AcroFields#setAppearanceCache(PdfAppearanceCache)}.
+ * Only the appearances that don't refer to objects created for a document, that is
+ * the ones drawn with the fonts of the form itself, are kept. They are found by
+ * everything they are built from: the value, the size of the widget, the default
+ * appearance, the border, the flags and the options of the field. The fonts of the
+ * form are identified by their object numbers, and every key starts with the SHA-256
+ * digest of the form file. Documents filled from different forms never get each
+ * other's appearances, even when they share a cache.
+ * <P>
+ * The cache holds the compressed streams up to a maximum number of bytes, the least
+ * recently used appearances are dropped first.
+ * @since 5.5.6
+ */
+public class PdfAppearanceCache {
+
+    /** A compressed appearance stream that doesn't belong to any document. */
+    static final class Appearance {
+        private final byte bytes[];
+        private final PdfDictionary dictionary;
+        private final int topFirst;
+
+        Appearance(final byte bytes[], final PdfDictionary dictionary, final int topFirst) {
+            this.bytes = bytes;
+            this.dictionary = dictionary;
+            this.topFirst = topFirst;
+        }
+
+        /**
+         * Creates a new stream with the appearance, to be added to a document.
+         * @return a new stream
+         */
+        PdfStream createStream() {
+            PdfStream stream = new PdfStream(bytes);
+            for (PdfName key : dictionary.getKeys()) {
+                if (!PdfName.LENGTH.equals(key))
+                    stream.put(key, dictionary.get(key));
+            }
+            return stream;
+        }
+
+        /**
+         * Gets the first visible item of a list box.
+         * @return the first visible item
+         */
+        int getTopFirst() {
+            return topFirst;
+        }
+    }
+
+    private final long maxBytes;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private final LinkedHashMap<String, Appearance> appearances = new LinkedHashMap<String, Appearance>(16, 0.75f, true);
+
+    /**
+     * Creates a cache.
+     * @param maxBytes the maximum number of bytes of the appearances kept in the cache
+     */
+    public PdfAppearanceCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the maximum number of bytes of the appearances kept in the cache.
+     * @return the maximum number of bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Gets the number of bytes of the appearances in the cache.
+     * @return the number of bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the number of appearances in the cache.
+     * @return the number of appearances
+     */
+    public synchronized int size() {
+        return appearances.size();
+    }
+
+    /**
+     * Gets the number of appearances that were found in the cache.
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of appearances that had to be built.
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Removes all the appearances.
+     */
+    public synchronized void clear() {
+        appearances.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Gets an appearance.
+     * @param key the key built by <CODE>AcroFields</CODE>
+     * @return the appearance or <CODE>null</CODE>
+     */
+    synchronized Appearance get(final String key) {
+        Appearance appearance = appearances.get(key);
+        if (appearance == null)
+            ++misses;
+        else
+            ++hits;
+        return appearance;
+    }
+
+    /**
+     * Adds an appearance if it doesn't refer to objects of the document it was written to.
+     * @param key the key built by <CODE>AcroFields</CODE>
+     * @param stream the appearance stream as written to the document, or <CODE>null</CODE>
+     * @param topFirst the first visible item of a list box
+     */
+    void put(final String key, final PdfStream stream, final int topFirst) {
+        if (stream == null || containsDocumentReference(stream))
+            return;
+        stream.completeCompression();
+        byte content[] = stream.streamBytes == null ? stream.getBytes() : stream.streamBytes.toByteArray();
+        PdfDictionary dictionary = new PdfDictionary();
+        dictionary.putAll(stream);
+        Appearance appearance = new Appearance(content, dictionary, topFirst);
+        long size = size(key, appearance);
+        if (size > maxBytes)
+            return;
+        synchronized (this) {
+            Appearance old = appearances.put(key, appearance);
+            if (old != null)
+                bytes -= size(key, old);
+            bytes += size;
+            Iterator<Map.Entry<String, Appearance>> it = appearances.entrySet().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Appearance> entry = it.next();
+                bytes -= size(entry.getKey(), entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    private static long size(final String key, final Appearance appearance) {
+        return 2L * key.length() + appearance.bytes.length;
+    }
+
+    /**
+     * Checks if an object refers to objects created by a writer rather than read
+     * from the original document.
+     * @param obj the object
+     * @return <CODE>true</CODE> if the object can't be copied to another document
+     */
+    private static boolean containsDocumentReference(final PdfObject obj) {
+        if (obj == null)
+            return false;
+        if (obj.isIndirect())
+            return !(obj instanceof PRIndirectReference);
+        if (obj.isArray()) {
+            for (PdfObject item : (PdfArray)obj) {
+                if (containsDocumentReference(item))
+                    return true;
+            }
+        }
+        else if (obj.isDictionary() || obj.isStream()) {
+            PdfDictionary dic = (PdfDictionary)obj;
+            for (PdfName key : dic.getKeys()) {
+                if (containsDocumentReference(dic.get(key)))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Identifies a form by the SHA-256 digest of its file.
+     * @param source the bytes of the form
+     * @return the digest in hexadecimal
+     * @throws IOException on error
+     */
+    static String getFormKey(final RandomAccessSource source) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new ExceptionConverter(e);
+        }
+        byte buf[] = new byte[8192];
+        long length = source.length();
+        long position = 0;
+        while (position < length) {
+            int n = source.get(position, buf, 0, (int)Math.min(buf.length, length - position));
+            if (n <= 0)
+                break;
+            md.update(buf, 0, n);
+            position += n;
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : md.digest())
+            key.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+        return key.toString();
+    }
+
+    /**
+     * Appends an object to a key. Indirect objects are identified by their reference,
+     * dictionaries are written with their keys in order.
+     * @param key the key
+     * @param obj the object or <CODE>null</CODE>
+     * @return <CODE>false</CODE> if the object holds a direct stream and can't be part of a key
+     */
+    static boolean appendKey(final StringBuilder key, final PdfObject obj) {
+        if (obj == null) {
+            key.append('-');
+        }
+        else if (obj.isIndirect()) {
+            key.append(obj.toString());
+        }
+        else if (obj.isString()) {
+            String s = ((PdfString)obj).toUnicodeString();
+            key.append('(').append(s.length()).append(':').append(s).append(')');
+        }
+        else if (obj.isArray()) {
+            key.append('[');
+            for (PdfObject item : (PdfArray)obj) {
+                if (!appendKey(key, item))
+                    return false;
+                key.append(' ');
+            }
+            key.append(']');
+        }
+        else if (obj.isDictionary()) {
+            PdfDictionary dic = (PdfDictionary)obj;
+            List<PdfName> keys = new ArrayList<PdfName>(dic.getKeys());
+            Collections.sort(keys);
+            key.append("<<");
+            for (PdfName name : keys) {
+                key.append(name.toString()).append(' ');
+                if (!appendKey(key, dic.get(name)))
+                    return false;
+                key.append(' ');
+            }
+            key.append(">>");
+        }
+        else if (obj.isStream()) {
+            return false;
+        }
+        else {
+            key.append(obj.toString());
+        }
+        return true;
+    }
+}
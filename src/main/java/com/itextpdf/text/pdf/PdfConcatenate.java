@@ -46,6 +46,10 @@ package com.itextpdf.text.pdf;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 
 import com.itextpdf.text.Document;
 import com.itextpdf.text.DocumentException;
@@ -53,12 +57,40 @@ import com.itextpdf.text.DocumentException;
 /**
  * Wrapper class for PdfCopy and PdfSmartCopy.
  * Allows you to concatenate existing PDF documents with much less code.
+ * <P>
+ * Every document is written to the output and freed as soon as its pages
+ * are added, so the memory that is used doesn't grow with the number of
+ * documents that are concatenated, apart from the entries of the page tree,
+ * the cross-reference table and, if bookmarks are kept, the bookmarks.
  */
 public class PdfConcatenate {
+
+	/**
+	 * Receives a notification every time a document was concatenated.
+	 * @since 5.5.6
+	 */
+	public interface ProgressListener {
+		/**
+		 * Called after the pages of a document were added and the reader was freed.
+		 * The totals so far are available from <CODE>concatenate</CODE>.
+		 * @param concatenate	the concatenation
+		 * @param pages	the number of pages that were added from the document
+		 */
+		void documentAdded(PdfConcatenate concatenate, int pages);
+	}
+
 	/** The Document object for PdfCopy. */
 	protected Document document;
 	/** The actual PdfWriter */
 	protected PdfCopy copy;
+	/** The bookmarks of the concatenated documents, <CODE>null</CODE> if they aren't kept. */
+	protected List<HashMap<String, Object>> bookmarks;
+	/** The listener that is notified after every document. */
+	protected ProgressListener listener;
+	/** The number of documents that were added. */
+	protected int numberOfDocuments;
+	/** The number of pages that were added. */
+	protected int numberOfPages;
 	
 	/**
 	 * Creates an instance of the concatenation class.
@@ -91,13 +123,95 @@ public class PdfConcatenate {
 	public int addPages(PdfReader reader) throws DocumentException, IOException {
 		open();
 		int n = reader. getNumberOfPages();
+		if (bookmarks != null) {
+			reader.consolidateNamedDestinations();
+			List<HashMap<String, Object>> bm = SimpleBookmark.getBookmark(reader);
+			if (bm != null) {
+				SimpleBookmark.shiftPageNumbers(bm, numberOfPages, null);
+				bookmarks.addAll(bm);
+			}
+		}
 	    for (int i = 1; i <= n; i++) {
 	        copy.addPage(copy.getImportedPage(reader, i));
+	        reader.releasePage(i);
 	    }
 	    copy.freeReader(reader);
 	    reader.close();
+	    ++numberOfDocuments;
+	    numberOfPages += n;
+	    if (listener != null)
+	    	listener.documentAdded(this, n);
 	    return n;
 	}
+
+	/**
+	 * Adds the pages of all the documents of an iterator. Every reader is
+	 * freed and closed before the next one is requested, so the iterator
+	 * can open the documents one by one.
+	 * @param readers	the readers for the existing PDF documents
+	 * @return			the number of pages that were added
+	 * @throws DocumentException
+	 * @throws IOException
+	 * @since 5.5.6
+	 */
+	public int addPages(Iterator<PdfReader> readers) throws DocumentException, IOException {
+		int n = 0;
+		while (readers.hasNext()) {
+			n += addPages(readers.next());
+		}
+		return n;
+	}
+
+	/**
+	 * Keeps the bookmarks of the documents that are added. The named destinations
+	 * of every document are replaced by explicit destinations, so that only the
+	 * bookmarks have to be kept until the concatenated document is closed.
+	 * @param keepBookmarks	<CODE>true</CODE> to keep the bookmarks of the documents that are added next
+	 * @since 5.5.6
+	 */
+	public void setKeepBookmarks(boolean keepBookmarks) {
+		if (!keepBookmarks)
+			bookmarks = null;
+		else if (bookmarks == null)
+			bookmarks = new ArrayList<HashMap<String, Object>>();
+	}
+
+	/**
+	 * Sets the listener that is notified every time a document was added.
+	 * @param listener	the listener or <CODE>null</CODE>
+	 * @since 5.5.6
+	 */
+	public void setProgressListener(ProgressListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Gets the number of documents that were added.
+	 * @return	the number of documents
+	 * @since 5.5.6
+	 */
+	public int getNumberOfDocuments() {
+		return numberOfDocuments;
+	}
+
+	/**
+	 * Gets the number of pages that were added.
+	 * @return	the number of pages
+	 * @since 5.5.6
+	 */
+	public int getNumberOfPages() {
+		return numberOfPages;
+	}
+
+	/**
+	 * Gets the approximate number of bytes that were written so far.
+	 * @return	the size of the document without the objects that aren't written yet
+	 * @see PdfWriter#getCurrentDocumentSize()
+	 * @since 5.5.6
+	 */
+	public long getCurrentDocumentSize() {
+		return copy.getCurrentDocumentSize();
+	}
 	
 	/**
 	 * Gets the PdfCopy instance so that you can add bookmarks or change preferences before you close PdfConcatenate.
@@ -120,6 +234,8 @@ public class PdfConcatenate {
 	 * We've finished writing the concatenated document.
 	 */
 	public void close() {
+		if (bookmarks != null && !bookmarks.isEmpty())
+			copy.setOutlines(bookmarks);
 		document.close();
 	}
 }
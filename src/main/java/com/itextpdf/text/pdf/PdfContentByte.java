@@ -927,6 +927,84 @@ public class PdfContentByte {
         content.append(x).append(' ').append(y).append(" l").append_i(separator);
     }
 
+    /**
+     * Appends a polyline to the path: the current point is moved to the first point
+     * and straight line segments are appended to the following points. This gives the
+     * same result as calling {@link #moveTo(float, float)} and {@link #lineTo(float, float)}
+     * for every point.
+     *
+     * @param       coordinates     the x and y coordinates of the points, in pairs
+     * @since 5.5.6
+     */
+
+    public void polyline(final float coordinates[]) {
+        checkCoordinates(coordinates.length);
+        for (int k = 0; k < coordinates.length; k += 2) {
+            content.append(coordinates[k]).append_i(' ').append(coordinates[k + 1]).append_i(' ').append_i(k == 0 ? 'm' : 'l').append_i(separator);
+        }
+    }
+
+    /**
+     * Appends a polyline to the path: the current point is moved to the first point
+     * and straight line segments are appended to the following points. This gives the
+     * same result as calling {@link #moveTo(double, double)} and {@link #lineTo(double, double)}
+     * for every point.
+     *
+     * @param       coordinates     the x and y coordinates of the points, in pairs
+     * @since 5.5.6
+     */
+
+    public void polyline(final double coordinates[]) {
+        checkCoordinates(coordinates.length);
+        for (int k = 0; k < coordinates.length; k += 2) {
+            content.append(coordinates[k]).append_i(' ').append(coordinates[k + 1]).append_i(' ').append_i(k == 0 ? 'm' : 'l').append_i(separator);
+        }
+    }
+
+    /**
+     * Appends a closed polygon to the path, that is a {@link #polyline(float[])}
+     * followed by {@link #closePath()}.
+     *
+     * @param       coordinates     the x and y coordinates of the points, in pairs
+     * @since 5.5.6
+     */
+
+    public void polygon(final float coordinates[]) {
+        polyline(coordinates);
+        if (coordinates.length > 0)
+            content.append_i('h').append_i(separator);
+    }
+
+    /**
+     * Appends a closed polygon to the path, that is a {@link #polyline(double[])}
+     * followed by {@link #closePath()}.
+     *
+     * @param       coordinates     the x and y coordinates of the points, in pairs
+     * @since 5.5.6
+     */
+
+    public void polygon(final double coordinates[]) {
+        polyline(coordinates);
+        if (coordinates.length > 0)
+            content.append_i('h').append_i(separator);
+    }
+
+    /**
+     * Checks that a path can be constructed from the given number of coordinates.
+     * @param length the number of coordinates
+     */
+    private void checkCoordinates(final int length) {
+        if (length % 2 != 0)
+            throw new IllegalArgumentException(MessageLocalization.getComposedMessage("the.number.of.coordinates.1.is.not.even", length));
+    	if (inText) {
+            if (isTagged()) {
+                endText();
+            } else {
+    		throw new IllegalPdfSyntaxException(MessageLocalization.getComposedMessage("path.construction.operator.inside.text.object"));
+    	}
+    	}
+    }
+
     /**
      * Appends a B&#xea;zier curve to the path, starting from the current point.
      *
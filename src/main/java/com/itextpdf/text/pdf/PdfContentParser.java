@@ -63,6 +63,14 @@ public class PdfContentParser {
      * Holds value of property tokeniser.
      */
     private PRTokeniser tokeniser;
+    /**
+     * The names already read, they are shared between the commands.
+     */
+    private final TokenCache names = new TokenCache();
+    /**
+     * The operators already read, they are shared between the commands.
+     */
+    private final TokenCache operators = new TokenCache();
 
     /**
      * Creates a new instance of PdfContentParser
@@ -127,7 +135,7 @@ public class PdfContentParser {
                     continue;
                 if (tokeniser.getTokenType() != TokenType.NAME)
                     throw new IOException(MessageLocalization.getComposedMessage("dictionary.key.1.is.not.a.name", tokeniser.getStringValue()));
-                PdfName name = new PdfName(tokeniser.getStringValue(), false);
+                PdfName name = readName();
                 PdfObject obj = readPRObject();
                 int type = obj.type();
                 if (-type == TokenType.END_DIC.ordinal())
@@ -178,16 +186,63 @@ public class PdfContentParser {
                 PdfString str = new PdfString(tokeniser.getStringValue(), null).setHexWriting(tokeniser.isHexString());
                 return str;
             case NAME:
-                return new PdfName(tokeniser.getStringValue(), false);
+                return readName();
             case NUMBER:
-                return new PdfNumber(tokeniser.getStringValue());
+                return readNumber();
             case OTHER:
-                return new PdfLiteral(COMMAND_TYPE, tokeniser.getStringValue());
+                return readOperator();
             default:
                 return new PdfLiteral(-type.ordinal(), tokeniser.getStringValue());
         }
     }
 
+    /**
+     * Gets the name of the current token, reusing the instance of a previous equal name.
+     * The instance comes from the {@link PdfNameTable} if it is enabled.
+     * @return the name
+     */
+    private PdfName readName() {
+        if (PdfNameTable.isEnabled())
+            return PdfNameTable.get(tokeniser.getTokenBytes(), 0, tokeniser.getTokenLength());
+        PdfObject name = names.get(tokeniser);
+        if (name == null) {
+            name = new PdfName(tokeniser.getStringValue(), false);
+            names.put(tokeniser, name);
+        }
+        return (PdfName)name;
+    }
+
+    /**
+     * Gets the operator of the current token, reusing the instance of a previous equal operator.
+     * @return the operator
+     */
+    private PdfLiteral readOperator() {
+        PdfObject operator = operators.get(tokeniser);
+        if (operator == null) {
+            operator = new PdfLiteral(COMMAND_TYPE, tokeniser.getStringValue());
+            operators.put(tokeniser, operator);
+        }
+        return (PdfLiteral)operator;
+    }
+
+    /**
+     * Gets the number of the current token without going through a <CODE>String</CODE>.
+     * @return the number
+     */
+    private PdfNumber readNumber() {
+        double value;
+        try {
+            value = tokeniser.doubleValue();
+        }
+        catch (NumberFormatException e) {
+            // let PdfNumber report the error
+            return new PdfNumber(tokeniser.getStringValue());
+        }
+        byte[] content = new byte[tokeniser.getTokenLength()];
+        System.arraycopy(tokeniser.getTokenBytes(), 0, content, 0, content.length);
+        return new PdfNumber(value, content);
+    }
+
     /**
      * Reads the next token skipping over the comments.
      * @return <CODE>true</CODE> if a token was read, <CODE>false</CODE> if the end of content was reached
@@ -201,4 +256,51 @@ public class PdfContentParser {
         }
         return false;
     }
+
+    /**
+     * A small direct mapped cache of the objects created from the tokens. A slot
+     * is overwritten when another token falls in it.
+     */
+    private static final class TokenCache {
+        /** The number of slots, a power of two. */
+        private static final int SIZE = 512;
+        /** Longer tokens are not cached. */
+        private static final int MAX_LENGTH = 64;
+        private final byte[][] keys = new byte[SIZE][];
+        private final PdfObject[] values = new PdfObject[SIZE];
+
+        private static int slot(byte[] b, int length) {
+            int h = length;
+            for (int k = 0; k < length; ++k)
+                h = 31 * h + b[k];
+            return (h ^ (h >>> 9)) & (SIZE - 1);
+        }
+
+        PdfObject get(PRTokeniser tokeniser) {
+            int length = tokeniser.getTokenLength();
+            if (length > MAX_LENGTH)
+                return null;
+            byte[] b = tokeniser.getTokenBytes();
+            int slot = slot(b, length);
+            byte[] key = keys[slot];
+            if (key == null || key.length != length)
+                return null;
+            for (int k = 0; k < length; ++k) {
+                if (key[k] != b[k])
+                    return null;
+            }
+            return values[slot];
+        }
+
+        void put(PRTokeniser tokeniser, PdfObject value) {
+            int length = tokeniser.getTokenLength();
+            if (length > MAX_LENGTH)
+                return;
+            byte[] key = new byte[length];
+            System.arraycopy(tokeniser.getTokenBytes(), 0, key, 0, length);
+            int slot = slot(key, length);
+            keys[slot] = key;
+            values[slot] = value;
+        }
+    }
 }
@@ -46,6 +46,7 @@ package com.itextpdf.text.pdf;
 
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 
@@ -79,18 +80,24 @@ class PdfContents extends PdfStream {
     
     PdfContents(PdfContentByte under, PdfContentByte content, PdfContentByte text, PdfContentByte secondContent, Rectangle page) throws BadPdfFormatException {
         super();
+        PdfWriter writer = null;
+        ExecutorService executor = null;
         try {
             OutputStream out = null;
             Deflater deflater = null;
             streamBytes = new ByteArrayOutputStream();
-            if (Document.compress)
+            if (text != null)
+                writer = text.getPdfWriter();
+            else if (content != null)
+                writer = content.getPdfWriter();
+            if (writer != null)
+                executor = writer.getCompressionExecutor();
+            if (Document.compress && executor == null)
             {
                 compressed = true;
-                if (text != null)
-                    compressionLevel = text.getPdfWriter().getCompressionLevel();
-                else if (content != null)
-                    compressionLevel = content.getPdfWriter().getCompressionLevel();
-                deflater = new Deflater(compressionLevel);
+                if (writer != null)
+                    compressionLevel = writer.getCompressionLevel();
+                deflater = BufferPool.borrowDeflater(compressionLevel);
                 out = new DeflaterOutputStream(streamBytes, deflater);
             }
             else
@@ -139,7 +146,7 @@ class PdfContents extends PdfStream {
             }
             out.close();
             if (deflater != null) {
-                deflater.end();
+                BufferPool.releaseDeflater(deflater, compressionLevel);
             }
         }
         catch (Exception e) {
@@ -148,5 +155,7 @@ class PdfContents extends PdfStream {
         put(PdfName.LENGTH, new PdfNumber(streamBytes.size()));
         if (compressed)
             put(PdfName.FILTER, PdfName.FLATEDECODE);
+        else if (executor != null)
+            flateCompress(writer.getCompressionLevel(), executor);
     }
 }
\ No newline at end of file
@@ -1156,11 +1156,10 @@ public class PdfCopy extends PdfWriter {
             else
                 inactives.add(entry.getKey());
         }
-        ArrayList<PdfBody.PdfCrossReference> pdfCrossReferences = new ArrayList<PdfBody.PdfCrossReference>(body.xrefs);
-        for (PdfBody.PdfCrossReference cr : pdfCrossReferences) {
-            RefKey key = new RefKey(cr.getRefnum(), 0);
-            if (inactives.contains(key))
-                body.xrefs.remove(cr);
+        for (RefKey key : inactives) {
+            // the cross-reference entries have generation 0
+            if (key.gen == 0)
+                body.removeXref(key.num);
         }
         indirectObjects = null;
     }
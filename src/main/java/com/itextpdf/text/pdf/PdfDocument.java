@@ -1013,6 +1013,12 @@ public class PdfDocument extends Document {
                 mcBlocks = writer.getDirectContent().saveMCBlocks();
             }
             writer.add(page, new PdfContents(writer.getDirectContentUnder(), graphics, !isTagged(writer) ? text : null, writer.getDirectContent(), pageSize));
+            if (!isTagged(writer)) {
+                // the page contents are written, the buffers can be reused for the next page
+                graphics.getInternalBuffer().release();
+                if (text != null)
+                    text.getInternalBuffer().release();
+            }
             // we initialize the new page
             initPage();
 
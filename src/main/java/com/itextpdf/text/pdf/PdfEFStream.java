@@ -131,7 +131,7 @@ public class PdfEFStream extends PdfStream {
                 fout = ose = crypto.getEncryptionStream(fout);
             Deflater deflater = null;
             if (compressed) {
-                deflater = new Deflater(compressionLevel);
+                deflater = BufferPool.borrowDeflater(compressionLevel);
                 fout = def = new DeflaterOutputStream(fout, deflater, 0x8000);
             }
             
@@ -145,7 +145,7 @@ public class PdfEFStream extends PdfStream {
             }
             if (def != null) {
                 def.finish();
-                deflater.end();
+                BufferPool.releaseDeflater(deflater, compressionLevel);
             }
             if (ose != null)
                 ose.finish();
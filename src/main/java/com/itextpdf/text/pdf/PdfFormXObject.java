@@ -91,7 +91,8 @@ public class PdfFormXObject extends PdfStream {
         if (template.getAdditional() != null) {
         	putAll(template.getAdditional());
         }
-        flateCompress(compressionLevel);
+        PdfWriter writer = template.getPdfWriter();
+        flateCompress(compressionLevel, writer == null ? null : writer.getCompressionExecutor());
     }
     
 }
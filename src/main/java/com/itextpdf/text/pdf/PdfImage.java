@@ -48,6 +48,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
 import com.itextpdf.text.error_messages.MessageLocalization;
 
 import com.itextpdf.text.Image;
@@ -77,6 +78,20 @@ public class PdfImage extends PdfStream {
      */
     
     public PdfImage(Image image, String name, PdfIndirectReference maskRef) throws BadPdfFormatException {
+        this(image, name, maskRef, null);
+    }
+
+    /**
+     * Constructs a <CODE>PdfImage</CODE>-object, compressing the image data on an executor.
+     *
+     * @param image the <CODE>Image</CODE>-object
+     * @param name the <CODE>PdfName</CODE> for this image
+     * @param maskRef the reference to the image mask, or <CODE>null</CODE>
+     * @param executor the executor compressing the image data, or <CODE>null</CODE> to compress on the calling thread
+     * @throws BadPdfFormatException on error
+     * @since 5.5.6
+     */
+    PdfImage(Image image, String name, PdfIndirectReference maskRef, ExecutorService executor) throws BadPdfFormatException {
         super();
         this.image = image;
         if (name == null) 
@@ -167,7 +182,7 @@ public class PdfImage extends PdfStream {
                     if (image.isDeflated())
                         put(PdfName.FILTER, PdfName.FLATEDECODE);
                     else {
-                        flateCompress(image.getCompressionLevel());
+                        flateCompress(image.getCompressionLevel(), executor);
                     }
                 }
                 return;
@@ -251,7 +266,7 @@ public class PdfImage extends PdfStream {
                     throw new BadPdfFormatException(MessageLocalization.getComposedMessage("1.is.an.unknown.image.format", errorID));
             }
             if (image.getCompressionLevel() > NO_COMPRESSION)
-            	flateCompress(image.getCompressionLevel());
+            	flateCompress(image.getCompressionLevel(), executor);
             put(PdfName.LENGTH, new PdfNumber(streamBytes.size()));
         }
         catch(IOException ioe) {
@@ -269,6 +284,42 @@ public class PdfImage extends PdfStream {
         }
     }
     
+    /**
+     * Constructs a <CODE>PdfImage</CODE>-object with the dictionary and the encoded data of
+     * another one, the encoded data is shared. The reference to the mask of the other image
+     * isn't copied.
+     *
+     * @param source the image to copy, its compression must be complete
+     * @param image the <CODE>Image</CODE>-object, may be <CODE>null</CODE> if <CODE>maskRef</CODE> is <CODE>null</CODE>
+     * @param name the <CODE>PdfName</CODE> for this image
+     * @param maskRef the reference to the image mask, or <CODE>null</CODE>
+     * @since 5.5.6
+     */
+    PdfImage(PdfImage source, Image image, String name, PdfIndirectReference maskRef) {
+        super();
+        this.image = image;
+        this.name = name == null ? source.name : new PdfName(name);
+        for (PdfName key : source.getKeys()) {
+            PdfObject value = source.get(key);
+            if ((PdfName.MASK.equals(key) || PdfName.SMASK.equals(key)) && value.isIndirect())
+                continue;
+            // the color space may be changed for an ICC profile
+            if (value.isArray())
+                value = new PdfArray((PdfArray)value);
+            put(key, value);
+        }
+        if (maskRef != null) {
+            if (image.isSmask())
+                put(PdfName.SMASK, maskRef);
+            else
+                put(PdfName.MASK, maskRef);
+        }
+        compressed = source.compressed;
+        compressionLevel = source.compressionLevel;
+        streamBytes = source.streamBytes;
+        bytes = source.bytes;
+    }
+
     /**
      * Returns the <CODE>PdfName</CODE> of the image.
      *
@@ -0,0 +1,301 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.itextpdf.text.ExceptionConverter;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.ImgJBIG2;
+
+/**
+ * A cache of encoded images that several {@link PdfWriter}s can share, see
+ * {@link PdfWriter#setImageCache(PdfImageCache)}. The images are found by the
+ * hash of their content, so an image that is loaded again for every document
+ * is only encoded and compressed once. The cache holds the encoded streams up
+ * to a maximum number of bytes, the least recently used images are dropped first.
+ * <P>
+ * The content is identified by its SHA-256 digest, so an image crafted to
+ * collide with the image of another document can't take its place.
+ * @since 5.5.6
+ */
+public class PdfImageCache {
+
+    /** The content hash of an image. */
+    static final class Key {
+        private final byte digest[];
+        private final int hash;
+
+        Key(final byte digest[]) {
+            this.digest = digest;
+            hash = (digest[0] & 0xff) << 24 | (digest[1] & 0xff) << 16 | (digest[2] & 0xff) << 8 | digest[3] & 0xff;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            return Arrays.equals(digest, ((Key)obj).digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final long maxBytes;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private final LinkedHashMap<Key, PdfImage> images = new LinkedHashMap<Key, PdfImage>(16, 0.75f, true);
+
+    /**
+     * Creates a cache.
+     * @param maxBytes the maximum number of bytes of the encoded images kept in the cache
+     */
+    public PdfImageCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the maximum number of bytes of the encoded images kept in the cache.
+     * @return the maximum number of bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Gets the number of bytes of the encoded images in the cache.
+     * @return the number of bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the number of images in the cache.
+     * @return the number of images
+     */
+    public synchronized int size() {
+        return images.size();
+    }
+
+    /**
+     * Gets the number of images that were found in the cache.
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of images that had to be encoded.
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Removes all the images.
+     */
+    public synchronized void clear() {
+        images.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Gets an encoded image.
+     * @param key the content hash
+     * @return the encoded image or <CODE>null</CODE>
+     */
+    synchronized PdfImage get(final Key key) {
+        PdfImage image = images.get(key);
+        if (image == null)
+            ++misses;
+        else
+            ++hits;
+        return image;
+    }
+
+    /**
+     * Adds an encoded image. The image must not be changed afterwards.
+     * @param key the content hash
+     * @param image the encoded image, without any reference to the objects of a document
+     */
+    synchronized void put(final Key key, final PdfImage image) {
+        long size = size(image);
+        if (size > maxBytes)
+            return;
+        PdfImage old = images.put(key, image);
+        if (old != null)
+            bytes -= size(old);
+        bytes += size;
+        Iterator<PdfImage> it = images.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= size(it.next());
+            it.remove();
+        }
+    }
+
+    private static long size(final PdfImage image) {
+        if (image.streamBytes != null)
+            return image.streamBytes.size();
+        return image.bytes == null ? 0 : image.bytes.length;
+    }
+
+    /**
+     * Computes the content hash of an image: its data, its mask, its color space
+     * and everything else that goes into its <CODE>PdfImage</CODE>.
+     * @param image the image
+     * @return the content hash, or <CODE>null</CODE> if the image can't be shared,
+     * for instance because its data is read from a URL or it belongs to a layer
+     */
+    static Key keyOf(final Image image) {
+        if (image.isImgTemplate() || image.getRawData() == null || image.getLayer() != null
+                || image.getDirectReference() != null)
+            return null;
+        PdfDictionary additional = image.getAdditional();
+        if (additional != null && containsReference(additional))
+            return null;
+        Key maskKey = null;
+        Image mask = image.getImageMask();
+        if (mask != null) {
+            maskKey = keyOf(mask);
+            if (maskKey == null)
+                return null;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new ExceptionConverter(e);
+        }
+        ByteBuffer buf = new ByteBuffer();
+        buf.append(image.getClass().getName()).append(' ')
+            .append(image.type()).append(' ')
+            .append(Float.floatToIntBits(image.getWidth())).append(' ')
+            .append(Float.floatToIntBits(image.getHeight())).append(' ')
+            .append(image.getBpc()).append(' ')
+            .append(image.getColorspace()).append(' ')
+            .append(image.getCompressionLevel()).append(' ')
+            .append(image.getColorTransform()).append(' ')
+            .append(image.isMask() ? 'm' : '-')
+            .append(image.isInverted() ? 'i' : '-')
+            .append(image.isInterpolation() ? 'p' : '-')
+            .append(image.isSmask() ? 's' : '-')
+            .append(image.isDeflated() ? 'd' : '-')
+            .append(' ');
+        int transparency[] = image.getTransparency();
+        if (transparency != null)
+            buf.append(Arrays.toString(transparency));
+        buf.append(' ');
+        if (maskKey != null)
+            buf.append(maskKey.digest);
+        buf.append(' ');
+        if (additional != null) {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                additional.toPdf(null, out);
+                buf.append(out.toByteArray());
+            }
+            catch (IOException e) {
+                throw new ExceptionConverter(e);
+            }
+        }
+        digest.update(buf.getBuffer(), 0, buf.size());
+        update(digest, image.getRawData());
+        if (image.hasICCProfile())
+            update(digest, image.getICCProfile().getData());
+        if (image instanceof ImgJBIG2)
+            update(digest, ((ImgJBIG2)image).getGlobalBytes());
+        return new Key(digest.digest());
+    }
+
+    /**
+     * Adds a byte array preceded by its length, so that the fields can't be confused.
+     */
+    private static void update(final MessageDigest digest, final byte b[]) {
+        int length = b == null ? -1 : b.length;
+        digest.update((byte)(length >>> 24));
+        digest.update((byte)(length >>> 16));
+        digest.update((byte)(length >>> 8));
+        digest.update((byte)length);
+        if (b != null)
+            digest.update(b);
+    }
+
+    private static boolean containsReference(final PdfObject obj) {
+        if (obj == null)
+            return false;
+        if (obj.isIndirect())
+            return true;
+        if (obj.isDictionary()) {
+            PdfDictionary dic = (PdfDictionary)obj;
+            for (PdfName key : dic.getKeys()) {
+                if (containsReference(dic.get(key)))
+                    return true;
+            }
+        }
+        else if (obj.isArray()) {
+            PdfArray array = (PdfArray)obj;
+            for (int k = 0; k < array.size(); ++k) {
+                if (containsReference(array.getPdfObject(k)))
+                    return true;
+            }
+        }
+        return false;
+    }
+}
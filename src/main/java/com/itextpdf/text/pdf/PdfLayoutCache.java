@@ -0,0 +1,268 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import com.itextpdf.text.Chunk;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Phrase;
+
+/**
+ * A cache of the heights of table cells that several tables and documents can
+ * share, see {@link PdfPTable#setLayoutCache(PdfLayoutCache)} and
+ * {@link PdfPCell#setLayoutCache(PdfLayoutCache)}. A cell is measured by laying
+ * out its content before the table is written, reports that repeat the same
+ * cells thousands of times only measure each of them once.
+ * <P>
+ * Only the cells in text mode, the ones made from a <CODE>Phrase</CODE> without
+ * images, are cached. They are found by everything their height is computed
+ * from: the text, the fonts and the attributes of the chunks, the settings of
+ * the column and the position, size and padding of the cell, so a cached height
+ * is exactly the height that would be measured. The keys only hold values: the
+ * fonts are identified by serial numbers that don't keep them reachable, the
+ * attributes that only change how the text is drawn are left out, and the cells
+ * with links, tags, tabs, separators, split characters or hyphenation are not
+ * cached. The content must not be changed after a cell was measured. The least
+ * recently used heights are dropped first.
+ * @since 5.5.6
+ */
+public class PdfLayoutCache {
+
+    /** Everything the height of a cell is computed from. */
+    static final class Key {
+        private final Object parts[];
+        private final int hash;
+
+        Key(final Object parts[]) {
+            this.parts = parts;
+            hash = Arrays.deepHashCode(parts);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key)obj;
+            return hash == other.hash && Arrays.deepEquals(parts, other.parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** The attributes that change the height of a cell. Their values are immutable. */
+    private static final HashSet<String> LAYOUT_ATTRIBUTES = new HashSet<String>(Arrays.asList(
+        Chunk.HSCALE, Chunk.LINEHEIGHT, Chunk.CHAR_SPACING, Chunk.WORD_SPACING, Chunk.SUBSUPSCRIPT, Chunk.WHITESPACE));
+
+    /** The attributes that only change how the text is drawn. */
+    private static final HashSet<String> DRAWING_ATTRIBUTES = new HashSet<String>(Arrays.asList(
+        Chunk.COLOR, Chunk.BACKGROUND, Chunk.UNDERLINE, Chunk.TEXTRENDERMODE, Chunk.SKEW, Chunk.ENCODING));
+
+    /** The serial numbers of the fonts in the keys. */
+    private static final WeakHashMap<BaseFont, Long> fontIds = new WeakHashMap<BaseFont, Long>();
+    private static long nextFontId;
+
+    private final int maxEntries;
+    private long hits;
+    private long misses;
+    private final LinkedHashMap<Key, Float> heights = new LinkedHashMap<Key, Float>(16, 0.75f, true);
+
+    /**
+     * Creates a cache.
+     * @param maxEntries the maximum number of cells kept in the cache
+     */
+    public PdfLayoutCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Gets the maximum number of cells kept in the cache.
+     * @return the maximum number of cells
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Gets the number of cells in the cache.
+     * @return the number of cells
+     */
+    public synchronized int size() {
+        return heights.size();
+    }
+
+    /**
+     * Gets the number of cells that were found in the cache.
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of cells that had to be measured.
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Removes all the cells.
+     */
+    public synchronized void clear() {
+        heights.clear();
+    }
+
+    /**
+     * Gets the bottom of a measured cell.
+     * @param key the cell
+     * @return the bottom of the cell or <CODE>null</CODE>
+     */
+    synchronized Float get(final Key key) {
+        Float bottom = heights.get(key);
+        if (bottom == null)
+            ++misses;
+        else
+            ++hits;
+        return bottom;
+    }
+
+    /**
+     * Adds the bottom of a measured cell.
+     * @param key the cell
+     * @param bottom the bottom of the cell
+     */
+    synchronized void put(final Key key, final float bottom) {
+        heights.put(key, Float.valueOf(bottom));
+        Iterator<Float> it = heights.values().iterator();
+        while (heights.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Gets the serial number of a font. A number is never given to another font,
+     * even after its font was garbage collected.
+     * @param bf the font or <CODE>null</CODE>
+     * @return the serial number or <CODE>null</CODE>
+     */
+    private static synchronized Long getFontId(final BaseFont bf) {
+        if (bf == null)
+            return null;
+        Long id = fontIds.get(bf);
+        if (id == null) {
+            id = Long.valueOf(nextFontId++);
+            fontIds.put(bf, id);
+        }
+        return id;
+    }
+
+    /**
+     * Creates the key of a cell that is measured from its column.
+     * @param cell the cell
+     * @param pivoted <CODE>true</CODE> if the cell is rotated by 90 or 270 degrees
+     * @return the key or <CODE>null</CODE> if the cell can't be cached
+     */
+    static Key createKey(final PdfPCell cell, final boolean pivoted) {
+        if (cell.hasCalculatedHeight())
+            return null;
+        ColumnText ct = cell.getColumn();
+        // only the text that was never laid out
+        Phrase phrase = ct.waitPhrase;
+        if (ct.composite || ct.bidiLine != null || phrase == null)
+            return null;
+        ArrayList<Object> parts = new ArrayList<Object>();
+        parts.add(Boolean.valueOf(pivoted));
+        parts.add(Boolean.valueOf(cell.isNoWrap()));
+        parts.add(Boolean.valueOf(cell.isUseDescender()));
+        parts.add(new float[]{cell.getLeft(), cell.getRight(), cell.getTop(),
+            cell.getEffectivePaddingLeft(), cell.getEffectivePaddingRight(),
+            cell.getEffectivePaddingTop(), cell.getEffectivePaddingBottom(),
+            ct.getLeading(), ct.getMultipliedLeading(), ct.getIndent(), ct.getFollowingIndent(),
+            ct.getRightIndent(), ct.getExtraParagraphSpace(), ct.getSpaceCharRatio(), ct.getFilledWidth()});
+        parts.add(new int[]{ct.getAlignment(), ct.getRunDirection(), ct.getArabicOptions()});
+        parts.add(Boolean.valueOf(ct.isUseAscender()));
+        parts.add(Boolean.valueOf(ct.isAdjustFirstLine()));
+        // the tab settings of the phrase are only used by the tab chunks, that are never cached
+        for (Chunk chunk : phrase.getChunks()) {
+            Font f = chunk.getFont();
+            parts.add(chunk.getContent());
+            parts.add(getFontId(f.getBaseFont()));
+            parts.add(f.getFamily());
+            parts.add(Float.valueOf(f.getSize()));
+            parts.add(Integer.valueOf(f.getStyle()));
+            HashMap<String, Object> attributes = chunk.getAttributes();
+            ArrayList<Object> attr = new ArrayList<Object>();
+            if (attributes != null) {
+                for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(attributes).entrySet()) {
+                    String name = entry.getKey();
+                    if (DRAWING_ATTRIBUTES.contains(name))
+                        continue;
+                    Object value = entry.getValue();
+                    if (!LAYOUT_ATTRIBUTES.contains(name)
+                        || !(value instanceof Float || value instanceof String || value instanceof Boolean))
+                        return null;
+                    attr.add(name);
+                    attr.add(value);
+                }
+            }
+            parts.add(attr.isEmpty() ? null : attr.toArray());
+        }
+        return new Key(parts.toArray());
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A table of interned {@link PdfName}s shared by all the documents and threads.
+ * <P>
+ * When the table is enabled, {@link PdfReader} and {@link PdfContentParser} look
+ * the names they read up by their bytes, so that a name like /Type or /F1 is only
+ * one instance however many times it is read, and no <CODE>String</CODE> is
+ * created for it. The table starts with the names in {@link PdfName#staticNames},
+ * /Type is then {@link PdfName#TYPE} itself.
+ * <P>
+ * The table is disabled by default. It has a fixed capacity and doesn't lock: once
+ * it is full, a new name replaces a name that falls in the same slot. Names longer
+ * than 127 bytes are never interned.
+ * @since 5.5.6
+ */
+public final class PdfNameTable {
+
+    /** The maximum length of an interned name. */
+    private static final int MAX_LENGTH = 127;
+    /** The number of slots that are probed for a name. */
+    private static final int MAX_PROBES = 8;
+
+    private static volatile boolean enabled = false;
+    private static volatile Table table = new Table(16 * 1024);
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    /** An interned name with its decoded bytes. */
+    private static final class Entry {
+        final byte[] key;
+        final int hash;
+        final PdfName name;
+
+        Entry(final byte[] key, final int hash, final PdfName name) {
+            this.key = key;
+            this.hash = hash;
+            this.name = name;
+        }
+
+        boolean matches(final byte[] b, final int offset, final int length, final int hash) {
+            if (this.hash != hash || key.length != length)
+                return false;
+            for (int k = 0; k < length; ++k) {
+                if (key[k] != b[offset + k])
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /** The open addressing table. */
+    private static final class Table {
+        final int maxSize;
+        final AtomicReferenceArray<Entry> entries;
+        final int mask;
+        final AtomicInteger size = new AtomicInteger();
+
+        Table(final int maxSize) {
+            this.maxSize = maxSize;
+            int capacity = Integer.highestOneBit(Math.max(maxSize, MAX_PROBES) * 2 - 1) << 1;
+            entries = new AtomicReferenceArray<Entry>(capacity);
+            mask = capacity - 1;
+            for (Map.Entry<String, PdfName> e : PdfName.staticNames.entrySet()) {
+                String s = e.getKey();
+                byte[] key = new byte[s.length()];
+                for (int k = 0; k < key.length; ++k)
+                    key[k] = (byte)s.charAt(k);
+                if (key.length <= MAX_LENGTH)
+                    add(new Entry(key, hash(key, 0, key.length), e.getValue()));
+            }
+        }
+
+        PdfName get(final byte[] b, final int offset, final int length, final int hash) {
+            int slot = hash & mask;
+            for (int probe = 0; probe < MAX_PROBES; ++probe) {
+                Entry entry = entries.get((slot + probe) & mask);
+                if (entry == null)
+                    return null;
+                if (entry.matches(b, offset, length, hash))
+                    return entry.name;
+            }
+            return null;
+        }
+
+        /**
+         * Adds a name. Two threads adding the same name at the same time may both
+         * succeed, one of the instances is then only used by the thread that created it.
+         */
+        void add(final Entry entry) {
+            int slot = entry.hash & mask;
+            if (size.get() < maxSize) {
+                for (int probe = 0; probe < MAX_PROBES; ++probe) {
+                    if (entries.compareAndSet((slot + probe) & mask, null, entry)) {
+                        size.incrementAndGet();
+                        return;
+                    }
+                }
+            }
+            // the table or the run of slots is full
+            entries.set(slot, entry);
+        }
+    }
+
+    private PdfNameTable() {
+    }
+
+    /**
+     * Enables or disables the table.
+     * @param enabled <CODE>true</CODE> to intern the names that are read
+     */
+    public static void setEnabled(final boolean enabled) {
+        PdfNameTable.enabled = enabled;
+    }
+
+    /**
+     * Checks if the table is enabled.
+     * @return <CODE>true</CODE> if the names that are read are interned
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the maximum number of names in the table, the static names included.
+     * The default is 16384. The names already interned are dropped.
+     * @param maxSize the maximum number of names
+     */
+    public static void setMaxSize(final int maxSize) {
+        if (maxSize < PdfName.staticNames.size())
+            throw new IllegalArgumentException(String.valueOf(maxSize));
+        table = new Table(maxSize);
+    }
+
+    /**
+     * Gets the maximum number of names in the table.
+     * @return the maximum number of names
+     */
+    public static int getMaxSize() {
+        return table.maxSize;
+    }
+
+    /**
+     * Gets the number of names in the table, the static names included.
+     * @return the number of names
+     */
+    public static int size() {
+        return table.size.get();
+    }
+
+    /**
+     * Drops the interned names, only the static names are kept.
+     */
+    public static void clear() {
+        table = new Table(table.maxSize);
+    }
+
+    /**
+     * Gets the name with the given decoded bytes, that is without the slash and
+     * with the #xx escapes resolved. The name is interned if it's not in the table.
+     * This works whether the table is enabled or not.
+     * @param b the array with the name
+     * @param offset the offset of the name in the array
+     * @param length the number of bytes of the name
+     * @return the name
+     */
+    public static PdfName get(final byte[] b, final int offset, final int length) {
+        if (length > MAX_LENGTH) {
+            misses.incrementAndGet();
+            return new PdfName(toString(b, offset, length), false);
+        }
+        int hash = hash(b, offset, length);
+        Table t = table;
+        PdfName name = t.get(b, offset, length, hash);
+        if (name != null) {
+            hits.incrementAndGet();
+            return name;
+        }
+        misses.incrementAndGet();
+        byte[] key = new byte[length];
+        System.arraycopy(b, offset, key, 0, length);
+        name = new PdfName(toString(b, offset, length), false);
+        t.add(new Entry(key, hash, name));
+        return name;
+    }
+
+    /**
+     * Gets the number of names that were found in the table.
+     * @return the number of hits
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of names that had to be created.
+     * @return the number of misses
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the part of the lookups that found the name in the table.
+     * @return the hit rate, between 0 and 1, or 0 if there were no lookups
+     */
+    public static double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double)h / total;
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public static void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    private static int hash(final byte[] b, final int offset, final int length) {
+        int h = 0;
+        for (int k = 0; k < length; ++k)
+            h = 31 * h + (b[offset + k] & 0xff);
+        return h ^ (h >>> 16);
+    }
+
+    private static String toString(final byte[] b, final int offset, final int length) {
+        char[] chars = new char[length];
+        for (int k = 0; k < length; ++k)
+            chars[k] = (char)(b[offset + k] & 0xff);
+        return new String(chars);
+    }
+}
@@ -85,6 +85,19 @@ public class PdfNumber extends PdfObject {
         }
     }
     
+    /**
+     * Constructs a <CODE>PdfNumber</CODE>-object from a value that was already
+     * parsed from its content.
+     *
+     * @param value    value of the new <CODE>PdfNumber</CODE>-object
+     * @param content  the bytes the value was parsed from
+     * @since 5.5.6
+     */
+    PdfNumber(double value, byte[] content) {
+        super(NUMBER, content);
+        this.value = value;
+    }
+
     /**
      * Constructs a new <CODE>PdfNumber</CODE>-object of type integer.
      *
@@ -0,0 +1,282 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A memory bounded cache for a {@link PdfReader} opened in partial mode.
+ * It keeps the parsed objects of the file keyed by object number, and the
+ * decoded contents of the object streams keyed by the number of the stream,
+ * so that objects that were released with
+ * {@link PdfReader#releaseLastXrefPartial()} don't have to be tokenised again
+ * and an object stream is only decoded once for all the objects it contains.
+ * The least recently used entries are evicted when the estimated size of the
+ * cache exceeds the memory budget.
+ * <P>
+ * The cache only holds private copies: the reader hands out a copy of a cached
+ * object, down to its numbers and strings, so objects that are changed or still
+ * held by a {@link PdfStamper} or a {@link PdfCopy} are never affected by an
+ * eviction. Only the names and booleans, that can't be changed, are shared.
+ * <P>
+ * The entries are only keyed by object number, so a cache is bound to the first
+ * file it is used with, identified by its length, its <CODE>/ID</CODE> and the
+ * positions of its objects. It may be shared by readers of that file, and
+ * {@link PdfReader#setObjectCache(PdfObjectCache)} rejects the readers of
+ * another file.
+ * @since 5.5.6
+ */
+public class PdfObjectCache {
+
+    /** The default memory budget: 16 MB. */
+    public static final long DEFAULT_MEMORY_BUDGET = 16L * 1024 * 1024;
+
+    /** The fixed estimated overhead of a cache entry in bytes. */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    /** The decoded contents of an object stream. */
+    static class ObjectStream {
+        /** The decoded bytes of the stream. */
+        final byte data[];
+        /** The position in <CODE>data</CODE> of every object of the stream. */
+        final int offsets[];
+
+        ObjectStream(final byte data[], final int offsets[]) {
+            this.data = data;
+            this.offsets = offsets;
+        }
+    }
+
+    private static class Entry {
+        final Object value;
+        final long weight;
+
+        Entry(final Object value, final long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /** The entries in access order, objects have a positive key, object streams a negative key. */
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<Integer, Entry>(256, 0.75f, true);
+    private final long memoryBudget;
+    private long memoryUsed;
+    private long objectHits;
+    private long objectMisses;
+    private long objectStreamHits;
+    private long objectStreamMisses;
+    private long evictions;
+    /** The identity of the file the entries were read from. */
+    private String fileId;
+
+    /**
+     * Creates a cache with the default memory budget.
+     */
+    public PdfObjectCache() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Creates a cache.
+     * @param memoryBudget the maximum estimated size of the cached entries in bytes
+     */
+    public PdfObjectCache(final long memoryBudget) {
+        if (memoryBudget < 0)
+            throw new IllegalArgumentException("memoryBudget");
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Binds the cache to a file, unless it is already bound to one.
+     * @param fileId the identity of the file
+     * @return <CODE>false</CODE> if the cache is bound to another file
+     */
+    synchronized boolean bind(final String fileId) {
+        if (this.fileId == null)
+            this.fileId = fileId;
+        return this.fileId.equals(fileId);
+    }
+
+    /**
+     * Gets a cached object.
+     * @param number the object number
+     * @return the cached object or <CODE>null</CODE> if it isn't cached
+     */
+    synchronized PdfObject getObject(final int number) {
+        Entry entry = entries.get(Integer.valueOf(number));
+        if (entry == null) {
+            ++objectMisses;
+            return null;
+        }
+        ++objectHits;
+        return (PdfObject)entry.value;
+    }
+
+    /**
+     * Caches an object. The object must not be handed out to the user.
+     * @param number the object number
+     * @param obj the object
+     * @param size the estimated size of the object in bytes
+     */
+    synchronized void putObject(final int number, final PdfObject obj, final long size) {
+        put(Integer.valueOf(number), obj, size);
+    }
+
+    /**
+     * Gets the decoded contents of a cached object stream.
+     * @param number the object number of the stream
+     * @return the contents or <CODE>null</CODE> if they aren't cached
+     */
+    synchronized ObjectStream getObjectStream(final int number) {
+        Entry entry = entries.get(Integer.valueOf(-number - 1));
+        if (entry == null) {
+            ++objectStreamMisses;
+            return null;
+        }
+        ++objectStreamHits;
+        return (ObjectStream)entry.value;
+    }
+
+    /**
+     * Caches the decoded contents of an object stream.
+     * @param number the object number of the stream
+     * @param stream the contents
+     */
+    synchronized void putObjectStream(final int number, final ObjectStream stream) {
+        put(Integer.valueOf(-number - 1), stream, stream.data.length + 4L * stream.offsets.length);
+    }
+
+    private void put(final Integer key, final Object value, final long size) {
+        long weight = size + ENTRY_OVERHEAD;
+        Entry old = entries.remove(key);
+        if (old != null)
+            memoryUsed -= old.weight;
+        if (weight > memoryBudget)
+            return;
+        entries.put(key, new Entry(value, weight));
+        memoryUsed += weight;
+        Iterator<Map.Entry<Integer, Entry>> it = entries.entrySet().iterator();
+        while (memoryUsed > memoryBudget && it.hasNext()) {
+            memoryUsed -= it.next().getValue().weight;
+            it.remove();
+            ++evictions;
+        }
+    }
+
+    /**
+     * Removes all the entries from the cache. The statistics and the file the
+     * cache is bound to are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        memoryUsed = 0;
+    }
+
+    /**
+     * Gets the memory budget.
+     * @return the maximum estimated size of the cached entries in bytes
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Gets the estimated size of the cached entries.
+     * @return the size in bytes
+     */
+    public synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * Gets the number of entries in the cache.
+     * @return the number of cached objects and object streams
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of objects that were found in the cache.
+     * @return the number of hits
+     */
+    public synchronized long getObjectHits() {
+        return objectHits;
+    }
+
+    /**
+     * Gets the number of objects that had to be read from the file.
+     * @return the number of misses
+     */
+    public synchronized long getObjectMisses() {
+        return objectMisses;
+    }
+
+    /**
+     * Gets the number of times the contents of an object stream were found in the cache.
+     * @return the number of hits
+     */
+    public synchronized long getObjectStreamHits() {
+        return objectStreamHits;
+    }
+
+    /**
+     * Gets the number of times an object stream had to be decoded.
+     * @return the number of misses
+     */
+    public synchronized long getObjectStreamMisses() {
+        return objectStreamMisses;
+    }
+
+    /**
+     * Gets the number of entries that were evicted to stay within the memory budget.
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
@@ -142,6 +142,11 @@ public class PdfPCell extends Rectangle implements IAccessibleElement {
      */
     private boolean useBorderPadding = false;
 
+    /**
+     * The cache of the measured heights, if any.
+     */
+    private PdfLayoutCache layoutCache;
+
     /**
      * The text in the cell.
      */
@@ -287,6 +292,7 @@ public class PdfPCell extends Rectangle implements IAccessibleElement {
         useDescender = cell.useDescender;
         column = ColumnText.duplicate(cell.column);
         useBorderPadding = cell.useBorderPadding;
+        layoutCache = cell.layoutCache;
         rotation = cell.rotation;
         id = cell.id;
         role = cell.role;
@@ -896,6 +902,28 @@ public class PdfPCell extends Rectangle implements IAccessibleElement {
         }
     }
 
+    /**
+     * Gets the cache of the measured heights used by this cell.
+     *
+     * @return the cache or <CODE>null</CODE>
+     * @since 5.5.6
+     */
+    public PdfLayoutCache getLayoutCache() {
+        return layoutCache;
+    }
+
+    /**
+     * Sets a cache of the measured heights, shared with other cells, tables
+     * and documents. The cells in text mode with the same content, size and
+     * settings are then only measured once.
+     *
+     * @param layoutCache the cache or <CODE>null</CODE> to measure the cell every time
+     * @since 5.5.6
+     */
+    public void setLayoutCache(PdfLayoutCache layoutCache) {
+        this.layoutCache = layoutCache;
+    }
+
     /**
      * Gets the arabic shaping options.
      *
@@ -1026,33 +1054,42 @@ public class PdfPCell extends Rectangle implements IAccessibleElement {
             if ((pivoted && hasFixedHeight()) || getColumn() == null) {
                 setBottom(getTop() - getFixedHeight());
             } else {
-                ColumnText ct = ColumnText.duplicate(getColumn());
-                float right, top, left, bottom;
-                if (pivoted) {
-                    right = PdfPRow.RIGHT_LIMIT;
-                    top = getRight() - getEffectivePaddingRight();
-                    left = 0;
-                    bottom = getLeft() + getEffectivePaddingLeft();
+                PdfLayoutCache.Key key = layoutCache == null ? null : PdfLayoutCache.createKey(this, pivoted);
+                Float cachedBottom = key == null ? null : layoutCache.get(key);
+                if (cachedBottom != null) {
+                    setBottom(cachedBottom.floatValue());
                 } else {
-                    right = isNoWrap() ? PdfPRow.RIGHT_LIMIT : getRight() - getEffectivePaddingRight();
-                    top = getTop() - getEffectivePaddingTop();
-                    left = getLeft() + getEffectivePaddingLeft();
-                    bottom = hasCalculatedHeight() ? getTop() + getEffectivePaddingBottom() - getCalculatedHeight() : PdfPRow.BOTTOM_LIMIT;
-                }
-                PdfPRow.setColumn(ct, left, bottom, right, top);
-                try {
-                    ct.go(true);
-                } catch (DocumentException e) {
-                    throw new ExceptionConverter(e);
-                }
-                if (pivoted) {
-                    setBottom(getTop() - getEffectivePaddingTop() - getEffectivePaddingBottom() - ct.getFilledWidth());
-                } else {
-                    float yLine = ct.getYLine();
-                    if (isUseDescender()) {
-                        yLine += ct.getDescender();
+                    ColumnText ct = ColumnText.duplicate(getColumn());
+                    float right, top, left, bottom;
+                    if (pivoted) {
+                        right = PdfPRow.RIGHT_LIMIT;
+                        top = getRight() - getEffectivePaddingRight();
+                        left = 0;
+                        bottom = getLeft() + getEffectivePaddingLeft();
+                    } else {
+                        right = isNoWrap() ? PdfPRow.RIGHT_LIMIT : getRight() - getEffectivePaddingRight();
+                        top = getTop() - getEffectivePaddingTop();
+                        left = getLeft() + getEffectivePaddingLeft();
+                        bottom = hasCalculatedHeight() ? getTop() + getEffectivePaddingBottom() - getCalculatedHeight() : PdfPRow.BOTTOM_LIMIT;
+                    }
+                    PdfPRow.setColumn(ct, left, bottom, right, top);
+                    try {
+                        ct.go(true);
+                    } catch (DocumentException e) {
+                        throw new ExceptionConverter(e);
+                    }
+                    if (pivoted) {
+                        setBottom(getTop() - getEffectivePaddingTop() - getEffectivePaddingBottom() - ct.getFilledWidth());
+                    } else {
+                        float yLine = ct.getYLine();
+                        if (isUseDescender()) {
+                            yLine += ct.getDescender();
+                        }
+                        setBottom(yLine - getEffectivePaddingBottom());
+                    }
+                    if (key != null) {
+                        layoutCache.put(key, getBottom());
                     }
-                    setBottom(yLine - getEffectivePaddingBottom());
                 }
             }
         }
@@ -115,6 +115,13 @@ public class PdfPTable implements LargeElement, Spaceable, IAccessibleElement {
     protected float absoluteWidths[];
     protected PdfPTableEvent tableEvent;
 
+    /**
+     * The cache of the measured cell heights given to the added cells.
+     *
+     * @since 5.5.6
+     */
+    private PdfLayoutCache layoutCache;
+
     /**
      * Holds value of property headerRows.
      */
@@ -324,6 +331,7 @@ public class PdfPTable implements LargeElement, Spaceable, IAccessibleElement {
         totalHeight = sourceTable.totalHeight;
         currentColIdx = 0;
         tableEvent = sourceTable.tableEvent;
+        layoutCache = sourceTable.layoutCache;
         runDirection = sourceTable.runDirection;
         if (sourceTable.defaultCell instanceof PdfPHeaderCell) {
             defaultCell = new PdfPHeaderCell((PdfPHeaderCell) sourceTable.defaultCell);
@@ -532,6 +540,9 @@ public class PdfPTable implements LargeElement, Spaceable, IAccessibleElement {
         } else {
             ncell = new PdfPCell(cell);
         }
+        if (ncell.getLayoutCache() == null) {
+            ncell.setLayoutCache(layoutCache);
+        }
 
         int colspan = ncell.getColspan();
         colspan = Math.max(colspan, 1);
@@ -1543,6 +1554,28 @@ public class PdfPTable implements LargeElement, Spaceable, IAccessibleElement {
         return tableEvent;
     }
 
+    /**
+     * Sets a cache of the measured cell heights, shared with other tables and
+     * documents. It is given to the cells added afterwards that don't have one,
+     * see {@link PdfPCell#setLayoutCache(PdfLayoutCache)}.
+     *
+     * @param layoutCache the cache or <CODE>null</CODE>
+     * @since 5.5.6
+     */
+    public void setLayoutCache(final PdfLayoutCache layoutCache) {
+        this.layoutCache = layoutCache;
+    }
+
+    /**
+     * Gets the cache of the measured cell heights given to the added cells.
+     *
+     * @return the cache or <CODE>null</CODE>
+     * @since 5.5.6
+     */
+    public PdfLayoutCache getLayoutCache() {
+        return layoutCache;
+    }
+
     /**
      * Gets the absolute sizes of each column width.
      *
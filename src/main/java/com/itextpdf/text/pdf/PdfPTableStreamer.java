@@ -0,0 +1,266 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.Phrase;
+
+/**
+ * Adds a table of any length to a document with a bounded number of rows in memory.
+ * <P>
+ * The table is prepared as usual: its widths, its properties and its header and
+ * footer rows. The body cells are then added to the streamer, or pulled from a
+ * {@link RowSupplier}. Whenever more than a window of rows is waiting, the rows
+ * are laid out and written as an incomplete {@link com.itextpdf.text.LargeElement}
+ * and then discarded. The header and the footer are repeated as for any table.
+ * <P>
+ * The rows are only written at a point that keeps the table intact: no cell with
+ * a rowspan may cross it and it may not separate rows that must be kept together,
+ * see {@link #keepRowsTogether(int)}. The last completed row is always kept for
+ * the next batch. The window may therefore be exceeded while a rowspan or a group
+ * of rows kept together is longer than the window.
+ * @since 5.5.6
+ */
+public class PdfPTableStreamer {
+
+    /**
+     * Supplies the rows of a streamed table.
+     */
+    public interface RowSupplier {
+        /**
+         * Adds the cells of the next row, or of the next few rows.
+         * @param streamer the streamer to add the cells to
+         * @return <CODE>false</CODE> if there are no more rows
+         * @throws DocumentException on error
+         */
+        boolean addRow(PdfPTableStreamer streamer) throws DocumentException;
+    }
+
+    private final Document document;
+    private final PdfPTable table;
+    private final int window;
+    /** The number of the next completed rows that must be kept together. */
+    private int keepTogether;
+    private long rowsWritten;
+    private int maxBufferedRows;
+    private boolean closed;
+
+    /**
+     * Creates a streamer.
+     * @param document the open document the table is added to
+     * @param table the table, with its header and footer rows if any, that must not be added to the document
+     * @param window the number of body rows that are kept before they are written
+     */
+    public PdfPTableStreamer(final Document document, final PdfPTable table, final int window) {
+        if (window < 2)
+            throw new IllegalArgumentException(String.valueOf(window));
+        this.document = document;
+        this.table = table;
+        this.window = window;
+    }
+
+    /**
+     * Gets the table. Its rows are only the header and footer rows and the rows
+     * that are not written yet.
+     * @return the table
+     */
+    public PdfPTable getTable() {
+        return table;
+    }
+
+    /**
+     * Adds a cell.
+     * @param cell the cell
+     * @throws DocumentException on error
+     */
+    public void addCell(final PdfPCell cell) throws DocumentException {
+        checkOpen();
+        int size = table.size();
+        table.addCell(cell);
+        rowsAdded(size);
+    }
+
+    /**
+     * Adds a cell with a phrase and the properties of the default cell.
+     * @param phrase the phrase
+     * @throws DocumentException on error
+     */
+    public void addCell(final Phrase phrase) throws DocumentException {
+        checkOpen();
+        int size = table.size();
+        table.addCell(phrase);
+        rowsAdded(size);
+    }
+
+    /**
+     * Adds a cell with a text and the properties of the default cell.
+     * @param text the text
+     * @throws DocumentException on error
+     */
+    public void addCell(final String text) throws DocumentException {
+        checkOpen();
+        int size = table.size();
+        table.addCell(text);
+        rowsAdded(size);
+    }
+
+    /**
+     * Adds a cell with an image and the properties of the default cell.
+     * @param image the image
+     * @throws DocumentException on error
+     */
+    public void addCell(final Image image) throws DocumentException {
+        checkOpen();
+        int size = table.size();
+        table.addCell(image);
+        rowsAdded(size);
+    }
+
+    /**
+     * Adds the rows of a supplier until it has no more rows.
+     * @param supplier the supplier
+     * @throws DocumentException on error
+     */
+    public void addRows(final RowSupplier supplier) throws DocumentException {
+        while (supplier.addRow(this)) {
+            // the rows are written by the add methods
+        }
+    }
+
+    /**
+     * Keeps the next rows together, that is on the same page if possible, as
+     * {@link PdfPTable#keepRowsTogether(int, int)} does. It applies to the rows
+     * completed after this call. As with the table, the row before the group
+     * must not be kept together with other rows.
+     * @param rows the number of rows
+     */
+    public void keepRowsTogether(final int rows) {
+        keepTogether = Math.max(keepTogether, rows);
+    }
+
+    /**
+     * Writes the remaining rows and the footer. The table is complete afterwards.
+     * @throws DocumentException on error
+     */
+    public void close() throws DocumentException {
+        checkOpen();
+        closed = true;
+        rowsWritten += table.size() - table.getHeaderRows();
+        table.setComplete(true);
+        document.add(table);
+    }
+
+    /**
+     * Gets the number of body rows written so far.
+     * @return the number of rows written
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Gets the largest number of body rows that were waiting at the same time.
+     * @return the largest number of rows in memory
+     */
+    public int getMaxBufferedRows() {
+        return maxBufferedRows;
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("The table is already closed.");
+    }
+
+    /**
+     * Marks the rows completed by the last cell and writes the rows if the window is full.
+     * @param oldSize the number of rows before the last cell
+     */
+    private void rowsAdded(final int oldSize) throws DocumentException {
+        int size = table.size();
+        int headerRows = table.getHeaderRows();
+        for (int k = Math.max(oldSize, headerRows); k < size && keepTogether > 0; ++k, --keepTogether)
+            table.getRow(k).setMayNotBreak(true);
+        maxBufferedRows = Math.max(maxBufferedRows, size - headerRows);
+        if (size - headerRows > window)
+            flush();
+    }
+
+    /**
+     * Writes the rows up to the last point where the table may be interrupted
+     * and keeps the other rows.
+     */
+    private void flush() throws DocumentException {
+        int headerRows = table.getHeaderRows();
+        ArrayList<PdfPRow> rows = table.getRows();
+        int size = rows.size();
+        // end is the first row not reached by the rowspans of the rows before b
+        int end = 0;
+        int cut = -1;
+        for (int b = headerRows; b < size; ++b) {
+            if (b > headerRows && end <= b && !rows.get(b).isMayNotBreak())
+                cut = b;
+            PdfPCell cells[] = rows.get(b).getCells();
+            for (int c = 0; c < cells.length; ++c) {
+                if (cells[c] != null)
+                    end = Math.max(end, b + cells[c].getRowspan());
+            }
+        }
+        if (cut < 0)
+            return;
+        List<PdfPRow> tail = rows.subList(cut, size);
+        ArrayList<PdfPRow> kept = new ArrayList<PdfPRow>(tail);
+        tail.clear();
+        rowsWritten += cut - headerRows;
+        table.setComplete(false);
+        document.add(table);
+        table.getRows().addAll(kept);
+        table.calculateHeights();
+    }
+}
@@ -71,6 +71,8 @@ import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.cert.Certificate;
 import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 /**
@@ -138,6 +140,7 @@ public class PdfReader implements PdfViewerPreferences {
     private boolean hybridXref;
     private int lastXrefPartial = -1;
     private boolean partial;
+    private PdfObjectCache objectCache;
 
     private PRIndirectReference cryptoRef;
 	private final PdfViewerPreferencesImp viewerPreferences = new PdfViewerPreferencesImp();
@@ -440,6 +443,18 @@ public class PdfReader implements PdfViewerPreferences {
      * @param reader the <CODE>PdfReader</CODE> to duplicate
      */
     public PdfReader(final PdfReader reader) {
+        this(reader, reader.tokens.getSafeFile());
+    }
+
+    /** Creates an independent duplicate that reads the document bytes through
+     * <CODE>file</CODE> instead of through a view of the original reader's source.
+     * This allows several duplicates to be used from different threads, each one
+     * with its own buffered view of a shared, thread safe source.
+     * @param reader the <CODE>PdfReader</CODE> to duplicate
+     * @param file the file holding the same bytes as the original reader's source
+     * @since 5.5.6
+     */
+    public PdfReader(final PdfReader reader, final RandomAccessFileOrArray file) {
         this.appendable = reader.appendable;
         this.consolidateNamedDestinations = reader.consolidateNamedDestinations;
         this.encrypted = reader.encrypted;
@@ -452,7 +467,7 @@ public class PdfReader implements PdfViewerPreferences {
         this.freeXref = reader.freeXref;
         this.lastXref = reader.lastXref;
         this.newXrefType = reader.newXrefType;
-        this.tokens = new PRTokeniser(reader.tokens.getSafeFile()); 
+        this.tokens = new PRTokeniser(file);
         if (reader.decrypt != null)
             this.decrypt = new PdfEncryption(reader.decrypt);
         this.pValue = reader.pValue;
@@ -469,6 +484,7 @@ public class PdfReader implements PdfViewerPreferences {
         this.partial = reader.partial;
         this.hybridXref = reader.hybridXref;
         this.objStmToOffset = reader.objStmToOffset;
+        this.objectCache = reader.objectCache;
         this.xref = reader.xref;
         this.cryptoRef = (PRIndirectReference)duplicatePdfObject(reader.cryptoRef, this);
         this.ownerPasswordUsed = reader.ownerPasswordUsed;
@@ -1225,6 +1241,71 @@ public class PdfReader implements PdfViewerPreferences {
         xrefObj.set(idx, obj);
     }
 
+    /**
+     * Sets the cache used to read objects in partial mode. Objects that were
+     * released and the decoded contents of object streams are kept in the cache
+     * until its memory budget is exhausted, so that they don't have to be read
+     * from the file again. The cache has no effect if the reader was not opened
+     * in partial mode. A cache is bound to the first file it is used with, see
+     * {@link PdfObjectCache}.
+     * @param objectCache the cache or <CODE>null</CODE> to read every object from the file
+     * @throws IllegalArgumentException if the cache holds the objects of another file
+     * @since 5.5.6
+     */
+    public void setObjectCache(final PdfObjectCache objectCache) {
+        if (objectCache != null && partial && !objectCache.bind(getFileIdentity()))
+            throw new IllegalArgumentException("the object cache holds the objects of another file");
+        this.objectCache = objectCache;
+    }
+
+    /**
+     * Identifies the file read in partial mode by its length, its <CODE>/ID</CODE>
+     * and the SHA-256 digest of the positions of its objects.
+     * @return the identity of the file
+     */
+    private String getFileIdentity() {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        }
+        catch (Exception e) {
+            throw new ExceptionConverter(e);
+        }
+        byte b[] = new byte[8];
+        for (long pos : xref) {
+            for (int k = 0; k < 8; ++k)
+                b[k] = (byte)(pos >>> (56 - 8 * k));
+            md.update(b);
+        }
+        StringBuilder id = new StringBuilder();
+        id.append(fileLength).append(' ');
+        PdfArray ids = trailer.getAsArray(PdfName.ID);
+        if (ids != null) {
+            for (int k = 0; k < ids.size(); ++k) {
+                PdfString str = ids.getAsString(k);
+                if (str != null)
+                    appendHex(id, str.getOriginalBytes());
+                id.append(' ');
+            }
+        }
+        appendHex(id, md.digest());
+        return id.toString();
+    }
+
+    private static void appendHex(final StringBuilder buf, final byte b[]) {
+        for (byte c : b)
+            buf.append(Integer.toHexString((c & 0xff) | 0x100).substring(1));
+    }
+
+    /**
+     * Gets the cache used to read objects in partial mode.
+     * @return the cache or <CODE>null</CODE> if there is none
+     * @since 5.5.6
+     */
+    public PdfObjectCache getObjectCache() {
+        return objectCache;
+    }
+
     /**
      * @param obj
      * @return an indirect reference
@@ -1266,10 +1347,30 @@ public class PdfReader implements PdfViewerPreferences {
         long pos = xref[k2];
         if (pos < 0)
             return null;
+        if (objectCache != null) {
+            PdfObject obj = readCachedObject(k);
+            xrefObj.set(k, obj);
+            return obj;
+        }
         if (xref[k2 + 1] > 0)
             pos = objStmToOffset.get(xref[k2 + 1]);
         if (pos == 0)
             return null;
+        PdfObject obj = readObjectAt(pos);
+        if (xref[k2 + 1] > 0) {
+            obj = readOneObjStm((PRStream)obj, (int)xref[k2]);
+        }
+        xrefObj.set(k, obj);
+        return obj;
+    }
+
+    /**
+     * Reads the indirect object that starts at a given position of the file.
+     * @param pos the position of the object
+     * @return the object
+     * @throws IOException on error
+     */
+    private PdfObject readObjectAt(final long pos) throws IOException {
         tokens.seek(pos);
         tokens.nextValidToken();
         if (tokens.getTokenType() != TokenType.NUMBER)
@@ -1302,13 +1403,150 @@ public class PdfReader implements PdfViewerPreferences {
         	else
         		throw e;
         }
-        if (xref[k2 + 1] > 0) {
-            obj = readOneObjStm((PRStream)obj, (int)xref[k2]);
-        }
-        xrefObj.set(k, obj);
         return obj;
     }
 
+    /**
+     * Reads an object in partial mode through the object cache. Only private
+     * copies are kept in the cache, the object that is returned is a copy.
+     * @param k the object number
+     * @return the object
+     * @throws IOException on error
+     */
+    private PdfObject readCachedObject(final int k) throws IOException {
+        int k2 = k * 2;
+        PdfObject obj = objectCache.getObject(k);
+        if (obj == null) {
+            long size;
+            if (xref[k2 + 1] > 0) {
+                int streamNum = (int)xref[k2 + 1];
+                PdfObjectCache.ObjectStream objStm = objectCache.getObjectStream(streamNum);
+                if (objStm == null) {
+                    long pos = objStmToOffset.get(streamNum);
+                    if (pos == 0)
+                        return null;
+                    objStm = decodeObjStm((PRStream)readObjectAt(pos));
+                    objectCache.putObjectStream(streamNum, objStm);
+                }
+                int idx = (int)xref[k2];
+                obj = readObjStmObject(objStm, idx);
+                int end = idx + 1 < objStm.offsets.length ? objStm.offsets[idx + 1] : objStm.data.length;
+                size = Math.max(end - objStm.offsets[idx], 0);
+            }
+            else {
+                long pos = xref[k2];
+                if (pos == 0)
+                    return null;
+                obj = readObjectAt(pos);
+                size = tokens.getFilePointer() - pos;
+            }
+            if (obj == null)
+                return null;
+            objectCache.putObject(k, obj, size);
+        }
+        return copyCachedObject(obj);
+    }
+
+    /**
+     * Copies a cached object for this reader. Unlike {@link #duplicatePdfObject(PdfObject, PdfReader)}
+     * the numbers and the strings are copied too, as they can be changed; the names,
+     * booleans and nulls are shared.
+     * @param original the cached object
+     * @return the copy
+     */
+    private PdfObject copyCachedObject(final PdfObject original) {
+        if (original == null)
+            return null;
+        switch (original.type()) {
+            case PdfObject.DICTIONARY:
+            case PdfObject.STREAM: {
+                PdfDictionary org = (PdfDictionary)original;
+                PdfDictionary copy = org.isStream() ? new PRStream((PRStream)org, null, this) : new PdfDictionary();
+                for (PdfName key : org.getKeys())
+                    copy.put(key, copyCachedObject(org.get(key)));
+                return copy;
+            }
+            case PdfObject.ARRAY: {
+                PdfArray org = (PdfArray)original;
+                PdfArray arr = new PdfArray();
+                for (int k = 0; k < org.size(); ++k)
+                    arr.add(copyCachedObject(org.getPdfObject(k)));
+                return arr;
+            }
+            case PdfObject.INDIRECT: {
+                PRIndirectReference org = (PRIndirectReference)original;
+                return new PRIndirectReference(this, org.getNumber(), org.getGeneration());
+            }
+            case PdfObject.NUMBER: {
+                PdfNumber org = (PdfNumber)original;
+                return new PdfNumber(org.doubleValue(), org.getBytes());
+            }
+            case PdfObject.STRING: {
+                PdfString org = (PdfString)original;
+                PdfString str = new PdfString(org.value, org.encoding);
+                str.originalValue = org.originalValue;
+                str.setObjNum(org.objNum, org.objGen);
+                str.hexWriting = org.hexWriting;
+                str.bytes = org.bytes;
+                return str;
+            }
+            default:
+                return original;
+        }
+    }
+
+    /**
+     * Decodes an object stream and reads the positions of its objects.
+     * @param stream the object stream
+     * @return the decoded contents
+     * @throws IOException on error
+     */
+    private PdfObjectCache.ObjectStream decodeObjStm(final PRStream stream) throws IOException {
+        int first = stream.getAsNumber(PdfName.FIRST).intValue();
+        int n = stream.getAsNumber(PdfName.N).intValue();
+        byte b[] = getStreamBytes(stream, tokens.getFile());
+        PRTokeniser tok = new PRTokeniser(new RandomAccessFileOrArray(new RandomAccessSourceFactory().createSource(b)));
+        try {
+            int offsets[] = new int[n];
+            for (int k = 0; k < n; ++k) {
+                if (!tok.nextToken() || tok.getTokenType() != TokenType.NUMBER
+                        || !tok.nextToken() || tok.getTokenType() != TokenType.NUMBER)
+                    throw new InvalidPdfException(MessageLocalization.getComposedMessage("error.reading.objstm"));
+                offsets[k] = tok.intValue() + first;
+            }
+            return new PdfObjectCache.ObjectStream(b, offsets);
+        }
+        finally {
+            tok.close();
+        }
+    }
+
+    /**
+     * Reads an object from the decoded contents of an object stream.
+     * @param objStm the decoded object stream
+     * @param idx the index of the object in the stream
+     * @return the object
+     * @throws IOException on error
+     */
+    private PdfObject readObjStmObject(final PdfObjectCache.ObjectStream objStm, final int idx) throws IOException {
+        if (idx < 0 || idx >= objStm.offsets.length)
+            throw new InvalidPdfException(MessageLocalization.getComposedMessage("error.reading.objstm"));
+        PRTokeniser saveTokens = tokens;
+        tokens = new PRTokeniser(new RandomAccessFileOrArray(new RandomAccessSourceFactory().createSource(objStm.data)));
+        try {
+            int address = objStm.offsets[idx];
+            tokens.seek(address);
+            tokens.nextToken();
+            if (tokens.getTokenType() == PRTokeniser.TokenType.NUMBER)
+                return new PdfNumber(tokens.getStringValue());
+            tokens.seek(address);
+            return readPRObject();
+        }
+        finally {
+            tokens = saveTokens;
+        }
+    }
+
     protected PdfObject readOneObjStm(final PRStream stream, int idx) throws IOException {
         int first = stream.getAsNumber(PdfName.FIRST).intValue();
         byte b[] = getStreamBytes(stream, tokens.getFile());
@@ -1851,7 +2089,9 @@ public class PdfReader implements PdfViewerPreferences {
                 break;
             if (tokens.getTokenType() != TokenType.NAME)
                 tokens.throwError(MessageLocalization.getComposedMessage("dictionary.key.1.is.not.a.name", tokens.getStringValue()));
-            PdfName name = new PdfName(tokens.getStringValue(), false);
+            PdfName name = PdfNameTable.isEnabled()
+                ? PdfNameTable.get(tokens.getTokenBytes(), 0, tokens.getTokenLength())
+                : new PdfName(tokens.getStringValue(), false);
             PdfObject obj = readPRObject();
             int type = obj.type();
             if (-type == TokenType.END_DIC.ordinal())
@@ -1936,6 +2176,8 @@ public class PdfReader implements PdfViewerPreferences {
 
                 return str;
             case NAME: {
+                if (readDepth > 0 && PdfNameTable.isEnabled())
+                    return PdfNameTable.get(tokens.getTokenBytes(), 0, tokens.getTokenLength());
                 PdfName cachedName = PdfName.staticNames.get( tokens.getStringValue() );
                 if (readDepth > 0 && cachedName != null) {
                     return cachedName;
@@ -2117,6 +2359,19 @@ public class PdfReader implements PdfViewerPreferences {
      * @return the decoded data
      */
     public static byte[] FlateDecode(final byte in[], final boolean strict) {
+        if (strict) {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(in);
+                return inflate(inflater, null, 0, 0, in.length);
+            }
+            catch (IOException e) {
+                return null;
+            }
+            finally {
+                inflater.end();
+            }
+        }
         ByteArrayInputStream stream = new ByteArrayInputStream(in);
         InflaterInputStream zip = new InflaterInputStream(stream);
         ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -2137,6 +2392,55 @@ public class PdfReader implements PdfViewerPreferences {
         }
     }
 
+    /**
+     * Inflates zlib data into an array that is only copied if its size has to be adjusted.
+     * The input is either already set in the inflater or read in small chunks from
+     * a window of a source, so that the compressed data is never copied as a whole.
+     * @param inflater the inflater
+     * @param source the source with the compressed data or <CODE>null</CODE> if the input is set
+     * @param offset the position of the compressed data in the source
+     * @param length the length of the compressed data in the source
+     * @param inputLength the length of the compressed data, used to guess the decoded size
+     * @return the decoded data
+     * @throws IOException if the data is corrupt or truncated
+     */
+    private static byte[] inflate(final Inflater inflater, final RandomAccessSource source, long offset, int length, final int inputLength) throws IOException {
+        byte out[] = new byte[Math.max(Math.min(inputLength, 8 * 1024 * 1024) * 2, 1024)];
+        byte chunk[] = source == null ? null : new byte[Math.min(Math.max(length, 1), 16384)];
+        int n = 0;
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (source == null || length <= 0)
+                        throw new EOFException(MessageLocalization.getComposedMessage("unexpected.end.of.file"));
+                    int read = source.get(offset, chunk, 0, Math.min(length, chunk.length));
+                    if (read <= 0)
+                        throw new EOFException(MessageLocalization.getComposedMessage("unexpected.end.of.file"));
+                    offset += read;
+                    length -= read;
+                    inflater.setInput(chunk, 0, read);
+                }
+                if (n == out.length) {
+                    byte tmp[] = new byte[out.length * 2];
+                    System.arraycopy(out, 0, tmp, 0, n);
+                    out = tmp;
+                }
+                int r = inflater.inflate(out, n, out.length - n);
+                if (r == 0 && inflater.needsDictionary())
+                    throw new DataFormatException();
+                n += r;
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IOException(e.getMessage());
+        }
+        if (n == out.length)
+            return out;
+        byte tmp[] = new byte[n];
+        System.arraycopy(out, 0, tmp, 0, n);
+        return tmp;
+    }
+
     /** Decodes a stream that has the ASCIIHexDecode filter.
      * @param in the input data
      * @return the decoded data
@@ -2490,6 +2794,20 @@ public class PdfReader implements PdfViewerPreferences {
      * @since 5.0.4
      */
     public static byte[] decodeBytes(byte[] b, final PdfDictionary streamDictionary, Map<PdfName, FilterHandlers.FilterHandler> filterHandlers) throws IOException {
+        return decodeBytes(b, streamDictionary, filterHandlers, 0);
+    }
+
+    /**
+     * Decode a byte[] applying the filters specified in the provided dictionary, starting with a given filter.
+     * If the first filter is skipped, <CODE>b</CODE> must already be inflated, the predictor is still applied.
+     * @param b the bytes to decode
+     * @param streamDictionary the dictionary that contains filter information
+     * @param filterHandlers the map used to look up a handler for each type of filter
+     * @param first the index of the first filter to apply
+     * @return the decoded bytes
+     * @throws IOException if there are any problems decoding the bytes
+     */
+    private static byte[] decodeBytes(byte[] b, final PdfDictionary streamDictionary, Map<PdfName, FilterHandlers.FilterHandler> filterHandlers, final int first) throws IOException {
         PdfObject filter = getPdfObjectRelease(streamDictionary.get(PdfName.FILTER));
 
         ArrayList<PdfObject> filters = new ArrayList<PdfObject>();
@@ -2511,8 +2829,8 @@ public class PdfReader implements PdfViewerPreferences {
         }
         for (int j = 0; j < filters.size(); ++j) {
             PdfName filterName = (PdfName)filters.get(j);
-            FilterHandlers.FilterHandler filterHandler = filterHandlers.get(filterName);
-            if (filterHandler == null)
+            FilterHandlers.FilterHandler filterHandler = j < first ? null : filterHandlers.get(filterName);
+            if (filterHandler == null && j >= first)
                 throw new UnsupportedPdfException(MessageLocalization.getComposedMessage("the.filter.1.is.not.supported", filterName));
             
             PdfDictionary decodeParams;
@@ -2529,7 +2847,10 @@ public class PdfReader implements PdfViewerPreferences {
             } else {
                 decodeParams = null;
             }
-            b = filterHandler.decode(b, filterName, decodeParams, streamDictionary);
+            if (j < first)
+                b = decodePredictor(b, decodeParams);
+            else
+                b = filterHandler.decode(b, filterName, decodeParams, streamDictionary);
         }
         return b;
     }
@@ -2541,6 +2862,26 @@ public class PdfReader implements PdfViewerPreferences {
      * @return the stream content
      */
     public static byte[] getStreamBytes(final PRStream stream, final RandomAccessFileOrArray file) throws IOException {
+        PdfObject filter = getPdfObjectRelease(stream.get(PdfName.FILTER));
+        if (filter != null && filter.isArray())
+            filter = getPdfObjectRelease(((PdfArray)filter).getPdfObject(0));
+        if (stream.getOffset() >= 0 && stream.getReader().getDecrypt() == null
+                && (PdfName.FLATEDECODE.equals(filter) || PdfName.FL.equals(filter))) {
+            // inflate straight from the source, without reading the compressed data into an array first
+            byte b[] = null;
+            Inflater inflater = new Inflater();
+            try {
+                b = inflate(inflater, file.createSourceView(), stream.getOffset(), stream.getLength(), stream.getLength());
+            }
+            catch (IOException e) {
+                // corrupt data, let FlateDecode try to recover what it can
+            }
+            finally {
+                inflater.end();
+            }
+            if (b != null)
+                return decodeBytes(b, stream, FilterHandlers.getDefaultFilterHandlers(), 1);
+        }
         byte[] b = getStreamBytesRaw(stream, file);
         return decodeBytes(b, stream);
     }
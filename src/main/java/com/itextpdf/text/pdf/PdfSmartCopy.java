@@ -47,10 +47,12 @@ package com.itextpdf.text.pdf;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.HashMap;
 
 import com.itextpdf.text.Document;
+import com.itextpdf.text.DocWriter;
 import com.itextpdf.text.DocumentException;
 import com.itextpdf.text.ExceptionConverter;
 import com.itextpdf.text.log.Counter;
@@ -67,9 +69,60 @@ import com.itextpdf.text.log.CounterFactory;
 
 public class PdfSmartCopy extends PdfCopy {
 
+    /**
+     * Creates the digests that identify the content of the objects that are copied.
+     * Two objects are considered equal when their digests are equal.
+     * @since 5.5.6
+     */
+    public interface DigestFactory {
+        /**
+         * Creates a new digest.
+         * @return the digest
+         */
+        MessageDigest createDigest();
+    }
+
+    /**
+     * Creates 128 bit MurmurHash3 digests. They are faster but not collision
+     * resistant, use them only if all the documents that are copied are trusted.
+     */
+    public static final DigestFactory MURMUR3_128 = new DigestFactory() {
+        public MessageDigest createDigest() {
+            return new MurmurHash3Digest();
+        }
+    };
+
+    /** Creates MD5 digests. */
+    public static final DigestFactory MD5 = new DigestFactory() {
+        public MessageDigest createDigest() {
+            return getDigest("MD5");
+        }
+    };
+
+    /** Creates SHA-256 digests, the default. */
+    public static final DigestFactory SHA256 = new DigestFactory() {
+        public MessageDigest createDigest() {
+            return getDigest("SHA-256");
+        }
+    };
+
+    private static MessageDigest getDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new ExceptionConverter(e);
+        }
+    }
+
 	/** the cache with the streams and references. */
     private HashMap<ByteStore, PdfIndirectReference> streamMap = null;
-    private final HashMap<RefKey, Integer> serialized = new HashMap<RefKey, Integer>();
+    /** the digests of the indirect objects of the current reader. */
+    private final HashMap<RefKey, byte[]> serialized = new HashMap<RefKey, byte[]>();
+    private DigestFactory digestFactory = SHA256;
+    private long bytesSaved;
+    private int duplicates;
+    private int hashCollisions;
 
     protected Counter COUNTER = CounterFactory.getCounter(PdfSmartCopy.class);
     protected Counter getCounter() {
@@ -81,6 +134,60 @@ public class PdfSmartCopy extends PdfCopy {
         super(document, os);
         this.streamMap = new HashMap<ByteStore, PdfIndirectReference>();
     }
+
+    /**
+     * Sets the digests used to find identical objects. The default is {@link #SHA256},
+     * {@link #MURMUR3_128} is faster but must only be used if all the documents that
+     * are copied come from a trusted source, two different objects with the same
+     * digest are merged. It must be set before the first page is added.
+     * @param digestFactory the factory of the digests
+     * @since 5.5.6
+     */
+    public void setDigestFactory(DigestFactory digestFactory) {
+        if (!streamMap.isEmpty())
+            throw new IllegalStateException("The digest can't be changed after pages were added.");
+        this.digestFactory = digestFactory;
+    }
+
+    /**
+     * Gets the number of bytes of stream data that didn't have to be written
+     * because an identical stream was already copied.
+     * @return the raw length of the streams that were reused
+     * @since 5.5.6
+     */
+    public long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /**
+     * Gets the number of objects that were replaced by an identical object that was already copied.
+     * @return the number of duplicates
+     * @since 5.5.6
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Gets the number of times two different digests had the same hash code
+     * in the index of the copied objects.
+     * @return the number of hash collisions
+     * @since 5.5.6
+     */
+    public int getHashCollisions() {
+        return hashCollisions;
+    }
+
+    private PdfIndirectReference findDuplicate(ByteStore key) {
+        PdfIndirectReference ref = streamMap.get(key);
+        if (ref == null) {
+            if (key.collided)
+                ++hashCollisions;
+            return null;
+        }
+        ++duplicates;
+        return ref;
+    }
     /**
      * Translate a PRIndirectReference to a PdfIndirectReference
      * In addition, translates the object numbers, and copies the
@@ -99,17 +206,18 @@ public class PdfSmartCopy extends PdfCopy {
         ByteStore streamKey = null;
         boolean validStream = false;
         if (srcObj.isStream()) {
-            streamKey = new ByteStore((PRStream)srcObj, serialized);
+            streamKey = new ByteStore((PRStream)srcObj, serialized, digestFactory);
             validStream = true;
-            PdfIndirectReference streamRef = streamMap.get(streamKey);
+            PdfIndirectReference streamRef = findDuplicate(streamKey);
             if (streamRef != null) {
+                bytesSaved += ((PRStream)srcObj).getLength();
                 return streamRef;
             }
         }
         else if (srcObj.isDictionary()) {
-            streamKey = new ByteStore((PdfDictionary)srcObj, serialized);
+            streamKey = new ByteStore((PdfDictionary)srcObj, serialized, digestFactory);
             validStream = true;
-            PdfIndirectReference streamRef = streamMap.get(streamKey);
+            PdfIndirectReference streamRef = findDuplicate(streamKey);
             if (streamRef != null) {
                 return streamRef;
             }
@@ -158,114 +266,133 @@ public class PdfSmartCopy extends PdfCopy {
         super.addPage(iPage);
     }
 
+    /**
+     * The key of an object in the index of the copied objects: the digest of
+     * the object and of all the objects it refers to. The digest of every
+     * indirect object is computed only once per reader and used in place of
+     * the object when the objects that refer to it are hashed.
+     */
     static class ByteStore {
+        private static final byte[] STREAM = DocWriter.getISOBytes("$B");
+        private static final byte[] DICTIONARY = DocWriter.getISOBytes("$D");
+        private static final byte[] ARRAY = DocWriter.getISOBytes("$A");
+        private static final byte[] STRING = DocWriter.getISOBytes("$S");
+        private static final byte[] NAME = DocWriter.getISOBytes("$N");
+        private static final byte[] LITERAL = DocWriter.getISOBytes("$L");
+        private static final byte[] NULL = DocWriter.getISOBytes("$Lnull");
+        private static final byte[] REFERENCE = DocWriter.getISOBytes("$R");
+
         private final byte[] b;
         private final int hash;
-        private MessageDigest md5;
+        /** true if this key had the same hash code as a different key in a comparison */
+        boolean collided;
+        private HashMap<RefKey, byte[]> serialized;
+        private DigestFactory digestFactory;
 
-        private void serObject(PdfObject obj, int level, ByteBuffer bb, HashMap<RefKey, Integer> serialized) throws IOException {
+        private void serObject(PdfObject obj, int level, MessageDigest md) throws IOException {
             if (level <= 0)
                 return;
             if (obj == null) {
-                bb.append("$Lnull");
+                md.update(NULL);
                 return;
             }
-            PdfIndirectReference ref = null;
-            ByteBuffer savedBb = null;
-
             if (obj.isIndirect()) {
-                ref = (PdfIndirectReference)obj;
-                RefKey key = new RefKey(ref);
-                if (serialized.containsKey(key)) {
-                    bb.append(serialized.get(key));
-                    return;
-                }
-                else {
-                    savedBb = bb;
-                    bb = new ByteBuffer();
+                RefKey key = new RefKey((PdfIndirectReference)obj);
+                byte[] digest = serialized.get(key);
+                if (digest == null) {
+                    MessageDigest child = digestFactory.createDigest();
+                    serDirectObject(PdfReader.getPdfObject(obj), level, child);
+                    digest = child.digest();
+                    serialized.put(key, digest);
                 }
+                md.update(REFERENCE);
+                md.update(digest);
+                return;
             }
-            obj = PdfReader.getPdfObject(obj);
-            if (obj.isStream()) {
-                bb.append("$B");
-                serDic((PdfDictionary) obj, level - 1, bb, serialized);
-                if (level > 0) {
-                    md5.reset();
-                    bb.append(md5.digest(PdfReader.getStreamBytesRaw((PRStream)obj)));
-                }
+            serDirectObject(obj, level, md);
+        }
+
+        private void serDirectObject(PdfObject obj, int level, MessageDigest md) throws IOException {
+            if (obj == null) {
+                md.update(NULL);
+            }
+            else if (obj.isStream()) {
+                md.update(STREAM);
+                serDic((PdfDictionary) obj, level - 1, md);
+                md.update(PdfReader.getStreamBytesRaw((PRStream)obj));
             }
             else if (obj.isDictionary()) {
-                serDic((PdfDictionary)obj, level - 1, bb, serialized);
+                serDic((PdfDictionary)obj, level - 1, md);
             }
             else if (obj.isArray()) {
-                serArray((PdfArray)obj, level - 1, bb, serialized);
+                serArray((PdfArray)obj, level - 1, md);
             }
             else if (obj.isString()) {
-                bb.append("$S").append(obj.toString());
+                md.update(STRING);
+                serBytes(obj, md);
             }
             else if (obj.isName()) {
-                bb.append("$N").append(obj.toString());
+                md.update(NAME);
+                serBytes(obj, md);
             }
-            else
-                bb.append("$L").append(obj.toString());
-
-            if (savedBb != null) {
-                RefKey key = new RefKey(ref);
-                if (!serialized.containsKey(key))
-                    serialized.put(key, calculateHash(bb.getBuffer()));
-                savedBb.append(bb);
+            else {
+                md.update(LITERAL);
+                serBytes(obj, md);
             }
         }
 
-        private void serDic(PdfDictionary dic, int level, ByteBuffer bb, HashMap<RefKey, Integer> serialized) throws IOException {
-            bb.append("$D");
+        private static void serBytes(PdfObject obj, MessageDigest md) {
+            byte[] bytes = obj.getBytes();
+            if (bytes == null)
+                bytes = PdfEncodings.convertToBytes(obj.toString(), null);
+            // the length keeps "ab" + "c" apart from "a" + "bc"
+            int len = bytes.length;
+            md.update((byte)(len >>> 24));
+            md.update((byte)(len >>> 16));
+            md.update((byte)(len >>> 8));
+            md.update((byte)len);
+            md.update(bytes);
+        }
+
+        private void serDic(PdfDictionary dic, int level, MessageDigest md) throws IOException {
+            md.update(DICTIONARY);
             if (level <= 0)
                 return;
             Object[] keys = dic.getKeys().toArray();
             Arrays.sort(keys);
             for (int k = 0; k < keys.length; ++k) {
-                serObject((PdfObject)keys[k], level, bb, serialized);
-                serObject(dic.get((PdfName)keys[k]), level, bb, serialized);
+                serObject((PdfObject)keys[k], level, md);
+                serObject(dic.get((PdfName)keys[k]), level, md);
             }
         }
 
-        private void serArray(PdfArray array, int level, ByteBuffer bb, HashMap<RefKey, Integer> serialized) throws IOException {
-            bb.append("$A");
+        private void serArray(PdfArray array, int level, MessageDigest md) throws IOException {
+            md.update(ARRAY);
             if (level <= 0)
                 return;
             for (int k = 0; k < array.size(); ++k) {
-                serObject(array.getPdfObject(k), level, bb, serialized);
+                serObject(array.getPdfObject(k), level, md);
             }
         }
 
-        ByteStore(PRStream str, HashMap<RefKey, Integer> serialized) throws IOException {
-            try {
-                md5 = MessageDigest.getInstance("MD5");
-            }
-            catch (Exception e) {
-                throw new ExceptionConverter(e);
-            }
-            ByteBuffer bb = new ByteBuffer();
-            int level = 100;
-            serObject(str, level, bb, serialized);
-            this.b = bb.toByteArray();
-            hash = calculateHash(this.b);
-            md5 = null;
+        ByteStore(PRStream str, HashMap<RefKey, byte[]> serialized, DigestFactory digestFactory) throws IOException {
+            this((PdfObject)str, serialized, digestFactory);
         }
 
-        ByteStore(PdfDictionary dict, HashMap<RefKey, Integer> serialized) throws IOException {
-            try {
-                md5 = MessageDigest.getInstance("MD5");
-            }
-            catch (Exception e) {
-                throw new ExceptionConverter(e);
-            }
-            ByteBuffer bb = new ByteBuffer();
+        ByteStore(PdfDictionary dict, HashMap<RefKey, byte[]> serialized, DigestFactory digestFactory) throws IOException {
+            this((PdfObject)dict, serialized, digestFactory);
+        }
+
+        private ByteStore(PdfObject obj, HashMap<RefKey, byte[]> serialized, DigestFactory digestFactory) throws IOException {
+            this.serialized = serialized;
+            this.digestFactory = digestFactory;
+            MessageDigest md = digestFactory.createDigest();
             int level = 100;
-            serObject(dict, level, bb, serialized);
-            this.b = bb.toByteArray();
+            serObject(obj, level, md);
+            this.b = md.digest();
             hash = calculateHash(this.b);
-            md5 = null;
+            this.serialized = null;
+            this.digestFactory = null;
         }
 
         private static int calculateHash(byte[] b) {
@@ -282,7 +409,10 @@ public class PdfSmartCopy extends PdfCopy {
                 return false;
             if (hashCode() != obj.hashCode())
                 return false;
-            return Arrays.equals(b, ((ByteStore)obj).b);
+            if (Arrays.equals(b, ((ByteStore)obj).b))
+                return true;
+            collided = true;
+            return false;
         }
 
         @Override
@@ -290,4 +420,4 @@ public class PdfSmartCopy extends PdfCopy {
             return hash;
         }
     }
-}
\ No newline at end of file
+}
@@ -63,6 +63,7 @@ import java.security.cert.Certificate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /** Applies extra content to the pages of a PDF document.
  * This extra content can be all the objects allowed in PdfContentByte
@@ -404,6 +405,20 @@ public class PdfStamper
         stamper.setFlatAnnotations(flat);
     }
 
+    /**
+     * Draws the appearances of the flattened fields and annotations on the pages
+     * with <CODE>executor</CODE>, one task per page. The appearances are still
+     * collected, and missing ones generated, on the thread calling <CODE>close()</CODE>
+     * and the document is the same as without an executor. Tagged and PDF/A or PDF/X
+     * documents are always flattened on the calling thread.
+     * The executor is not shut down by the stamper.
+     * @param executor the executor or <CODE>null</CODE> to flatten on the calling thread
+     * @since 5.5.6
+     */
+    public void setFlatteningExecutor(final ExecutorService executor) {
+        stamper.setFlatteningExecutor(executor);
+    }
+
     /**
      * Adds an annotation of form field in a specific page. This page number
      * can be overridden with {@link PdfAnnotation#setPlaceInPage(int)}.
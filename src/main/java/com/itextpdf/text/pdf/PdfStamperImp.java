@@ -73,7 +73,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 class PdfStamperImp extends PdfWriter {
     HashMap<PdfReader, IntHashtable> readers2intrefs = new HashMap<PdfReader, IntHashtable>();
@@ -90,6 +96,11 @@ class PdfStamperImp extends PdfWriter {
     protected boolean flat = false;
     protected boolean flatFreeText = false;
     protected boolean flatannotations = false;
+    /**
+     * The executor drawing the flattened appearances, <CODE>null</CODE> to draw them on the calling thread.
+     * @since 5.5.6
+     */
+    protected ExecutorService flatteningExecutor;
     protected int namePtr[] = {0};
     protected HashSet<String> partialFlattening = new HashSet<String>();
     protected boolean useVp = false;
@@ -895,6 +906,8 @@ class PdfStamperImp extends PdfWriter {
         if (acroForm != null) {
             acroFds = (PdfArray)PdfReader.getPdfObject(acroForm.get(PdfName.FIELDS), acroForm);
         }
+        ArrayList<FlatAppearance> placements = new ArrayList<FlatAppearance>();
+        LinkedHashMap<Integer, HashSet<Integer>> flattenedWidgets = new LinkedHashMap<Integer, HashSet<Integer>>();
         for (Map.Entry<String, Item> entry: fields.entrySet()) {
             String name = entry.getKey();
             if (!partialFlattening.isEmpty() && !partialFlattening.contains(name))
@@ -996,63 +1009,26 @@ class PdfStamperImp extends PdfWriter {
                     }
                     if (app != null) {
                         Rectangle box = PdfReader.getNormalizedRectangle(merged.getAsArray(PdfName.RECT));
-                        PdfContentByte cb = getOverContent(page);
-                        cb.setLiteral("Q ");
-                        cb.addTemplate(app, box.getLeft(), box.getBottom());
-                        cb.setLiteral("q ");
+                        placements.add(new FlatAppearance(page, app, box.getLeft(), box.getBottom()));
                     }
                 }
                 if (partialFlattening.isEmpty())
                     continue;
-                PdfDictionary pageDic = reader.getPageN(page);
-                PdfArray annots = pageDic.getAsArray(PdfName.ANNOTS);
-                if (annots == null)
+                PdfObject ran2 = item.getWidgetRef(k);
+                if (!ran2.isIndirect())
                     continue;
-                for (int idx = 0; idx < annots.size(); ++idx) {
-                    PdfObject ran = annots.getPdfObject(idx);
-                    if (!ran.isIndirect())
-                        continue;
-                    PdfObject ran2 = item.getWidgetRef(k);
-                    if (!ran2.isIndirect())
-                        continue;
-                    if (((PRIndirectReference)ran).getNumber() == ((PRIndirectReference)ran2).getNumber()) {
-                        annots.remove(idx--);
-                        PRIndirectReference wdref = (PRIndirectReference)ran2;
-                        while (true) {
-                            PdfDictionary wd = (PdfDictionary)PdfReader.getPdfObject(wdref);
-                            PRIndirectReference parentRef = (PRIndirectReference)wd.get(PdfName.PARENT);
-                            PdfReader.killIndirect(wdref);
-                            if (parentRef == null) { // reached AcroForm
-                                for (int fr = 0; fr < acroFds.size(); ++fr) {
-                                    PdfObject h = acroFds.getPdfObject(fr);
-                                    if (h.isIndirect() && ((PRIndirectReference)h).getNumber() == wdref.getNumber()) {
-                                        acroFds.remove(fr);
-                                        --fr;
-                                    }
-                                }
-                                break;
-                            }
-                            PdfDictionary parent = (PdfDictionary)PdfReader.getPdfObject(parentRef);
-                            PdfArray kids = parent.getAsArray(PdfName.KIDS);
-                            for (int fr = 0; fr < kids.size(); ++fr) {
-                                PdfObject h = kids.getPdfObject(fr);
-                                if (h.isIndirect() && ((PRIndirectReference)h).getNumber() == wdref.getNumber()) {
-                                    kids.remove(fr);
-                                    --fr;
-                                }
-                            }
-                            if (!kids.isEmpty())
-                                break;
-                            wdref = parentRef;
-                        }
-                    }
-                }
-                if (annots.isEmpty()) {
-                    PdfReader.killIndirect(pageDic.get(PdfName.ANNOTS));
-                    pageDic.remove(PdfName.ANNOTS);
+                Integer pageKey = Integer.valueOf(page);
+                HashSet<Integer> widgets = flattenedWidgets.get(pageKey);
+                if (widgets == null) {
+                    widgets = new HashSet<Integer>();
+                    flattenedWidgets.put(pageKey, widgets);
                 }
+                widgets.add(Integer.valueOf(((PRIndirectReference)ran2).getNumber()));
             }
         }
+        placeAppearances(placements);
+        if (!flattenedWidgets.isEmpty())
+            removeWidgets(flattenedWidgets, acroFds);
         if (!fieldsAdded && partialFlattening.isEmpty()) {
             for (int page = 1; page <= reader.getNumberOfPages(); ++page) {
                 PdfDictionary pageDic = reader.getPageN(page);
@@ -1140,6 +1116,7 @@ class PdfStamperImp extends PdfWriter {
             }
         }
 
+        ArrayList<FlatAppearance> placements = new ArrayList<FlatAppearance>();
         for (int page = 1; page <= reader.getNumberOfPages(); ++page) {
             PdfDictionary pageDic = reader.getPageN(page);
             PdfArray annots = pageDic.getAsArray(PdfName.ANNOTS);
@@ -1201,10 +1178,7 @@ class PdfStamperImp extends PdfWriter {
                     }
                     if (app != null) {
                         Rectangle box = PdfReader.getNormalizedRectangle(annDic.getAsArray(PdfName.RECT));
-                        PdfContentByte cb = getOverContent(page);
-                        cb.setLiteral("Q ");
-                        cb.addTemplate(app, box.getLeft(), box.getBottom());
-                        cb.setLiteral("q ");
+                        placements.add(new FlatAppearance(page, app, box.getLeft(), box.getBottom()));
 
                         annots.remove(idx);
                         --idx;
@@ -1217,6 +1191,175 @@ class PdfStamperImp extends PdfWriter {
                 pageDic.remove(PdfName.ANNOTS);
             }
         }
+        placeAppearances(placements);
+    }
+
+    /** An appearance to draw on a page when flattening a field or an annotation. */
+    private static final class FlatAppearance {
+        final int page;
+        final PdfAppearance app;
+        final float x;
+        final float y;
+
+        FlatAppearance(int page, PdfAppearance app, float x, float y) {
+            this.page = page;
+            this.app = app;
+            this.x = x;
+            this.y = y;
+        }
+
+        void placeOn(PdfContentByte cb) {
+            cb.setLiteral("Q ");
+            cb.addTemplate(app, x, y);
+            cb.setLiteral("q ");
+        }
+    }
+
+    /**
+     * Draws the appearances of flattened fields or annotations on the over content
+     * of their pages. With a flattening executor the pages are drawn concurrently;
+     * the templates, their resource names and the page stamps are registered
+     * beforehand in document order, so the result is the same as when drawing on
+     * the calling thread.
+     * @param placements the appearances, in document order
+     */
+    private void placeAppearances(List<FlatAppearance> placements) {
+        if (flatteningExecutor == null || isTagged() || isPdfIso()) {
+            for (FlatAppearance placement : placements)
+                placement.placeOn(getOverContent(placement.page));
+            return;
+        }
+        LinkedHashMap<PdfContentByte, List<FlatAppearance>> pages = new LinkedHashMap<PdfContentByte, List<FlatAppearance>>();
+        for (FlatAppearance placement : placements) {
+            PdfContentByte cb = getOverContent(placement.page);
+            PdfName name = addDirectTemplateSimple(placement.app, null);
+            cb.getPageResources().addXObject(name, placement.app.getIndirectReference());
+            List<FlatAppearance> onPage = pages.get(cb);
+            if (onPage == null) {
+                onPage = new ArrayList<FlatAppearance>();
+                pages.put(cb, onPage);
+            }
+            onPage.add(placement);
+        }
+        List<Future<?>> futures = new ArrayList<Future<?>>(pages.size());
+        for (final Map.Entry<PdfContentByte, List<FlatAppearance>> page : pages.entrySet()) {
+            futures.add(flatteningExecutor.submit(new Runnable() {
+                public void run() {
+                    for (FlatAppearance placement : page.getValue())
+                        placement.placeOn(page.getKey());
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        }
+        catch (InterruptedException e) {
+            for (Future<?> future : futures)
+                future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ExceptionConverter(e);
+        }
+        catch (ExecutionException e) {
+            for (Future<?> future : futures)
+                future.cancel(true);
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new ExceptionConverter(e);
+        }
+    }
+
+    /**
+     * Removes flattened widgets from the annotations of their pages and from the
+     * field tree, together with the fields left without kids. Every array is
+     * filtered once, whatever the number of widgets removed from it.
+     * @param widgetsByPage the object numbers of the widgets by page number
+     * @param acroFds the <CODE>/Fields</CODE> array of the form
+     */
+    private void removeWidgets(Map<Integer, HashSet<Integer>> widgetsByPage, PdfArray acroFds) {
+        ArrayList<PRIndirectReference> level = new ArrayList<PRIndirectReference>();
+        for (Map.Entry<Integer, HashSet<Integer>> entry : widgetsByPage.entrySet()) {
+            PdfDictionary pageDic = reader.getPageN(entry.getKey().intValue());
+            PdfArray annots = pageDic.getAsArray(PdfName.ANNOTS);
+            if (annots == null)
+                continue;
+            HashSet<Integer> widgets = entry.getValue();
+            ArrayList<PdfObject> list = annots.arrayList;
+            int kept = 0;
+            for (int idx = 0; idx < list.size(); ++idx) {
+                PdfObject ran = list.get(idx);
+                if (ran.isIndirect() && widgets.contains(Integer.valueOf(((PRIndirectReference)ran).getNumber())))
+                    level.add((PRIndirectReference)ran);
+                else
+                    list.set(kept++, ran);
+            }
+            list.subList(kept, list.size()).clear();
+            if (annots.isEmpty()) {
+                PdfReader.killIndirect(pageDic.get(PdfName.ANNOTS));
+                pageDic.remove(PdfName.ANNOTS);
+            }
+        }
+        HashSet<Integer> removed = new HashSet<Integer>();
+        HashSet<Integer> topFields = new HashSet<Integer>();
+        while (!level.isEmpty()) {
+            LinkedHashMap<Integer, PRIndirectReference> parents = new LinkedHashMap<Integer, PRIndirectReference>();
+            HashMap<Integer, HashSet<Integer>> removedKids = new HashMap<Integer, HashSet<Integer>>();
+            for (PRIndirectReference wdref : level) {
+                Integer number = Integer.valueOf(wdref.getNumber());
+                if (!removed.add(number))
+                    continue;
+                PdfDictionary wd = (PdfDictionary)PdfReader.getPdfObject(wdref);
+                PRIndirectReference parentRef = (PRIndirectReference)wd.get(PdfName.PARENT);
+                PdfReader.killIndirect(wdref);
+                if (parentRef == null) { // reached AcroForm
+                    topFields.add(number);
+                    continue;
+                }
+                Integer parentNumber = Integer.valueOf(parentRef.getNumber());
+                HashSet<Integer> kids = removedKids.get(parentNumber);
+                if (kids == null) {
+                    kids = new HashSet<Integer>();
+                    removedKids.put(parentNumber, kids);
+                    parents.put(parentNumber, parentRef);
+                }
+                kids.add(number);
+            }
+            level = new ArrayList<PRIndirectReference>();
+            for (Map.Entry<Integer, PRIndirectReference> parent : parents.entrySet()) {
+                PdfArray kids = ((PdfDictionary)PdfReader.getPdfObject(parent.getValue())).getAsArray(PdfName.KIDS);
+                removeReferences(kids, removedKids.get(parent.getKey()));
+                if (kids.isEmpty())
+                    level.add(parent.getValue());
+            }
+        }
+        if (!topFields.isEmpty())
+            removeReferences(acroFds, topFields);
+    }
+
+    /**
+     * Removes the indirect references to some objects from an array.
+     * @param array the array
+     * @param numbers the object numbers of the references to remove
+     */
+    private static void removeReferences(PdfArray array, Set<Integer> numbers) {
+        ArrayList<PdfObject> list = array.arrayList;
+        int kept = 0;
+        for (int idx = 0; idx < list.size(); ++idx) {
+            PdfObject h = list.get(idx);
+            if (!h.isIndirect() || !numbers.contains(Integer.valueOf(((PRIndirectReference)h).getNumber())))
+                list.set(kept++, h);
+        }
+        list.subList(kept, list.size()).clear();
+    }
+
+    /**
+     * Sets the executor drawing the appearances of the flattened fields and
+     * annotations on their pages.
+     * @param executor the executor or <CODE>null</CODE> to draw on the calling thread
+     * @since 5.5.6
+     */
+    void setFlatteningExecutor(ExecutorService executor) {
+        this.flatteningExecutor = executor;
     }
 
     protected void flatFreeTextFields() {
@@ -48,6 +48,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import com.itextpdf.text.error_messages.MessageLocalization;
@@ -118,6 +122,12 @@ public class PdfStream extends PdfDictionary {
     protected int inputStreamLength = -1;
     protected PdfWriter writer;
     protected int rawLength;
+    /**
+     * The compression started by {@link #flateCompress(int, ExecutorService)}
+     * whose result wasn't stored yet.
+     * @since 5.5.6
+     */
+    private Future<ByteArrayOutputStream> pendingCompression;
         
     static final byte STARTSTREAM[] = DocWriter.getISOBytes("stream\n");
     static final byte ENDSTREAM[] = DocWriter.getISOBytes("\nendstream");
@@ -209,6 +219,20 @@ public class PdfStream extends PdfDictionary {
 	 * @since	2.1.3
      */
     public void flateCompress(int compressionLevel) {
+        flateCompress(compressionLevel, null);
+    }
+
+    /**
+     * Compresses the stream, optionally on another thread. When an executor is given
+     * the <CODE>/Filter</CODE> entry is set immediately and the <CODE>/Length</CODE>
+     * entry gets its final value when the compression is complete, at the latest when
+     * the stream is written. The content of the stream must not be changed after this call.
+     * The compressed bytes are the same as with {@link #flateCompress(int)}.
+	 * @param compressionLevel the compression level (0 = best speed, 9 = best compression, -1 is default)
+     * @param executor the executor running the compression or <CODE>null</CODE> to compress on the calling thread
+     * @since 5.5.6
+     */
+    public void flateCompress(final int compressionLevel, final ExecutorService executor) {
         if (!Document.compress)
             return;
         // check if the flateCompress-method has already been
@@ -236,20 +260,24 @@ public class PdfStream extends PdfDictionary {
             }
         }
         try {
-            // compress
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            Deflater deflater = new Deflater(compressionLevel);
-            DeflaterOutputStream zip = new DeflaterOutputStream(stream, deflater);
-            if (streamBytes != null)
-                streamBytes.writeTo(zip);
-            else
-                zip.write(bytes);
-            zip.close();
-            deflater.end();
-            // update the object
-            streamBytes = stream;
-            bytes = null;
-            put(PdfName.LENGTH, new PdfNumber(streamBytes.size()));
+            if (executor == null) {
+                // compress
+                streamBytes = deflate(streamBytes, bytes, compressionLevel);
+                // update the object
+                bytes = null;
+                put(PdfName.LENGTH, new PdfNumber(streamBytes.size()));
+            }
+            else {
+                final ByteArrayOutputStream rawStream = streamBytes;
+                final byte[] rawBytes = bytes;
+                pendingCompression = executor.submit(new Callable<ByteArrayOutputStream>() {
+                    public ByteArrayOutputStream call() throws IOException {
+                        return deflate(rawStream, rawBytes, compressionLevel);
+                    }
+                });
+                // the real value is set by completeCompression(), putting the key now keeps the order of the keys
+                put(PdfName.LENGTH, new PdfNumber(0));
+            }
             if (filter == null) {
                 put(PdfName.FILTER, PdfName.FLATEDECODE);
             }
@@ -265,6 +293,59 @@ public class PdfStream extends PdfDictionary {
         }
     }
 
+    /**
+     * Deflates the content of a stream.
+     * @param streamBytes the content, if held in a <CODE>ByteArrayOutputStream</CODE>
+     * @param bytes the content, if <CODE>streamBytes</CODE> is <CODE>null</CODE>
+     * @param compressionLevel the compression level
+     * @return the compressed content
+     * @throws IOException on error
+     */
+    private static ByteArrayOutputStream deflate(ByteArrayOutputStream streamBytes, byte[] bytes, int compressionLevel) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Deflater deflater = BufferPool.borrowDeflater(compressionLevel);
+        DeflaterOutputStream zip = new DeflaterOutputStream(stream, deflater);
+        if (streamBytes != null)
+            streamBytes.writeTo(zip);
+        else
+            zip.write(bytes);
+        zip.close();
+        BufferPool.releaseDeflater(deflater, compressionLevel);
+        return stream;
+    }
+
+    /**
+     * Checks if a compression started by {@link #flateCompress(int, ExecutorService)} is still running.
+     * @return <CODE>true</CODE> if the compressed bytes are not available yet
+     * @since 5.5.6
+     */
+    boolean isCompressionRunning() {
+        return pendingCompression != null && !pendingCompression.isDone();
+    }
+
+    /**
+     * Waits for a compression started by {@link #flateCompress(int, ExecutorService)}
+     * and updates the stream with its result. Does nothing if there is no such compression.
+     * @since 5.5.6
+     */
+    protected void completeCompression() {
+        if (pendingCompression == null)
+            return;
+        try {
+            streamBytes = pendingCompression.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExceptionConverter(e);
+        }
+        catch (ExecutionException e) {
+            throw new ExceptionConverter(e.getCause() instanceof Exception ? (Exception)e.getCause() : e);
+        }
+        pendingCompression = null;
+        bytes = null;
+        put(PdfName.LENGTH, new PdfNumber(streamBytes.size()));
+    }
+
 //    public int getStreamLength(PdfWriter writer) {
 //        if (dicBytes == null)
 //            toPdf(writer);
@@ -282,6 +363,7 @@ public class PdfStream extends PdfDictionary {
      * @see com.itextpdf.text.pdf.PdfDictionary#toPdf(com.itextpdf.text.pdf.PdfWriter, java.io.OutputStream)
      */
     public void toPdf(PdfWriter writer, OutputStream os) throws IOException {
+        completeCompression();
         if (inputStream != null && compressed)
             put(PdfName.FILTER, PdfName.FLATEDECODE);
         PdfEncryption crypto = null;
@@ -320,7 +402,7 @@ public class PdfStream extends PdfDictionary {
                 fout = ose = crypto.getEncryptionStream(fout);
             Deflater deflater = null;
             if (compressed) {
-                deflater = new Deflater(compressionLevel);
+                deflater = BufferPool.borrowDeflater(compressionLevel);
                 fout = def = new DeflaterOutputStream(fout, deflater, 0x8000);
             }
             
@@ -334,7 +416,7 @@ public class PdfStream extends PdfDictionary {
             }
             if (def != null) {
                 def.finish();
-                deflater.end();
+                BufferPool.releaseDeflater(deflater, compressionLevel);
             }
             if (ose != null)
                 ose.finish();
@@ -367,6 +449,7 @@ public class PdfStream extends PdfDictionary {
      * @throws IOException on error
      */    
     public void writeContent(OutputStream os) throws IOException {
+        completeCompression();
         if (streamBytes != null)
             streamBytes.writeTo(os);
         else if (bytes != null)
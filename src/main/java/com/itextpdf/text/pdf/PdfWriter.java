@@ -80,10 +80,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 
 /**
  * A <CODE>DocWriter</CODE> class for PDF.
@@ -241,12 +242,50 @@ public class PdfWriter extends DocWriter implements
 
         }
 
+        /**
+         * An object that can't be written yet because it, or an object added before it,
+         * is still being compressed on the writer's compression executor.
+         * @since 5.5.6
+         */
+        static class PendingObject {
+            /** the object, if it still has to be serialized */
+            final PdfIndirectObject indirect;
+            /** the serialized object, if it was serialized when it was added */
+            final byte[] bytes;
+            final int refNumber;
+            /** the generation, or -1 if the object is written with a type 1 cross-reference entry */
+            final int generation;
+
+            PendingObject(final PdfIndirectObject indirect, final byte[] bytes, final int refNumber, final int generation) {
+                this.indirect = indirect;
+                this.bytes = bytes;
+                this.refNumber = refNumber;
+                this.generation = generation;
+            }
+
+            boolean isReady() {
+                return indirect == null || !((PdfStream)indirect.object).isCompressionRunning();
+            }
+        }
+
         private static final int OBJSINSTREAM = 200;
 
         // membervariables
 
-        /** array containing the cross-reference table of the normal objects. */
-        protected final TreeSet<PdfCrossReference> xrefs;
+        /** the initial number of entries of the cross-reference table */
+        private static final int XREF_INITIAL_SIZE = 256;
+        /** marks the entries of the cross-reference table that are set */
+        private static final int XREF_SET = 1 << 18;
+
+        /**
+         * The cross-reference table, indexed by object number: the type and the generation
+         * of every entry, as <CODE>XREF_SET | type &lt;&lt; 16 | generation</CODE>, or 0 if there is no entry.
+         */
+        private int[] xrefEntries = new int[XREF_INITIAL_SIZE];
+        /** the offsets of the entries of the cross-reference table, indexed by object number */
+        private long[] xrefOffsets = new long[XREF_INITIAL_SIZE];
+        /** the highest object number in the cross-reference table, plus one */
+        private int xrefSize;
         protected int refnum;
         /** the current byte position in the body. */
         protected long position;
@@ -255,6 +294,8 @@ public class PdfWriter extends DocWriter implements
         protected ByteBuffer streamObjects;
         protected int currentObjNum;
         protected int numObj = 0;
+        /** the objects waiting to be written, in the order they were added */
+        protected final LinkedList<PendingObject> pendingObjects = new LinkedList<PendingObject>();
 
         // constructors
 
@@ -263,8 +304,7 @@ public class PdfWriter extends DocWriter implements
          * @param writer
          */
         protected PdfBody(final PdfWriter writer) {
-            xrefs = new TreeSet<PdfCrossReference>();
-            xrefs.add(new PdfCrossReference(0, 0, GENERATION_MAX));
+            setXref(0, 0, 0, GENERATION_MAX);
             position = writer.getOs().getCounter();
             refnum = 1;
             this.writer = writer;
@@ -302,11 +342,13 @@ public class PdfWriter extends DocWriter implements
             int first = index.size();
             index.append(streamObjects);
             PdfStream stream = new PdfStream(index.toByteArray());
-            stream.flateCompress(writer.getCompressionLevel());
+            stream.flateCompress(writer.getCompressionLevel(), writer.getCompressionExecutor());
             stream.put(PdfName.TYPE, PdfName.OBJSTM);
             stream.put(PdfName.N, new PdfNumber(numObj));
             stream.put(PdfName.FIRST, new PdfNumber(first));
             add(stream, currentObjNum);
+            index.release();
+            streamObjects.release();
             index = null;
             streamObjects = null;
             numObj = 0;
@@ -345,10 +387,49 @@ public class PdfWriter extends DocWriter implements
 
         protected int getIndirectReferenceNumber() {
             int n = refnum++;
-            xrefs.add(new PdfCrossReference(n, 0, GENERATION_MAX));
+            if (n >= xrefSize || xrefEntries[n] == 0)
+                setXref(n, 0, 0, GENERATION_MAX);
             return n;
         }
 
+        /**
+         * Sets an entry of the cross-reference table, replacing the entry with the same number.
+         * @param refNumber the object number
+         * @param type the type of the entry: 0 for a free object, 1 for an object in the body
+         * and 2 for an object in an object stream
+         * @param offset the offset of the object or the number of its object stream
+         * @param generation the generation or the index of the object in its object stream
+         * @since 5.5.6
+         */
+        void setXref(final int refNumber, final int type, final long offset, final int generation) {
+            if (refNumber >= xrefEntries.length) {
+                int length = Math.max(xrefEntries.length * 2, refNumber + 1);
+                int[] entries = new int[length];
+                System.arraycopy(xrefEntries, 0, entries, 0, xrefSize);
+                xrefEntries = entries;
+                long[] offsets = new long[length];
+                System.arraycopy(xrefOffsets, 0, offsets, 0, xrefSize);
+                xrefOffsets = offsets;
+            }
+            xrefEntries[refNumber] = XREF_SET | type << 16 | generation;
+            xrefOffsets[refNumber] = offset;
+            if (refNumber >= xrefSize)
+                xrefSize = refNumber + 1;
+        }
+
+        /**
+         * Removes an entry from the cross-reference table.
+         * @param refNumber the object number
+         * @since 5.5.6
+         */
+        void removeXref(final int refNumber) {
+            if (refNumber >= xrefSize)
+                return;
+            xrefEntries[refNumber] = 0;
+            while (xrefSize > 0 && xrefEntries[xrefSize - 1] == 0)
+                --xrefSize;
+        }
+
         /**
          * Adds a <CODE>PdfObject</CODE> to the body given an already existing
          * PdfIndirectReference.
@@ -381,10 +462,7 @@ public class PdfWriter extends DocWriter implements
             if (inObjStm && object.canBeInObjStm() && writer.isFullCompression()) {
                 PdfCrossReference pxref = addToObjStm(object, refNumber);
                 PdfIndirectObject indirect = new PdfIndirectObject(refNumber, object, writer);
-                if (!xrefs.add(pxref)) {
-                    xrefs.remove(pxref);
-                    xrefs.add(pxref);
-                }
+                setXref(pxref.refnum, pxref.type, pxref.offset, pxref.generation);
                 return indirect;
             }
             else {
@@ -402,25 +480,84 @@ public class PdfWriter extends DocWriter implements
         }
 
         protected void write(final PdfIndirectObject indirect, final int refNumber) throws IOException {
-            PdfCrossReference pxref = new PdfCrossReference(refNumber, position);
-            if (!xrefs.add(pxref)) {
-                xrefs.remove(pxref);
-                xrefs.add(pxref);
-            }
+            if (deferWrite(indirect, refNumber, -1))
+                return;
+            setXref(refNumber, 1, position, 0);
             indirect.writeTo(writer.getOs());
             position = writer.getOs().getCounter();
         }
 
         protected void write(final PdfIndirectObject indirect, final int refNumber, final int generation) throws IOException {
-            PdfCrossReference pxref = new PdfCrossReference(refNumber, position, generation);
-            if (!xrefs.add(pxref)) {
-                xrefs.remove(pxref);
-                xrefs.add(pxref);
-            }
+            if (deferWrite(indirect, refNumber, generation))
+                return;
+            setXref(refNumber, 0, position, generation);
             indirect.writeTo(writer.getOs());
             position = writer.getOs().getCounter();
         }
 
+        /**
+         * Queues an object instead of writing it if it's a stream still being compressed
+         * or if other objects are already waiting, so that the objects are always written
+         * in the order they were added. Objects that don't wait for a compression are
+         * serialized immediately.
+         * @param indirect the object to write
+         * @param refNumber the object number
+         * @param generation the generation, or -1 for a type 1 cross-reference entry
+         * @return <CODE>true</CODE> if the object was queued
+         * @throws IOException on error
+         * @since 5.5.6
+         */
+        private boolean deferWrite(final PdfIndirectObject indirect, final int refNumber, final int generation) throws IOException {
+            PdfObject object = indirect.object;
+            boolean compressing = object instanceof PdfStream && ((PdfStream)object).isCompressionRunning();
+            if (pendingObjects.isEmpty() && !compressing)
+                return false;
+            if (compressing) {
+                pendingObjects.add(new PendingObject(indirect, null, refNumber, generation));
+            }
+            else if (object instanceof PdfStream && ((PdfStream)object).inputStream != null) {
+                // the length of these streams must be known as soon as they are added
+                writePendingObjects(true);
+                return false;
+            }
+            else {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                indirect.writeTo(baos);
+                pendingObjects.add(new PendingObject(null, baos.toByteArray(), refNumber, generation));
+            }
+            writePendingObjects(false);
+            return true;
+        }
+
+        /**
+         * Writes the queued objects that are ready. If more objects are queued than
+         * allowed by the writer, it waits for the oldest ones.
+         * @param all if <CODE>true</CODE>, waits for all the compressions and writes all the objects
+         * @throws IOException on error
+         * @since 5.5.6
+         */
+        protected void writePendingObjects(final boolean all) throws IOException {
+            while (!pendingObjects.isEmpty()) {
+                PendingObject pending = pendingObjects.getFirst();
+                if (!all && !pending.isReady() && pendingObjects.size() <= writer.getMaxPendingObjects())
+                    break;
+                pendingObjects.removeFirst();
+                if (pending.generation < 0)
+                    setXref(pending.refNumber, 1, position, 0);
+                else
+                    setXref(pending.refNumber, 0, position, pending.generation);
+                if (pending.bytes != null) {
+                    writer.getOs().write(pending.bytes);
+                }
+                else {
+                    if (writer.crypto != null)
+                        writer.crypto.setHashKey(pending.indirect.number, pending.indirect.generation);
+                    pending.indirect.writeTo(writer.getOs());
+                }
+                position = writer.getOs().getCounter();
+            }
+        }
+
         /**
          * Returns the offset of the Cross-Reference table.
          *
@@ -438,7 +575,7 @@ public class PdfWriter extends DocWriter implements
          */
 
         public int size() {
-            return Math.max(xrefs.last().getRefnum() + 1, refnum);
+            return Math.max(xrefSize, refnum);
         }
 
         /**
@@ -454,23 +591,27 @@ public class PdfWriter extends DocWriter implements
 
         public void writeCrossReferenceTable(final OutputStream os, final PdfIndirectReference root, final PdfIndirectReference info, final PdfIndirectReference encryption, final PdfObject fileID, final long prevxref) throws IOException {
             int refNumber = 0;
-            if (writer.isFullCompression()) {
+            if (writer.isFullCompression())
                 flushObjStm();
+            writePendingObjects(true);
+            if (writer.isFullCompression()) {
                 refNumber = getIndirectReferenceNumber();
-                xrefs.add(new PdfCrossReference(refNumber, position));
+                setXref(refNumber, 1, position, 0);
             }
-            PdfCrossReference entry = xrefs.first();
-            int first = entry.getRefnum();
+            int first = 0;
             int len = 0;
             ArrayList<Integer> sections = new ArrayList<Integer>();
-            for (PdfCrossReference pdfCrossReference : xrefs) {
-                entry = pdfCrossReference;
-                if (first + len == entry.getRefnum())
+            for (int k = 0; k < xrefSize; ++k) {
+                if (xrefEntries[k] == 0)
+                    continue;
+                if (first + len == k)
                     ++len;
                 else {
-                    sections.add(Integer.valueOf(first));
-                    sections.add(Integer.valueOf(len));
-                    first = entry.getRefnum();
+                    if (len > 0) {
+                        sections.add(Integer.valueOf(first));
+                        sections.add(Integer.valueOf(len));
+                    }
+                    first = k;
                     len = 1;
                 }
             }
@@ -484,13 +625,20 @@ public class PdfWriter extends DocWriter implements
                         break;
                     mask >>>= 8;
                 }
-                ByteBuffer buf = new ByteBuffer();
-
-                for (Object element : xrefs) {
-                    entry = (PdfCrossReference) element;
-                    entry.toPdf(mid, buf);
+                ByteBuffer buf = new ByteBuffer(xrefSize * (mid + 3));
+                for (int k = 0; k < xrefSize; ++k) {
+                    int entry = xrefEntries[k];
+                    if (entry == 0)
+                        continue;
+                    long offset = xrefOffsets[k];
+                    buf.append_i(entry >>> 16 & 3);
+                    for (int m = mid; --m >= 0; )
+                        buf.append_i((int)(offset >>> 8 * m & 0xff));
+                    buf.append_i(entry >>> 8 & 0xff);
+                    buf.append_i(entry & 0xff);
                 }
                 PdfStream xr = new PdfStream(buf.toByteArray());
+                buf.release();
                 buf = null;
                 xr.flateCompress(writer.getCompressionLevel());
                 xr.put(PdfName.SIZE, new PdfNumber(size()));
@@ -518,7 +666,12 @@ public class PdfWriter extends DocWriter implements
             }
             else {
                 os.write(getISOBytes("xref\n"));
-                Iterator<PdfCrossReference> i = xrefs.iterator();
+                // every entry is exactly 20 bytes: "oooooooooo ggggg n \n"
+                byte[] line = new byte[20];
+                line[10] = ' ';
+                line[16] = ' ';
+                line[18] = ' ';
+                line[19] = '\n';
                 for (int k = 0; k < sections.size(); k += 2) {
                     first = sections.get(k).intValue();
                     len = sections.get(k + 1).intValue();
@@ -526,9 +679,19 @@ public class PdfWriter extends DocWriter implements
                     os.write(getISOBytes(" "));
                     os.write(getISOBytes(String.valueOf(len)));
                     os.write('\n');
-                    while (len-- > 0) {
-                        entry = i.next();
-                        entry.toPdf(os);
+                    for (int n = first; n < first + len; ++n) {
+                        long offset = xrefOffsets[n];
+                        int generation = xrefEntries[n] & 0xffff;
+                        for (int m = 9; m >= 0; --m) {
+                            line[m] = (byte)('0' + offset % 10);
+                            offset /= 10;
+                        }
+                        for (int m = 15; m >= 11; --m) {
+                            line[m] = (byte)('0' + generation % 10);
+                            generation /= 10;
+                        }
+                        line[17] = (byte)((xrefEntries[n] & 0xffff) == GENERATION_MAX ? 'f' : 'n');
+                        os.write(line);
                     }
                 }
             }
@@ -2257,6 +2420,47 @@ public class PdfWriter extends DocWriter implements
             this.compressionLevel = compressionLevel;
     }
 
+    /** The executor compressing the streams, <CODE>null</CODE> to compress them on the calling thread. */
+    protected ExecutorService compressionExecutor;
+
+    /** The maximum number of objects waiting for a compression before the writer blocks. */
+    protected int maxPendingObjects = 16;
+
+    /**
+     * Gets the executor compressing the streams.
+     * @return the executor or <CODE>null</CODE> if the streams are compressed on the calling thread
+     * @since 5.5.6
+     */
+    public ExecutorService getCompressionExecutor() {
+        return compressionExecutor;
+    }
+
+    /**
+     * Gets the maximum number of objects that can wait for a compression.
+     * @return the maximum number of waiting objects
+     * @since 5.5.6
+     */
+    public int getMaxPendingObjects() {
+        return maxPendingObjects;
+    }
+
+    /**
+     * Compresses the page contents, form XObjects, images, font programs and object streams
+     * on <CODE>executor</CODE> while the writer goes on. Objects are still written in the order
+     * they are added, so the document is byte for byte the same as without an executor.
+     * Objects added after a stream that is still being compressed are kept in memory until
+     * the stream is written; at most <CODE>maxPendingObjects</CODE> objects are kept, after that
+     * the writer waits for the oldest compression to complete.
+     * The executor is not shut down by the writer.
+     * @param executor the executor, or <CODE>null</CODE> to compress on the calling thread
+     * @param maxPendingObjects the maximum number of objects waiting to be written
+     * @since 5.5.6
+     */
+    public void setCompressionExecutor(final ExecutorService executor, final int maxPendingObjects) {
+        this.compressionExecutor = executor;
+        this.maxPendingObjects = Math.max(1, maxPendingObjects);
+    }
+
 //  [F3] adding fonts
 
     /** The fonts of this document */
@@ -2290,7 +2494,8 @@ public class PdfWriter extends DocWriter implements
     void eliminateFontSubset(final PdfDictionary fonts) {
         for (Object element : documentFonts.values()) {
             FontDetails ft = (FontDetails)element;
-            if (fonts.get(ft.getFontName()) != null)
+            // Identity-H fonts stay subset in the form resources too, see PdfAppearance.setFontAndSize
+            if (fonts.get(ft.getFontName()) != null && ft.fontType != BaseFont.FONT_TYPE_TTUNI)
                 ft.setSubset(false);
         }
     }
@@ -2352,17 +2557,31 @@ public class PdfWriter extends DocWriter implements
      * @throws IOException on error
      */
     public void releaseTemplate(final PdfTemplate tp) throws IOException {
+        writeTemplate(tp);
+    }
+
+    /**
+     * Writes a template as {@link #releaseTemplate(PdfTemplate)} does.
+     * @param tp the template to write
+     * @return the stream that was written or <CODE>null</CODE> if nothing was written
+     * @throws IOException on error
+     * @since 5.5.6
+     */
+    PdfStream writeTemplate(final PdfTemplate tp) throws IOException {
         PdfIndirectReference ref = tp.getIndirectReference();
         Object[] objs = formXObjects.get(ref);
         if (objs == null || objs[1] == null)
-            return;
+            return null;
         PdfTemplate template = (PdfTemplate)objs[1];
         if (template.getIndirectReference() instanceof PRIndirectReference)
-            return;
+            return null;
         if (template.getType() == PdfTemplate.TYPE_TEMPLATE) {
-            addToBody(template.getFormXObject(compressionLevel), template.getIndirectReference());
+            PdfStream stream = template.getFormXObject(compressionLevel);
+            addToBody(stream, template.getIndirectReference());
             objs[1] = null;
+            return stream;
         }
+        return null;
     }
 
 //  [F5] adding pages imported form other PDF documents
@@ -3165,6 +3384,57 @@ public class PdfWriter extends DocWriter implements
     /** This is the list with all the images in the document. */
     private final HashMap<Long, PdfName> images = new HashMap<Long, PdfName>();
 
+    /** The images in the document by the hash of their content. */
+    private final HashMap<PdfImageCache.Key, PdfName> imageContents = new HashMap<PdfImageCache.Key, PdfName>();
+
+    /** <CODE>true</CODE> if equal images are only added once. */
+    private boolean deduplicateImages = false;
+
+    /** The cache of encoded images shared with other writers, or <CODE>null</CODE>. */
+    private PdfImageCache imageCache;
+
+    /**
+     * Use this method to add the images with the same content only once, even if they
+     * are different <CODE>Image</CODE> objects, for instance when a logo is loaded with
+     * <CODE>Image.getInstance()</CODE> for every page. The images are compared by a hash
+     * of their data, their mask, their color space and their other properties.
+     * Images read from a URL, templates and images in a layer are never compared.
+     * @param deduplicateImages <CODE>true</CODE> to add the images with the same content only once
+     * @since 5.5.6
+     */
+    public void setDeduplicateImages(final boolean deduplicateImages) {
+        this.deduplicateImages = deduplicateImages;
+    }
+
+    /**
+     * Checks if the images with the same content are only added once.
+     * @return <CODE>true</CODE> if the images with the same content are only added once
+     * @since 5.5.6
+     */
+    public boolean isDeduplicateImages() {
+        return deduplicateImages || imageCache != null;
+    }
+
+    /**
+     * Use this method to share the encoded images with other writers. An image that
+     * is in the cache isn't encoded nor compressed again. Setting a cache also adds the
+     * images with the same content only once, as {@link #setDeduplicateImages(boolean)}.
+     * @param imageCache the cache, or <CODE>null</CODE> to encode every image
+     * @since 5.5.6
+     */
+    public void setImageCache(final PdfImageCache imageCache) {
+        this.imageCache = imageCache;
+    }
+
+    /**
+     * Gets the cache of encoded images shared with other writers.
+     * @return the cache, or <CODE>null</CODE>
+     * @since 5.5.6
+     */
+    public PdfImageCache getImageCache() {
+        return imageCache;
+    }
+
     /**
      * Use this method to adds an image to the document
      * but not to the page resources. It is used with
@@ -3218,13 +3488,33 @@ public class PdfWriter extends DocWriter implements
                     imageDictionary.put(rname, dref);
                     return rname;
                 }
+                PdfImageCache.Key key = isDeduplicateImages() ? PdfImageCache.keyOf(image) : null;
+                if (key != null) {
+                    PdfName cname = imageContents.get(key);
+                    if (cname != null) {
+                        images.put(image.getMySerialId(), cname);
+                        return cname;
+                    }
+                }
                 Image maskImage = image.getImageMask();
                 PdfIndirectReference maskRef = null;
                 if (maskImage != null) {
                     PdfName mname = images.get(maskImage.getMySerialId());
                     maskRef = getImageReference(mname);
                 }
-                PdfImage i = new PdfImage(image, "img" + images.size(), maskRef);
+                PdfImage i;
+                if (key != null && imageCache != null) {
+                    PdfImage encoded = imageCache.get(key);
+                    if (encoded == null) {
+                        // the shared copy needs the compressed bytes right away
+                        i = new PdfImage(image, "img" + images.size(), maskRef, null);
+                        imageCache.put(key, new PdfImage(i, null, null, null));
+                    }
+                    else
+                        i = new PdfImage(encoded, image, "img" + images.size(), maskRef);
+                }
+                else
+                    i = new PdfImage(image, "img" + images.size(), maskRef, compressionExecutor);
                 if (image instanceof ImgJBIG2) {
                     byte[] globals = ((ImgJBIG2) image).getGlobalBytes();
                     if (globals != null) {
@@ -3251,6 +3541,8 @@ public class PdfWriter extends DocWriter implements
                 }
                 add(i, fixedRef);
                 name = i.name();
+                if (key != null)
+                    imageContents.put(key, name);
             }
             images.put(image.getMySerialId(), name);
         }
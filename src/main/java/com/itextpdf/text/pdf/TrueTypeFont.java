@@ -153,6 +153,10 @@ class TrueTypeFont extends BaseFont {
      * It is 0 for TTF and may vary for TTC depending on the chosen font.
      */
     protected int directoryOffset;
+    /** The tables read by the last subset of this font, reused by the next subsets.
+     * @since 5.5.6
+     */
+    private TrueTypeFontSubSet.FontTables subsetTables;
     /** The index for the TTC font. It is an empty <CODE>String</CODE> for a
      * TTF file.
      */
@@ -202,6 +206,9 @@ class TrueTypeFont extends BaseFont {
      * normalized 1000 units as an <CODE>Integer</CODE>. This value is usually negative.
      */
     protected IntHashtable kerning = new IntHashtable();
+
+    /** The glyph index of every char, -1 if the font doesn't have it, used for the kerning. */
+    private volatile CharMetricsTable glyphTable;
     
     /**
      * The font name.
@@ -1023,14 +1030,25 @@ class TrueTypeFont extends BaseFont {
      */
     @Override
     public int getKerning(int char1, int char2) {
-        int metrics[] = getMetricsTT(char1);
-        if (metrics == null)
+        if (kerning.size() == 0)
             return 0;
-        int c1 = metrics[0];
-        metrics = getMetricsTT(char2);
-        if (metrics == null)
+        CharMetricsTable glyphs = glyphTable;
+        if (glyphs == null) {
+            glyphs = new CharMetricsTable() {
+                @Override
+                int compute(int c) {
+                    int metrics[] = getMetricsTT(c);
+                    return metrics == null ? -1 : metrics[0];
+                }
+            };
+            glyphTable = glyphs;
+        }
+        int c1 = glyphs.get(char1);
+        if (c1 < 0)
+            return 0;
+        int c2 = glyphs.get(char2);
+        if (c2 < 0)
             return 0;
-        int c2 = metrics[0];
         return kerning.get((c1 << 16) + c2);
     }
 
@@ -1155,7 +1173,7 @@ class TrueTypeFont extends BaseFont {
         return dic;
     }
 
-    protected byte[] getFullFont() throws IOException {
+    synchronized protected byte[] getFullFont() throws IOException {
         RandomAccessFileOrArray rf2 = null;
         try {
             rf2 = new RandomAccessFileOrArray(rf);
@@ -1170,8 +1188,10 @@ class TrueTypeFont extends BaseFont {
     }
 
     synchronized protected byte[] getSubSet(HashSet glyphs, boolean subsetp) throws IOException, DocumentException {
-        TrueTypeFontSubSet sb = new TrueTypeFontSubSet(fileName, new RandomAccessFileOrArray(rf), glyphs, directoryOffset, true, !subsetp);
-        return sb.process();
+        TrueTypeFontSubSet sb = new TrueTypeFontSubSet(fileName, new RandomAccessFileOrArray(rf), glyphs, directoryOffset, true, !subsetp, subsetTables);
+        byte b[] = sb.process();
+        subsetTables = sb.getFontTables();
+        return b;
     }
 
     protected static int[] compactRanges(ArrayList<int[]> ranges) {
@@ -1291,7 +1311,7 @@ class TrueTypeFont extends BaseFont {
         String subsetPrefix = "";
         if (embedded) {
             if (cff) {
-                pobj = new StreamFont(readCffFont(), "Type1C", compressionLevel);
+                pobj = new StreamFont(readCffFont(), "Type1C", compressionLevel, writer.getCompressionExecutor());
                 obj = writer.addToBody(pobj);
                 ind_font = obj.getIndirectReference();
             }
@@ -1326,7 +1346,7 @@ class TrueTypeFont extends BaseFont {
                     b = getFullFont();
                 }
                 int lengths[] = new int[]{b.length};
-                pobj = new StreamFont(b, lengths, compressionLevel);
+                pobj = new StreamFont(b, lengths, compressionLevel, writer.getCompressionExecutor());
                 obj = writer.addToBody(pobj);
                 ind_font = obj.getIndirectReference();
             }
@@ -1347,7 +1367,7 @@ class TrueTypeFont extends BaseFont {
      * @return	a byte array
      * @since	2.1.3
      */
-    protected byte[] readCffFont() throws IOException {
+    synchronized protected byte[] readCffFont() throws IOException {
         RandomAccessFileOrArray rf2 = new RandomAccessFileOrArray(rf);
         byte b[] = new byte[cffLength];
         try {
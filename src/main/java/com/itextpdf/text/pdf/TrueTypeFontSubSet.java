@@ -78,6 +78,8 @@ class TrueTypeFontSubSet {
     static final int WE_HAVE_AN_X_AND_Y_SCALE = 64;
     static final int WE_HAVE_A_TWO_BY_TWO = 128;
 
+    static final int NO_COMPONENTS[] = new int[0];
+
 
     /** Contains the location of the several tables. The key is the name of
      * the table and the value is an <CODE>int[3]</CODE> where position 0
@@ -106,6 +108,7 @@ class TrueTypeFontSubSet {
     protected byte outFont[];
     protected int fontPtr;
     protected int directoryOffset;
+    protected FontTables fontTables;
 
     /** Creates a new TrueTypeFontSubSet
      * @param directoryOffset The offset from the start of the file to the table directory
@@ -114,15 +117,37 @@ class TrueTypeFontSubSet {
      * @param includeCmap <CODE>true</CODE> if the table cmap is to be included in the generated font
      */
     TrueTypeFontSubSet(String fileName, RandomAccessFileOrArray rf, HashSet<Integer> glyphsUsed, int directoryOffset, boolean includeCmap, boolean includeExtras) {
+        this(fileName, rf, glyphsUsed, directoryOffset, includeCmap, includeExtras, null);
+    }
+
+    /** Creates a new TrueTypeFontSubSet that reuses the tables read by a previous subset
+     * of the same font.
+     * @param directoryOffset The offset from the start of the file to the table directory
+     * @param fileName the file name of the font
+     * @param glyphsUsed the glyphs used
+     * @param includeCmap <CODE>true</CODE> if the table cmap is to be included in the generated font
+     * @param fontTables the tables of the font or <CODE>null</CODE> to read them from the file
+     * @since 5.5.6
+     */
+    TrueTypeFontSubSet(String fileName, RandomAccessFileOrArray rf, HashSet<Integer> glyphsUsed, int directoryOffset, boolean includeCmap, boolean includeExtras, FontTables fontTables) {
         this.fileName = fileName;
         this.rf = rf;
         this.glyphsUsed = glyphsUsed;
         this.includeCmap = includeCmap;
         this.includeExtras = includeExtras;
         this.directoryOffset = directoryOffset;
+        this.fontTables = fontTables;
         glyphsInList = new ArrayList<Integer>(glyphsUsed);
     }
 
+    /** Gets the tables read from the font, to be reused by the next subset of the same font.
+     * @return the tables of the font or <CODE>null</CODE> if the font was not processed
+     * @since 5.5.6
+     */
+    FontTables getFontTables() {
+        return fontTables;
+    }
+
     /** Does the actual work of subsetting the font.
      * @throws IOException on error
      * @throws DocumentException on error
@@ -131,8 +156,16 @@ class TrueTypeFontSubSet {
     byte[] process() throws IOException, DocumentException {
         try {
             rf.reOpen();
-            createTableDirectory();
-            readLoca();
+            if (fontTables == null) {
+                createTableDirectory();
+                readLoca();
+                fontTables = new FontTables(tableDirectory, locaShortTable, locaTable);
+            }
+            else {
+                tableDirectory = fontTables.tableDirectory;
+                locaShortTable = fontTables.locaShortTable;
+                locaTable = fontTables.locaTable;
+            }
             flatGlyphs();
             createNewGlyphTables();
             locaTobytes();
@@ -223,8 +256,14 @@ class TrueTypeFontSubSet {
                 newLocaTableOut = null;
             }
             else {
-                rf.seek(tableLocation[TABLE_OFFSET]);
-                rf.readFully(outFont, fontPtr, tableLocation[TABLE_LENGTH]);
+                byte table[] = fontTables.tables.get(name);
+                if (table == null) {
+                    table = new byte[tableLocation[TABLE_LENGTH]];
+                    rf.seek(tableLocation[TABLE_OFFSET]);
+                    rf.readFully(table);
+                    fontTables.tables.put(name, table);
+                }
+                System.arraycopy(table, 0, outFont, fontPtr, table.length);
                 fontPtr += tableLocation[TABLE_LENGTH] + 3 & ~3;
             }
         }
@@ -289,6 +328,9 @@ class TrueTypeFontSubSet {
         newGlyfTable = new byte[glyfSize];
         int glyfPtr = 0;
         int listGlyf = 0;
+        // consecutive glyphs are contiguous in the glyf table and are read at once
+        int runStart = 0;
+        int runPtr = 0;
         for (int k = 0; k < newLocaTable.length; ++k) {
             newLocaTable[k] = glyfPtr;
             if (listGlyf < activeGlyphs.length && activeGlyphs[listGlyf] == k) {
@@ -297,12 +339,23 @@ class TrueTypeFontSubSet {
                 int start = locaTable[k];
                 int len = locaTable[k + 1] - start;
                 if (len > 0) {
-                    rf.seek(tableGlyphOffset + start);
-                    rf.readFully(newGlyfTable, glyfPtr, len);
+                    if (runStart + glyfPtr - runPtr != start) {
+                        readGlyphs(runStart, runPtr, glyfPtr - runPtr);
+                        runStart = start;
+                        runPtr = glyfPtr;
+                    }
                     glyfPtr += len;
                 }
             }
         }
+        readGlyphs(runStart, runPtr, glyfPtr - runPtr);
+    }
+
+    private void readGlyphs(int start, int glyfPtr, int len) throws IOException {
+        if (len > 0) {
+            rf.seek(tableGlyphOffset + start);
+            rf.readFully(newGlyfTable, glyfPtr, len);
+        }
     }
 
     protected void locaTobytes() {
@@ -340,23 +393,46 @@ class TrueTypeFontSubSet {
     }
 
     protected void checkGlyphComposite(int glyph) throws IOException {
+        Integer key = Integer.valueOf(glyph);
+        int components[] = fontTables.components.get(key);
+        if (components == null) {
+            components = readGlyphComponents(glyph);
+            fontTables.components.put(key, components);
+        }
+        for (int component : components) {
+            Integer cGlyph = Integer.valueOf(component);
+            if (!glyphsUsed.contains(cGlyph)) {
+                glyphsUsed.add(cGlyph);
+                glyphsInList.add(cGlyph);
+            }
+        }
+    }
+
+    /** Reads the glyphs a composite glyph is made of.
+     * @param glyph the glyph
+     * @return the component glyphs, empty if the glyph is not composite
+     * @throws IOException the font file could not be read
+     * @since 5.5.6
+     */
+    protected int[] readGlyphComponents(int glyph) throws IOException {
         int start = locaTable[glyph];
         if (start == locaTable[glyph + 1]) // no contour
-            return;
+            return NO_COMPONENTS;
         rf.seek(tableGlyphOffset + start);
         int numContours = rf.readShort();
         if (numContours >= 0)
-            return;
+            return NO_COMPONENTS;
         rf.skipBytes(8);
+        ArrayList<Integer> components = new ArrayList<Integer>();
         for(;;) {
             int flags = rf.readUnsignedShort();
-            Integer cGlyph = Integer.valueOf(rf.readUnsignedShort());
-            if (!glyphsUsed.contains(cGlyph)) {
-                glyphsUsed.add(cGlyph);
-                glyphsInList.add(cGlyph);
+            components.add(Integer.valueOf(rf.readUnsignedShort()));
+            if ((flags & MORE_COMPONENTS) == 0) {
+                int result[] = new int[components.size()];
+                for (int k = 0; k < result.length; ++k)
+                    result[k] = components.get(k).intValue();
+                return result;
             }
-            if ((flags & MORE_COMPONENTS) == 0)
-                return;
             int skip;
             if ((flags & ARG_1_AND_2_ARE_WORDS) != 0)
                 skip = 4;
@@ -422,4 +498,25 @@ class TrueTypeFontSubSet {
         }
         return v0 + (v1 << 8) + (v2 << 16) + (v3 << 24);
     }
+
+    /** The parts of a font that do not depend on the glyphs used: the table directory,
+     * the glyph locations, the tables copied unchanged to every subset and the
+     * components of the glyphs checked so far. They are read by the first subset
+     * and shared by the next subsets of the same font, which then read only the
+     * bytes of the glyphs they use. Access must be synchronized by the font.
+     * @since 5.5.6
+     */
+    static class FontTables {
+        final HashMap<String, int[]> tableDirectory;
+        final boolean locaShortTable;
+        final int locaTable[];
+        final HashMap<String, byte[]> tables = new HashMap<String, byte[]>();
+        final HashMap<Integer, int[]> components = new HashMap<Integer, int[]>();
+
+        FontTables(HashMap<String, int[]> tableDirectory, boolean locaShortTable, int locaTable[]) {
+            this.tableDirectory = tableDirectory;
+            this.locaShortTable = locaShortTable;
+            this.locaTable = locaTable;
+        }
+    }
 }
@@ -71,6 +71,14 @@ class TrueTypeFontUnicode extends TrueTypeFont implements Comparator<int[]>{
 	private Map<String, Glyph> glyphSubstitutionMap;
 	private Language supportedLanguage;
 
+    /** The widths of the chars, read from the font maps only once. */
+    private final CharMetricsTable widthTable = new CharMetricsTable() {
+        @Override
+        int compute(int c) {
+            return getUncachedWidth(c);
+        }
+    };
+
     /**
      * Creates a new TrueType font addressed by Unicode characters. The font
      * will always be embedded.
@@ -132,6 +140,15 @@ class TrueTypeFontUnicode extends TrueTypeFont implements Comparator<int[]>{
     public int getWidth(int char1) {
         if (vertical)
             return 1000;
+        return widthTable.get(char1);
+    }
+
+    /**
+     * Gets the width of a <CODE>char</CODE> from the font tables.
+     * @param char1 the unicode <CODE>char</CODE> to get the width of
+     * @return the width in normalized 1000 units
+     */
+    private int getUncachedWidth(int char1) {
         if (fontSpecific) {
             if ((char1 & 0xff00) == 0 || (char1 & 0xff00) == 0xf000)
                 return getRawWidth(char1 & 0xff, null);
@@ -156,21 +173,18 @@ class TrueTypeFontUnicode extends TrueTypeFont implements Comparator<int[]>{
         if (fontSpecific) {
             char cc[] = text.toCharArray();
             int len = cc.length;
-            for (int k = 0; k < len; ++k) {
-                char c = cc[k];
-                if ((c & 0xff00) == 0 || (c & 0xff00) == 0xf000)
-                    total += getRawWidth(c & 0xff, null);
-            }
+            for (int k = 0; k < len; ++k)
+                total += widthTable.get(cc[k]);
         }
         else {
             int len = text.length();
             for (int k = 0; k < len; ++k) {
                 if (Utilities.isSurrogatePair(text, k)) {
-                    total += getRawWidth(Utilities.convertToUtf32(text, k), encoding);
+                    total += widthTable.get(Utilities.convertToUtf32(text, k));
                     ++k;
                 }
                 else
-                    total += getRawWidth(text.charAt(k), encoding);
+                    total += widthTable.get(text.charAt(k));
             }
         }
         return total;
@@ -452,6 +466,7 @@ class TrueTypeFontUnicode extends TrueTypeFont implements Comparator<int[]>{
         if (m == null)
             return false;
         m[1] = advance;
+        widthTable.clear();
         return true;
     }
 
@@ -61,7 +61,8 @@ public class TtfUnicodeWriter {
 
     public void writeFont(TrueTypeFontUnicode font, PdfIndirectReference ref, Object params[], byte[] rotbits) throws DocumentException, IOException {
         HashMap<Integer, int[]> longTag = (HashMap<Integer, int[]>)params[0];
-        font.addRangeUni(longTag, true, font.subset);
+        boolean subsetp = ((Boolean)params[1]).booleanValue() && font.subset;
+        font.addRangeUni(longTag, true, subsetp);
         int metrics[][] = longTag.values().toArray(new int[0][]);
         Arrays.sort(metrics, font);
         PdfIndirectReference ind_font = null;
@@ -70,28 +71,28 @@ public class TtfUnicodeWriter {
         // sivan: cff
         if (font.cff) {
             byte b[] = font.readCffFont();
-            if (font.subset || font.subsetRanges != null) {
+            if (subsetp || font.subsetRanges != null) {
                 CFFFontSubset cff = new CFFFontSubset(new RandomAccessFileOrArray(b),longTag);
                 b = cff.Process(cff.getNames()[0]);
             }
-            pobj = new BaseFont.StreamFont(b, "CIDFontType0C", font.compressionLevel);
+            pobj = new BaseFont.StreamFont(b, "CIDFontType0C", font.compressionLevel, writer.getCompressionExecutor());
             obj = writer.addToBody(pobj);
             ind_font = obj.getIndirectReference();
         } else {
             byte[] b;
-            if (font.subset || font.directoryOffset != 0) {
+            if (subsetp || font.directoryOffset != 0) {
                 b = font.getSubSet(new HashSet<Integer>(longTag.keySet()), true);
             }
             else {
                 b = font.getFullFont();
             }
             int lengths[] = new int[]{b.length};
-            pobj = new BaseFont.StreamFont(b, lengths, font.compressionLevel);
+            pobj = new BaseFont.StreamFont(b, lengths, font.compressionLevel, writer.getCompressionExecutor());
             obj = writer.addToBody(pobj);
             ind_font = obj.getIndirectReference();
         }
         String subsetPrefix = "";
-        if (font.subset)
+        if (subsetp)
             subsetPrefix = font.createSubsetPrefix();
         PdfDictionary dic = font.getFontDescriptor(ind_font, subsetPrefix, null);
         obj = writer.addToBody(dic);
@@ -0,0 +1,99 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.IOException;
+
+import com.itextpdf.text.DocumentException;
+
+/**
+ * Loads the resources that iText otherwise loads on first use, so that the
+ * cost is paid at startup instead of by the first document. This matters for
+ * short-lived processes where every instance serves only a few requests.
+ * <P>
+ * The fonts are created with the font cache enabled, so that
+ * {@link BaseFont#createFont(String, String, boolean)} and the
+ * {@link com.itextpdf.text.Font} class find them ready.
+ * @since 5.5.6
+ */
+public final class WarmUp {
+
+    /** The 14 standard fonts. */
+    private static final String STANDARD_FONTS[] = {
+        BaseFont.COURIER, BaseFont.COURIER_BOLD, BaseFont.COURIER_BOLDOBLIQUE, BaseFont.COURIER_OBLIQUE,
+        BaseFont.HELVETICA, BaseFont.HELVETICA_BOLD, BaseFont.HELVETICA_BOLDOBLIQUE, BaseFont.HELVETICA_OBLIQUE,
+        BaseFont.SYMBOL,
+        BaseFont.TIMES_ROMAN, BaseFont.TIMES_BOLD, BaseFont.TIMES_BOLDITALIC, BaseFont.TIMES_ITALIC,
+        BaseFont.ZAPFDINGBATS
+    };
+
+    private WarmUp() {
+    }
+
+    /**
+     * Loads the <CODE>PdfName</CODE> constants, the glyph list and the
+     * metrics of the 14 standard fonts with the <CODE>WINANSI</CODE> encoding.
+     * @throws DocumentException if a font can't be created
+     * @throws IOException if a font resource can't be read
+     */
+    public static void warmUp() throws DocumentException, IOException {
+        // the static initializers do the work
+        PdfName.staticNames.size();
+        GlyphList.unicodeToName(' ');
+        for (String font : STANDARD_FONTS)
+            BaseFont.createFont(font, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+    }
+
+    /**
+     * Loads a CJK font from the Asian font pack with the CMaps of its encoding.
+     * @param fontName the name of the font, for example <CODE>STSong-Light</CODE>
+     * @param encoding the encoding, for example <CODE>UniGB-UCS2-H</CODE>
+     * @throws DocumentException if the font can't be created
+     * @throws IOException if a resource can't be read
+     */
+    public static void warmUpCJKFont(String fontName, String encoding) throws DocumentException, IOException {
+        BaseFont.createFont(fontName, encoding, BaseFont.NOT_EMBEDDED);
+    }
+}
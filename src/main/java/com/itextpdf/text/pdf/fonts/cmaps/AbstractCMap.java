@@ -94,7 +94,7 @@ public abstract class AbstractCMap {
     }
 
     abstract void addChar(PdfString mark, PdfObject code);
-    
+
     void addRange(PdfString from, PdfString to, PdfObject code) {
         byte[] a1 = decodeStringToByte(from);
         byte[] a2 = decodeStringToByte(to);
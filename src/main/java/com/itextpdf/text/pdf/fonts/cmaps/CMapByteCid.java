@@ -50,7 +50,7 @@ import com.itextpdf.text.pdf.PdfObject;
 import com.itextpdf.text.pdf.PdfString;
 import java.util.ArrayList;
 
-public class CMapByteCid extends AbstractCMap {
+public class CMapByteCid extends AbstractCMap implements CompiledCMap {
     private ArrayList<char[]> planes = new ArrayList<char[]>();
 
     public CMapByteCid() {
@@ -63,6 +63,10 @@ public class CMapByteCid extends AbstractCMap {
             return;
         encodeSequence(decodeStringToByte(mark), (char)((PdfNumber)code).intValue());
     }
+
+    public void addCompiled(byte[] mark, int codepoint, int cid) {
+        encodeSequence(mark, (char)cid);
+    }
     
     private void encodeSequence(byte seqs[], char cid) {
         int size = seqs.length - 1;
@@ -45,75 +45,252 @@
 package com.itextpdf.text.pdf.fonts.cmaps;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.itextpdf.text.ExceptionConverter;
 
 /**
+ * Caches the parsed CMaps. The lookups don't take any lock and every CMap
+ * is parsed only once, even if several threads request it at the same time.
+ * The CMaps compiled with {@link CMapCompiler} are loaded from their binary form.
+ * The number of cached CMaps is unlimited by default, see {@link #setMaxCachedCMaps(int)}.
  *
  * @author psoares
  */
 public class CMapCache {
-    private static final HashMap<String,CMapUniCid> cacheUniCid = new HashMap<String,CMapUniCid>();
-    private static final HashMap<String,CMapCidUni> cacheCidUni = new HashMap<String,CMapCidUni>();
-    private static final HashMap<String,CMapCidByte> cacheCidByte = new HashMap<String,CMapCidByte>();
-    private static final HashMap<String,CMapByteCid> cacheByteCid = new HashMap<String,CMapByteCid>();
-    
-    public static CMapUniCid getCachedCMapUniCid(String name) throws IOException {
-        CMapUniCid cmap = null;
-        synchronized (cacheUniCid) {
-            cmap = cacheUniCid.get(name);
+    private static final ConcurrentHashMap<String,Entry<CMapUniCid>> cacheUniCid = new ConcurrentHashMap<String,Entry<CMapUniCid>>();
+    private static final ConcurrentHashMap<String,Entry<CMapCidUni>> cacheCidUni = new ConcurrentHashMap<String,Entry<CMapCidUni>>();
+    private static final ConcurrentHashMap<String,Entry<CMapCidByte>> cacheCidByte = new ConcurrentHashMap<String,Entry<CMapCidByte>>();
+    private static final ConcurrentHashMap<String,Entry<CMapByteCid>> cacheByteCid = new ConcurrentHashMap<String,Entry<CMapByteCid>>();
+
+    private static final AtomicLong clock = new AtomicLong();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong loadTime = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    private static volatile int maxCachedCMaps = 0;
+
+    /** A cached CMap, parsed once by the first thread that needs it. */
+    private static class Entry<T extends AbstractCMap> extends FutureTask<T> {
+        volatile long lastAccess = clock.incrementAndGet();
+
+        Entry(Callable<T> loader) {
+            super(loader);
         }
-        if (cmap == null) {
-            cmap = new CMapUniCid();
-            CMapParserEx.parseCid(name, cmap, new CidResource());
-            synchronized (cacheUniCid) {
-                cacheUniCid.put(name, cmap);
+    }
+
+    public static CMapUniCid getCachedCMapUniCid(final String name) throws IOException {
+        return get(cacheUniCid, name, new Callable<CMapUniCid>() {
+            public CMapUniCid call() throws IOException {
+                CMapUniCid cmap = new CMapUniCid();
+                parse(name, cmap);
+                return cmap;
             }
-        }
-        return cmap;
+        });
     }
     
-    public static CMapCidUni getCachedCMapCidUni(String name) throws IOException {
-        CMapCidUni cmap = null;
-        synchronized (cacheCidUni) {
-            cmap = cacheCidUni.get(name);
-        }
-        if (cmap == null) {
-            cmap = new CMapCidUni();
-            CMapParserEx.parseCid(name, cmap, new CidResource());
-            synchronized (cacheCidUni) {
-                cacheCidUni.put(name, cmap);
+    public static CMapCidUni getCachedCMapCidUni(final String name) throws IOException {
+        return get(cacheCidUni, name, new Callable<CMapCidUni>() {
+            public CMapCidUni call() throws IOException {
+                CMapCidUni cmap = new CMapCidUni();
+                parse(name, cmap);
+                return cmap;
             }
-        }
-        return cmap;
+        });
     }
     
-    public static CMapCidByte getCachedCMapCidByte(String name) throws IOException {
-        CMapCidByte cmap = null;
-        synchronized (cacheCidByte) {
-            cmap = cacheCidByte.get(name);
-        }
-        if (cmap == null) {
-            cmap = new CMapCidByte();
-            CMapParserEx.parseCid(name, cmap, new CidResource());
-            synchronized (cacheCidByte) {
-                cacheCidByte.put(name, cmap);
+    public static CMapCidByte getCachedCMapCidByte(final String name) throws IOException {
+        return get(cacheCidByte, name, new Callable<CMapCidByte>() {
+            public CMapCidByte call() throws IOException {
+                CMapCidByte cmap = new CMapCidByte();
+                parse(name, cmap);
+                return cmap;
             }
-        }
-        return cmap;
+        });
     }
     
-    public static CMapByteCid getCachedCMapByteCid(String name) throws IOException {
-        CMapByteCid cmap = null;
-        synchronized (cacheByteCid) {
-            cmap = cacheByteCid.get(name);
+    public static CMapByteCid getCachedCMapByteCid(final String name) throws IOException {
+        return get(cacheByteCid, name, new Callable<CMapByteCid>() {
+            public CMapByteCid call() throws IOException {
+                CMapByteCid cmap = new CMapByteCid();
+                parse(name, cmap);
+                return cmap;
+            }
+        });
+    }
+
+    /**
+     * Sets the maximum number of CMaps kept in the cache. When the limit is
+     * exceeded the least recently used CMaps are dropped and will be parsed
+     * again if needed. The fonts that already use a dropped CMap keep it.
+     * @param maxCachedCMaps the maximum number of CMaps or 0 for no limit
+     * @since 5.5.6
+     */
+    public static void setMaxCachedCMaps(final int maxCachedCMaps) {
+        CMapCache.maxCachedCMaps = maxCachedCMaps;
+        evict();
+    }
+
+    /**
+     * Gets the maximum number of CMaps kept in the cache.
+     * @return the maximum number of CMaps or 0 if there is no limit
+     * @since 5.5.6
+     */
+    public static int getMaxCachedCMaps() {
+        return maxCachedCMaps;
+    }
+
+    /**
+     * Gets the number of CMaps in the cache.
+     * @return the number of CMaps
+     * @since 5.5.6
+     */
+    public static int size() {
+        return cacheUniCid.size() + cacheCidUni.size() + cacheCidByte.size() + cacheByteCid.size();
+    }
+
+    /**
+     * Gets the number of requests that found their CMap in the cache.
+     * @return the number of hits
+     * @since 5.5.6
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of requests that had to parse their CMap.
+     * @return the number of misses
+     * @since 5.5.6
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of CMaps dropped from the cache because of the limit
+     * set with {@link #setMaxCachedCMaps(int)}.
+     * @return the number of evictions
+     * @since 5.5.6
+     */
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Gets the total time spent parsing CMaps.
+     * @return the time in nanoseconds
+     * @since 5.5.6
+     */
+    public static long getLoadTime() {
+        return loadTime.get();
+    }
+
+    /**
+     * Sets all the statistics to zero.
+     * @since 5.5.6
+     */
+    public static void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+        loadTime.set(0);
+    }
+
+    /**
+     * Removes all the CMaps from the cache.
+     * @since 5.5.6
+     */
+    public static void clear() {
+        cacheUniCid.clear();
+        cacheCidUni.clear();
+        cacheCidByte.clear();
+        cacheByteCid.clear();
+    }
+
+    private static <T extends AbstractCMap> T get(ConcurrentHashMap<String,Entry<T>> cache, String name, Callable<T> loader) throws IOException {
+        Entry<T> entry = cache.get(name);
+        if (entry == null) {
+            Entry<T> newEntry = new Entry<T>(loader);
+            entry = cache.putIfAbsent(name, newEntry);
+            if (entry == null) {
+                misses.incrementAndGet();
+                long start = System.nanoTime();
+                newEntry.run();
+                loadTime.addAndGet(System.nanoTime() - start);
+                entry = newEntry;
+                if (maxCachedCMaps > 0)
+                    evict();
+            }
+            else
+                hits.incrementAndGet();
         }
-        if (cmap == null) {
-            cmap = new CMapByteCid();
+        else {
+            hits.incrementAndGet();
+            entry.lastAccess = clock.incrementAndGet();
+        }
+        try {
+            return entry.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExceptionConverter(e);
+        }
+        catch (ExecutionException e) {
+            // the next request will try again
+            cache.remove(name, entry);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new ExceptionConverter(e);
+        }
+    }
+
+    /**
+     * Fills a CMap from its compiled form if there is one, or else from its source.
+     */
+    private static <T extends AbstractCMap & CompiledCMap> void parse(String name, T cmap) throws IOException {
+        if (!CMapCompiler.load(name, cmap))
             CMapParserEx.parseCid(name, cmap, new CidResource());
-            synchronized (cacheByteCid) {
-                cacheByteCid.put(name, cmap);
-            }
+    }
+
+    /**
+     * Drops the least recently used CMaps until the limit is respected.
+     */
+    private static synchronized void evict() {
+        int max = maxCachedCMaps;
+        if (max <= 0)
+            return;
+        while (size() > max) {
+            Map.Entry<String, ? extends Entry<?>> oldest = null;
+            oldest = older(cacheUniCid, oldest);
+            oldest = older(cacheCidUni, oldest);
+            oldest = older(cacheCidByte, oldest);
+            oldest = older(cacheByteCid, oldest);
+            if (oldest == null)
+                return;
+            if (cacheUniCid.remove(oldest.getKey(), oldest.getValue())
+                    || cacheCidUni.remove(oldest.getKey(), oldest.getValue())
+                    || cacheCidByte.remove(oldest.getKey(), oldest.getValue())
+                    || cacheByteCid.remove(oldest.getKey(), oldest.getValue()))
+                evictions.incrementAndGet();
+        }
+    }
+
+    private static Map.Entry<String, ? extends Entry<?>> older(ConcurrentHashMap<String, ? extends Entry<?>> cache, Map.Entry<String, ? extends Entry<?>> oldest) {
+        for (Map.Entry<String, ? extends Entry<?>> e : cache.entrySet()) {
+            if (e.getValue().isDone() && (oldest == null || e.getValue().lastAccess < oldest.getValue().lastAccess))
+                oldest = e;
         }
-        return cmap;
+        return oldest;
     }
 }
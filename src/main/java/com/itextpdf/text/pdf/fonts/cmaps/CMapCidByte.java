@@ -49,7 +49,7 @@ import com.itextpdf.text.pdf.PdfObject;
 import com.itextpdf.text.pdf.PdfString;
 import java.util.HashMap;
 
-public class CMapCidByte extends AbstractCMap {
+public class CMapCidByte extends AbstractCMap implements CompiledCMap {
     private HashMap<Integer,byte[]> map = new HashMap<Integer,byte[]>();
     private final byte[] EMPTY = {};
     
@@ -60,6 +60,10 @@ public class CMapCidByte extends AbstractCMap {
         byte[] ser = decodeStringToByte(mark);
         map.put(Integer.valueOf(((PdfNumber)code).intValue()), ser);
     }
+
+    public void addCompiled(byte[] mark, int codepoint, int cid) {
+        map.put(Integer.valueOf(cid), mark);
+    }
     
     public byte[] lookup(int cid) {
         byte[] ser = map.get(Integer.valueOf(cid));
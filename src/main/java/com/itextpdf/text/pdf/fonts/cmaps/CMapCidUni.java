@@ -54,7 +54,7 @@ import com.itextpdf.text.pdf.PdfString;
  *
  * @author psoares
  */
-public class CMapCidUni extends AbstractCMap {
+public class CMapCidUni extends AbstractCMap implements CompiledCMap {
     private IntHashtable map = new IntHashtable(65537);
     
     @Override
@@ -69,6 +69,11 @@ public class CMapCidUni extends AbstractCMap {
             codepoint = (int)s.charAt(0);
         map.put(((PdfNumber)code).intValue(), codepoint);
     }
+
+    public void addCompiled(byte[] mark, int codepoint, int cid) {
+        if (codepoint >= 0)
+            map.put(cid, codepoint);
+    }
     
     public int lookup(int character) {
         return map.get(character);
@@ -0,0 +1,288 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf.fonts.cmaps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.itextpdf.text.Utilities;
+import com.itextpdf.text.io.RandomAccessSourceFactory;
+import com.itextpdf.text.io.StreamUtil;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PRTokeniser;
+import com.itextpdf.text.pdf.PdfNumber;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfString;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
+
+/**
+ * Compiles CMaps into a compact binary form that loads without tokenizing
+ * the PostScript source. Every mapping from a character code to a CID found
+ * by {@link CMapParserEx} is stored already decoded, both as bytes and as a
+ * Unicode code point, with the ranges expanded and the CMaps referenced by
+ * <CODE>usecmap</CODE> included. The mappings are deflated.
+ * <P>
+ * The compiled CMaps are optional: {@link CMapCache} uses the resource
+ * <CODE>cmaps/&lt;name&gt;.bin</CODE> when it exists and parses the CMap
+ * otherwise. They are generated at build time by running {@link #main(String[])}
+ * over the CMap directory.
+ * @since 5.5.6
+ */
+public class CMapCompiler {
+    /** The extension of the compiled CMap resources. */
+    public static final String EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x69434d50;
+    private static final int VERSION = 1;
+    private static final int END = 0;
+
+    private CMapCompiler() {
+    }
+
+    /**
+     * Parses a CMap and writes its compiled form.
+     * @param cmapName the name of the CMap
+     * @param location where to find the CMap and the CMaps it uses
+     * @param os the stream to write the compiled CMap to
+     * @throws IOException on error or if the CMap uses mappings that can't be compiled
+     */
+    public static void compile(String cmapName, CidLocation location, OutputStream os) throws IOException {
+        Recorder recorder = new Recorder();
+        try {
+            CMapParserEx.parseCid(cmapName, recorder, location);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeNullable(out, recorder.getName());
+        writeNullable(out, recorder.getRegistry());
+        writeNullable(out, recorder.getOrdering());
+        out.writeInt(recorder.getSupplement());
+        out.flush();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        DeflaterOutputStream zip = new DeflaterOutputStream(os, deflater);
+        recorder.records.writeTo(zip);
+        zip.write(END);
+        zip.finish();
+        deflater.end();
+    }
+
+    /**
+     * Loads a compiled CMap from the font resources.
+     * @param cmapName the name of the CMap
+     * @param cmap the CMap to fill
+     * @return <CODE>true</CODE> if the CMap was loaded, <CODE>false</CODE>
+     * if there is no compiled version of it
+     * @throws IOException on error
+     */
+    public static <T extends AbstractCMap & CompiledCMap> boolean load(String cmapName, T cmap) throws IOException {
+        InputStream is = StreamUtil.getResourceStream(BaseFont.RESOURCE_PATH + "cmaps/" + cmapName + EXTENSION);
+        if (is == null)
+            return false;
+        try {
+            read(is, cmap);
+        }
+        finally {
+            is.close();
+        }
+        return true;
+    }
+
+    /**
+     * Fills a CMap with a compiled CMap.
+     * @param is the compiled CMap
+     * @param cmap the CMap to fill
+     * @throws IOException on error
+     */
+    public static <T extends AbstractCMap & CompiledCMap> void read(InputStream is, T cmap) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            throw new IOException("Not a compiled CMap.");
+        cmap.setName(readNullable(in));
+        cmap.setRegistry(readNullable(in));
+        cmap.setOrdering(readNullable(in));
+        cmap.setSupplement(in.readInt());
+        Inflater inflater = new Inflater();
+        try {
+            in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(in, inflater, 0x2000), 0x8000));
+            // the code points and the CIDs are stored as differences with the previous mapping
+            int codepoint = 0;
+            int cid = 0;
+            while (true) {
+                int length = in.readUnsignedByte();
+                if (length == END)
+                    break;
+                byte mark[] = new byte[length];
+                in.readFully(mark);
+                codepoint += in.readInt();
+                cid += in.readInt();
+                cmap.addCompiled(mark, codepoint, cid);
+            }
+        }
+        finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Compiles the CMaps of a directory. The arguments are the directory
+     * with the CMaps, optionally the directory where the compiled CMaps
+     * are written, next to the CMaps by default, and optionally the names
+     * of the CMaps to compile, all the CMaps of the directory by default.
+     * As the compiled CMaps include the CMaps they use, compiling all of
+     * them takes more space than the sources.
+     * @param args the command line arguments
+     * @throws IOException on error
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java com.itextpdf.text.pdf.fonts.cmaps.CMapCompiler <cmap dir> [<output dir> [<cmap name>...]]");
+            return;
+        }
+        final File dir = new File(args[0]);
+        File outDir = args.length > 1 ? new File(args[1]) : dir;
+        outDir.mkdirs();
+        CidLocation location = new CidLocation() {
+            public PRTokeniser getLocation(String location) throws IOException {
+                return new PRTokeniser(new RandomAccessFileOrArray(new RandomAccessSourceFactory().createBestSource(new File(dir, location).getPath())));
+            }
+        };
+        String[] names;
+        if (args.length > 2) {
+            names = new String[args.length - 2];
+            System.arraycopy(args, 2, names, 0, names.length);
+        }
+        else {
+            names = dir.list();
+            if (names == null)
+                throw new IOException(dir + " is not a directory.");
+        }
+        int compiled = 0;
+        for (String name : names) {
+            // the CMaps have no extension
+            if (name.indexOf('.') >= 0 || !new File(dir, name).isFile())
+                continue;
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            try {
+                compile(name, location, bout);
+            }
+            catch (IOException e) {
+                System.err.println("Skipping " + name + ": " + e.getMessage());
+                continue;
+            }
+            OutputStream os = new BufferedOutputStream(new FileOutputStream(new File(outDir, name + EXTENSION)));
+            try {
+                bout.writeTo(os);
+            }
+            finally {
+                os.close();
+            }
+            ++compiled;
+        }
+        System.out.println(compiled + " CMaps compiled to " + outDir);
+    }
+
+    private static void writeNullable(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null)
+            out.writeUTF(s);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /** Records the mappings found by the parser. */
+    private static class Recorder extends AbstractCMap {
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(records);
+        private int lastCodepoint;
+        private int lastCid;
+
+        @Override
+        void addChar(PdfString mark, PdfObject code) {
+            // only the mappings to a CID are used by the cached CMaps
+            if (!(code instanceof PdfNumber))
+                return;
+            byte b[] = decodeStringToByte(mark);
+            if (b.length == END || b.length > 0xff)
+                throw new IllegalArgumentException("Invalid map.");
+            int codepoint = -1;
+            String s = decodeStringToUnicode(mark);
+            if (Utilities.isSurrogatePair(s, 0))
+                codepoint = Utilities.convertToUtf32(s, 0);
+            else if (s.length() > 0)
+                codepoint = s.charAt(0);
+            try {
+                out.writeByte(b.length);
+                out.write(b);
+                int cid = ((PdfNumber)code).intValue();
+                out.writeInt(codepoint - lastCodepoint);
+                out.writeInt(cid - lastCid);
+                lastCodepoint = codepoint;
+                lastCid = cid;
+            }
+            catch (IOException e) {
+                // a ByteArrayOutputStream doesn't throw
+                throw new IllegalArgumentException(e.getMessage());
+            }
+        }
+    }
+}
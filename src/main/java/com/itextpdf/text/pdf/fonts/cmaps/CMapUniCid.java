@@ -54,7 +54,7 @@ import com.itextpdf.text.pdf.PdfString;
  *
  * @author psoares
  */
-public class CMapUniCid extends AbstractCMap {
+public class CMapUniCid extends AbstractCMap implements CompiledCMap {
     private IntHashtable map = new IntHashtable(65537);
     
     @Override
@@ -69,6 +69,11 @@ public class CMapUniCid extends AbstractCMap {
             codepoint = (int)s.charAt(0);
         map.put(codepoint, ((PdfNumber)code).intValue());
     }
+
+    public void addCompiled(byte[] mark, int codepoint, int cid) {
+        if (codepoint >= 0)
+            map.put(codepoint, cid);
+    }
     
     public int lookup(int character) {
         return map.get(character);
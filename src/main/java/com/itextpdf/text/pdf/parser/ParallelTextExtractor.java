@@ -0,0 +1,216 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Kevin Day, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.itextpdf.text.ExceptionConverter;
+import com.itextpdf.text.io.GetBufferedRandomAccessSource;
+import com.itextpdf.text.io.IndependentRandomAccessSource;
+import com.itextpdf.text.io.RandomAccessSource;
+import com.itextpdf.text.io.SynchronizedRandomAccessSource;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
+
+/**
+ * Extracts the text of the pages of one document on several threads.
+ * <p>
+ * A <CODE>PdfReader</CODE> can't be used by more than one thread, so every page is processed
+ * with a private duplicate of the reader (see {@link PdfReader#PdfReader(PdfReader, RandomAccessFileOrArray)}),
+ * its own {@link PdfContentStreamProcessor} and its own strategy. The duplicates are kept in a pool, so
+ * there are never more of them than pages being processed at the same time, and they all read the
+ * document bytes through a single synchronized view of the original reader's source.
+ * <p>
+ * The original reader must not be used by other threads while an extraction is running.
+ * @since 5.5.6
+ */
+public class ParallelTextExtractor {
+
+    /**
+     * Creates the strategy used to extract the text of one page.
+     * Every page gets its own strategy, so implementations must return a new instance on each call.
+     */
+    public interface StrategyFactory {
+        /**
+         * @param pageNumber the page the strategy will be used for
+         * @return a new strategy
+         */
+        TextExtractionStrategy createStrategy(int pageNumber);
+    }
+
+    /** Creates {@link LocationTextExtractionStrategy} instances, the default strategy of {@link PdfTextExtractor}. */
+    public static final StrategyFactory LOCATION_STRATEGY = new StrategyFactory() {
+        public TextExtractionStrategy createStrategy(int pageNumber) {
+            return new LocationTextExtractionStrategy();
+        }
+    };
+
+    /** the reader the pages are extracted from */
+    private final PdfReader reader;
+    /** the executor running the page tasks */
+    private final ExecutorService executor;
+    /** the thread safe view of the reader's source shared by all the duplicates */
+    private final RandomAccessSource source;
+    /** the duplicates of the reader not in use by a page task */
+    private final ConcurrentLinkedQueue<PdfReader> idleReaders = new ConcurrentLinkedQueue<PdfReader>();
+
+    /**
+     * Creates a parallel extractor.
+     * @param reader the reader to extract text from
+     * @param executor the executor that will process the pages; it is not shut down by this class
+     */
+    public ParallelTextExtractor(PdfReader reader, ExecutorService executor) {
+        this.reader = reader;
+        this.executor = executor;
+        this.source = new SynchronizedRandomAccessSource(reader.getSafeFile().createSourceView());
+    }
+
+    /**
+     * Extracts the text of all the pages using the default strategy.
+     * @return the text of every page, the first element being page 1
+     * @throws IOException if any operation fails while reading the document
+     */
+    public List<String> getTextFromPages() throws IOException {
+        return getTextFromPages(1, reader.getNumberOfPages(), LOCATION_STRATEGY);
+    }
+
+    /**
+     * Extracts the text of all the pages.
+     * @param strategyFactory creates the strategy for each page
+     * @return the text of every page, the first element being page 1
+     * @throws IOException if any operation fails while reading the document
+     */
+    public List<String> getTextFromPages(StrategyFactory strategyFactory) throws IOException {
+        return getTextFromPages(1, reader.getNumberOfPages(), strategyFactory);
+    }
+
+    /**
+     * Extracts the text of a range of pages. Pages are submitted to the executor in order
+     * and the results are returned in the same order, whichever page finishes first.
+     * @param firstPage the first page to extract, 1 is the first page of the document
+     * @param lastPage the last page to extract, inclusive
+     * @param strategyFactory creates the strategy for each page
+     * @return the text of every page in the range, in page order
+     * @throws IOException if any operation fails while reading the document
+     */
+    public List<String> getTextFromPages(int firstPage, int lastPage, final StrategyFactory strategyFactory) throws IOException {
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int k = firstPage; k <= lastPage; ++k) {
+            final int pageNumber = k;
+            futures.add(executor.submit(new Callable<String>() {
+                public String call() throws Exception {
+                    return getTextFromPage(pageNumber, strategyFactory.createStrategy(pageNumber));
+                }
+            }));
+        }
+        List<String> text = new ArrayList<String>(futures.size());
+        try {
+            for (Future<String> future : futures) {
+                text.add(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new ExceptionConverter(e);
+        }
+        catch (ExecutionException e) {
+            cancel(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            throw new ExceptionConverter(e);
+        }
+        return text;
+    }
+
+    /**
+     * Extracts the text of one page with a pooled duplicate of the reader.
+     * @param pageNumber the page to extract
+     * @param strategy the strategy to use
+     * @return the extracted text
+     * @throws IOException if any operation fails while reading the document
+     */
+    protected String getTextFromPage(int pageNumber, TextExtractionStrategy strategy) throws IOException {
+        PdfReader duplicate = idleReaders.poll();
+        if (duplicate == null)
+            duplicate = createDuplicate();
+        try {
+            return new PdfReaderContentParser(duplicate).processContent(pageNumber, strategy).getResultantText();
+        }
+        finally {
+            duplicate.releasePage(pageNumber);
+            idleReaders.offer(duplicate);
+        }
+    }
+
+    /**
+     * Creates a duplicate of the reader with its own buffer over the shared source.
+     * The original reader is only read while the lock is held, so duplicates can be
+     * created while other pages are being processed.
+     * @return a new duplicate of the reader
+     */
+    private PdfReader createDuplicate() {
+        RandomAccessSource buffered = new GetBufferedRandomAccessSource(new IndependentRandomAccessSource(source));
+        synchronized (reader) {
+            return new PdfReader(reader, new RandomAccessFileOrArray(buffered));
+        }
+    }
+
+    private static void cancel(List<Future<String>> futures) {
+        for (Future<String> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
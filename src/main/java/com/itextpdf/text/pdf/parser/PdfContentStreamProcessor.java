@@ -64,6 +64,9 @@ public class PdfContentStreamProcessor {
 	 */
     public static final String DEFAULTOPERATOR = "DefaultOperator";
 
+    /** Marks the inline image operator in the operators resolved for a content stream. */
+    private static final ContentOperator INLINE_IMAGE_OPERATOR = new IgnoreOperatorContentOperator();
+
 	/** A map with all supported operators (PDF syntax). */
     final private Map<String, ContentOperator> operators;
     /** Resources for the content stream. */
@@ -275,15 +278,18 @@ public class PdfContentStreamProcessor {
     }
 
     /**
-     * Invokes an operator.
+     * Looks up the content operator registered for an operator.
      * @param operator	the PDF Syntax of the operator
-     * @param operands	a list with operands
+     * @return the registered content operator or the default one
      */
-    private void invokeOperator(PdfLiteral operator, ArrayList<PdfObject> operands) throws Exception{
-        ContentOperator op = operators.get(operator.toString());
+    private ContentOperator lookupOperator(PdfLiteral operator) {
+        String name = operator.toString();
+        if ("BI".equals(name))
+            return INLINE_IMAGE_OPERATOR;
+        ContentOperator op = operators.get(name);
         if (op == null)
             op = operators.get(DEFAULTOPERATOR);
-        op.invoke(this, operator, operands);
+        return op;
     }
 
     /**
@@ -419,14 +425,21 @@ public class PdfContentStreamProcessor {
             PRTokeniser tokeniser = new PRTokeniser(new RandomAccessFileOrArray(new RandomAccessSourceFactory().createSource(contentBytes)));
             PdfContentParser ps = new PdfContentParser(tokeniser);
             ArrayList<PdfObject> operands = new ArrayList<PdfObject>();
+            // the parser shares the operator instances, so each operator is looked up once per stream
+            Map<PdfLiteral, ContentOperator> resolved = new IdentityHashMap<PdfLiteral, ContentOperator>();
             while (ps.parse(operands).size() > 0){
                 PdfLiteral operator = (PdfLiteral)operands.get(operands.size()-1);
-                if ("BI".equals(operator.toString())){
+                ContentOperator op = resolved.get(operator);
+                if (op == null) {
+                    op = lookupOperator(operator);
+                    resolved.put(operator, op);
+                }
+                if (op == INLINE_IMAGE_OPERATOR){
                     // we don't call invokeOperator for embedded images - this is one area of the PDF spec that is particularly nasty and inconsistent
                     PdfDictionary colorSpaceDic = resources != null ? resources.getAsDict(PdfName.COLORSPACE) : null;
                     handleInlineImage(InlineImageUtils.parseInlineImage(ps, colorSpaceDic), colorSpaceDic);
                 } else {
-                    invokeOperator(operator, operands);
+                    op.invoke(this, operator, operands);
                 }
             }
 
@@ -0,0 +1,341 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf.security;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.ExceptionConverter;
+import com.itextpdf.text.pdf.PdfSignatureAppearance;
+import com.itextpdf.text.pdf.security.MakeSignature.CryptoStandard;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Signs many documents in detached mode with the same certificate chain.
+ * <P>
+ * The CRLs and the OCSP response of the signing certificate are fetched once and
+ * embedded in every signature of the following batches, until they are older
+ * than {@link #getRevocationDataMaxAge()}, a CRL reaches its next update or
+ * {@link #refreshRevocationData()} is called. Then they are fetched again. The
+ * byte ranges of the documents are digested, and their signature containers
+ * encoded and time-stamped, on the threads of an optional executor.
+ * The external signature is called once per document, always on the calling
+ * thread and in the order of the documents, so a token or an HSM session does
+ * not need to be shared between threads.
+ * @since 5.5.6
+ */
+public class BatchSignature {
+
+    /** The default maximum age of the revocation data, ten minutes. */
+    public static final long DEFAULT_REVOCATION_DATA_MAX_AGE = 10 * 60 * 1000L;
+
+    private final ExternalDigest externalDigest;
+    private final ExternalSignature externalSignature;
+    private final Certificate[] chain;
+    private final Collection<CrlClient> crlList;
+    private final OcspClient ocspClient;
+    private final TSAClient tsaClient;
+    private final int estimatedSize;
+    private final CryptoStandard sigtype;
+
+    private ExecutorService executor;
+
+    private long revocationDataMaxAge = DEFAULT_REVOCATION_DATA_MAX_AGE;
+    private boolean revocationFetched;
+    private long revocationFetchTime;
+    private long revocationNextUpdate;
+    private Collection<byte[]> crlBytes;
+    private byte[] ocsp;
+
+    /**
+     * Creates a batch signature. The parameters have the same meaning as in
+     * {@link MakeSignature#signDetached(PdfSignatureAppearance, ExternalDigest, ExternalSignature, Certificate[], Collection, OcspClient, TSAClient, int, CryptoStandard)}.
+     * @param externalDigest an implementation that provides the digest
+     * @param externalSignature the interface providing the actual signing
+     * @param chain the certificate chain
+     * @param crlList the CRL list
+     * @param ocspClient the OCSP client
+     * @param tsaClient the Timestamp client
+     * @param estimatedSize the reserved size for the signature. It will be estimated if 0
+     * @param sigtype Either Signature.CMS or Signature.CADES
+     */
+    public BatchSignature(ExternalDigest externalDigest, ExternalSignature externalSignature, Certificate[] chain, Collection<CrlClient> crlList,
+            OcspClient ocspClient, TSAClient tsaClient, int estimatedSize, CryptoStandard sigtype) {
+        this.externalDigest = externalDigest;
+        this.externalSignature = externalSignature;
+        this.chain = chain;
+        this.crlList = crlList;
+        this.ocspClient = ocspClient;
+        this.tsaClient = tsaClient;
+        this.estimatedSize = estimatedSize;
+        this.sigtype = sigtype;
+    }
+
+    /**
+     * Sets the executor that digests, encodes and closes the documents. If
+     * <CODE>null</CODE>, the default, everything is done on the calling thread.
+     * @param executor the executor; it is not shut down by this class
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the executor that digests, encodes and closes the documents.
+     * @return the executor or <CODE>null</CODE>
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets how long the CRLs and the OCSP response are embedded in the signatures
+     * before they are fetched again. A CRL is never used after its next update.
+     * @param revocationDataMaxAge the maximum age in milliseconds; 0 to fetch them for every batch
+     */
+    public synchronized void setRevocationDataMaxAge(long revocationDataMaxAge) {
+        this.revocationDataMaxAge = revocationDataMaxAge;
+    }
+
+    /**
+     * Gets how long the CRLs and the OCSP response are embedded in the signatures
+     * before they are fetched again.
+     * @return the maximum age in milliseconds
+     */
+    public synchronized long getRevocationDataMaxAge() {
+        return revocationDataMaxAge;
+    }
+
+    /**
+     * Discards the CRLs and the OCSP response; they are fetched again by the next
+     * batch.
+     */
+    public synchronized void refreshRevocationData() {
+        revocationFetched = false;
+        crlBytes = null;
+        ocsp = null;
+    }
+
+    /**
+     * Signs a batch of documents. Every appearance must belong to its own
+     * <CODE>PdfStamper</CODE>, created with <CODE>PdfStamper.createSignature()</CODE>
+     * and not yet closed. All the documents of a batch are pending at the same time,
+     * so the size of a batch is bounded by the memory or the temporary files their
+     * stampers need. If an exception is thrown, none of the documents can be
+     * considered signed.
+     * @param appearances the signature appearances of the documents
+     * @throws IOException
+     * @throws DocumentException
+     * @throws GeneralSecurityException
+     */
+    public void signDetached(List<PdfSignatureAppearance> appearances) throws IOException, DocumentException, GeneralSecurityException {
+        fetchRevocationData();
+        final Collection<byte[]> crlBytes;
+        final byte[] ocsp;
+        synchronized (this) {
+            crlBytes = this.crlBytes;
+            ocsp = this.ocsp;
+        }
+        final int size = estimatedSize == 0 ? MakeSignature.estimateSize(crlBytes, ocsp != null, tsaClient != null) : estimatedSize;
+        final String hashAlgorithm = externalSignature.getHashAlgorithm();
+        List<PendingSignature> pending = new ArrayList<PendingSignature>(appearances.size());
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(appearances.size());
+        for (PdfSignatureAppearance sap : appearances) {
+            final PendingSignature sig = new PendingSignature(sap);
+            pending.add(sig);
+            tasks.add(new Callable<Void>() {
+                public Void call() throws Exception {
+                    MakeSignature.preClose(sig.sap, chain[0], size, sigtype);
+                    sig.sgn = new PdfPKCS7(null, chain, hashAlgorithm, null, externalDigest, false);
+                    sig.hash = DigestAlgorithms.digest(sig.sap.getRangeStream(), externalDigest.getMessageDigest(hashAlgorithm));
+                    sig.cal = Calendar.getInstance();
+                    sig.sh = sig.sgn.getAuthenticatedAttributeBytes(sig.hash, sig.cal, ocsp, crlBytes, sigtype);
+                    return null;
+                }
+            });
+        }
+        run(tasks);
+        for (PendingSignature sig : pending) {
+            byte[] extSignature = externalSignature.sign(sig.sh);
+            sig.sgn.setExternalDigest(extSignature, null, externalSignature.getEncryptionAlgorithm());
+        }
+        tasks.clear();
+        for (final PendingSignature sig : pending) {
+            tasks.add(new Callable<Void>() {
+                public Void call() throws Exception {
+                    byte[] encodedSig = sig.sgn.getEncodedPKCS7(sig.hash, sig.cal, tsaClient, ocsp, crlBytes, sigtype);
+                    MakeSignature.close(sig.sap, encodedSig, size);
+                    return null;
+                }
+            });
+        }
+        run(tasks);
+    }
+
+    /**
+     * Fetches the CRLs and the OCSP response of the signing certificate, unless
+     * they were already fetched and haven't expired.
+     */
+    private synchronized void fetchRevocationData() {
+        long now = System.currentTimeMillis();
+        if (revocationFetched && now - revocationFetchTime < revocationDataMaxAge && now < revocationNextUpdate)
+            return;
+        crlBytes = MakeSignature.processCrl(chain, crlList);
+        ocsp = null;
+        if (chain.length >= 2 && ocspClient != null)
+            ocsp = ocspClient.getEncoded((X509Certificate)chain[0], (X509Certificate)chain[1], null);
+        revocationFetchTime = now;
+        revocationNextUpdate = Long.MAX_VALUE;
+        if (crlBytes != null) {
+            for (byte[] crl : crlBytes) {
+                Date nextUpdate = getNextUpdate(crl);
+                if (nextUpdate != null && nextUpdate.getTime() < revocationNextUpdate)
+                    revocationNextUpdate = nextUpdate.getTime();
+            }
+        }
+        revocationFetched = true;
+    }
+
+    /**
+     * Gets the date of the next update of a CRL.
+     * @param crl the encoded CRL
+     * @return the date or <CODE>null</CODE> if the CRL has none or can't be parsed
+     */
+    private static Date getNextUpdate(byte[] crl) {
+        try {
+            CertificateFactory cf = CertificateFactory.getInstance("X.509");
+            return ((X509CRL)cf.generateCRL(new ByteArrayInputStream(crl))).getNextUpdate();
+        }
+        catch (GeneralSecurityException e) {
+            // the CRL is embedded as it was received, only the maximum age applies
+            return null;
+        }
+    }
+
+    /**
+     * Runs tasks on the executor, or on the calling thread if there is none,
+     * and waits for all of them.
+     * @param tasks the tasks
+     */
+    private void run(List<Callable<Void>> tasks) throws IOException, DocumentException, GeneralSecurityException {
+        if (executor == null) {
+            try {
+                for (Callable<Void> task : tasks)
+                    task.call();
+            }
+            catch (Exception e) {
+                rethrow(e);
+            }
+            return;
+        }
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks.size());
+        try {
+            for (Callable<Void> task : tasks)
+                futures.add(executor.submit(task));
+            for (Future<Void> future : futures)
+                future.get();
+        }
+        catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new ExceptionConverter(e);
+        }
+        catch (ExecutionException e) {
+            cancel(futures);
+            rethrow(e.getCause());
+        }
+        catch (RuntimeException e) {
+            cancel(futures);
+            throw e;
+        }
+    }
+
+    private static void rethrow(Throwable t) throws IOException, DocumentException, GeneralSecurityException {
+        if (t instanceof IOException)
+            throw (IOException)t;
+        if (t instanceof DocumentException)
+            throw (DocumentException)t;
+        if (t instanceof GeneralSecurityException)
+            throw (GeneralSecurityException)t;
+        if (t instanceof RuntimeException)
+            throw (RuntimeException)t;
+        if (t instanceof Error)
+            throw (Error)t;
+        throw new ExceptionConverter((Exception)t);
+    }
+
+    private static void cancel(List<Future<Void>> futures) {
+        for (Future<Void> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /** The state of a document between its digest and its signature container. */
+    private static class PendingSignature {
+        final PdfSignatureAppearance sap;
+        PdfPKCS7 sgn;
+        byte[] hash;
+        Calendar cal;
+        byte[] sh;
+
+        PendingSignature(PdfSignatureAppearance sap) {
+            this.sap = sap;
+        }
+    }
+}
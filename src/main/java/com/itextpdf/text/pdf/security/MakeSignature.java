@@ -107,23 +107,76 @@ public class MakeSignature {
      */
     public static void signDetached(PdfSignatureAppearance sap, ExternalDigest externalDigest, ExternalSignature externalSignature, Certificate[] chain, Collection<CrlClient> crlList, OcspClient ocspClient,
             TSAClient tsaClient, int estimatedSize, CryptoStandard sigtype) throws IOException, DocumentException, GeneralSecurityException {
+        Collection<byte[]> crlBytes = processCrl(chain, crlList);
+        if (estimatedSize == 0)
+            estimatedSize = estimateSize(crlBytes, ocspClient != null, tsaClient != null);
+        preClose(sap, chain[0], estimatedSize, sigtype);
+
+        String hashAlgorithm = externalSignature.getHashAlgorithm();
+        PdfPKCS7 sgn = new PdfPKCS7(null, chain, hashAlgorithm, null, externalDigest, false);
+        InputStream data = sap.getRangeStream();
+        byte hash[] = DigestAlgorithms.digest(data, externalDigest.getMessageDigest(hashAlgorithm));
+        Calendar cal = Calendar.getInstance();
+        byte[] ocsp = null;
+        if (chain.length >= 2 && ocspClient != null) {
+            ocsp = ocspClient.getEncoded((X509Certificate) chain[0], (X509Certificate) chain[1], null);
+        }
+        byte[] sh = sgn.getAuthenticatedAttributeBytes(hash, cal, ocsp, crlBytes, sigtype);
+        byte[] extSignature = externalSignature.sign(sh);
+        sgn.setExternalDigest(extSignature, null, externalSignature.getEncryptionAlgorithm());
+
+        byte[] encodedSig = sgn.getEncodedPKCS7(hash, cal, tsaClient, ocsp, crlBytes, sigtype);
+        close(sap, encodedSig, estimatedSize);
+    }
+
+    /**
+     * Gets the CRLs of the first certificate of a chain for which a CRL client
+     * returns any.
+     * @param chain the certificate chain
+     * @param crlList the CRL list
+     * @return a collection of CRL bytes, or <CODE>null</CODE>
+     */
+    static Collection<byte[]> processCrl(Certificate[] chain, Collection<CrlClient> crlList) {
         Collection<byte[]> crlBytes = null;
         int i = 0;
         while (crlBytes == null && i < chain.length)
         	crlBytes = processCrl(chain[i++], crlList);
-    	if (estimatedSize == 0) {
-            estimatedSize = 8192;
-            if (crlBytes != null) {
-                for (byte[] element : crlBytes) {
-                    estimatedSize += element.length + 10;
-                }
+        return crlBytes;
+    }
+
+    /**
+     * Estimates the space to reserve for a detached signature.
+     * @param crlBytes the CRLs to embed, or <CODE>null</CODE>
+     * @param ocsp <CODE>true</CODE> if an OCSP response may be embedded
+     * @param timestamp <CODE>true</CODE> if a time-stamp token will be embedded
+     * @return the estimated size in bytes
+     */
+    static int estimateSize(Collection<byte[]> crlBytes, boolean ocsp, boolean timestamp) {
+        int estimatedSize = 8192;
+        if (crlBytes != null) {
+            for (byte[] element : crlBytes) {
+                estimatedSize += element.length + 10;
             }
-            if (ocspClient != null)
-                estimatedSize += 4192;
-            if (tsaClient != null)
-                estimatedSize += 4192;
         }
-        sap.setCertificate(chain[0]);
+        if (ocsp)
+            estimatedSize += 4192;
+        if (timestamp)
+            estimatedSize += 4192;
+        return estimatedSize;
+    }
+
+    /**
+     * Sets the signature dictionary of a detached signature and reserves the space
+     * for its contents.
+     * @param sap the PdfSignatureAppearance
+     * @param cert the signing certificate
+     * @param estimatedSize the reserved size for the signature
+     * @param sigtype Either Signature.CMS or Signature.CADES
+     * @throws IOException
+     * @throws DocumentException
+     */
+    static void preClose(PdfSignatureAppearance sap, Certificate cert, int estimatedSize, CryptoStandard sigtype) throws IOException, DocumentException {
+        sap.setCertificate(cert);
         if (sigtype == CryptoStandard.CADES) {
         	sap.addDeveloperExtension(PdfDeveloperExtension.ESIC_1_7_EXTENSIONLEVEL2);
         }
@@ -138,22 +191,17 @@ public class MakeSignature {
         HashMap<PdfName, Integer> exc = new HashMap<PdfName, Integer>();
         exc.put(PdfName.CONTENTS, new Integer(estimatedSize * 2 + 2));
         sap.preClose(exc);
+    }
 
-        String hashAlgorithm = externalSignature.getHashAlgorithm();
-        PdfPKCS7 sgn = new PdfPKCS7(null, chain, hashAlgorithm, null, externalDigest, false);
-        InputStream data = sap.getRangeStream();
-        byte hash[] = DigestAlgorithms.digest(data, externalDigest.getMessageDigest(hashAlgorithm));
-        Calendar cal = Calendar.getInstance();
-        byte[] ocsp = null;
-        if (chain.length >= 2 && ocspClient != null) {
-            ocsp = ocspClient.getEncoded((X509Certificate) chain[0], (X509Certificate) chain[1], null);
-        }
-        byte[] sh = sgn.getAuthenticatedAttributeBytes(hash, cal, ocsp, crlBytes, sigtype);
-        byte[] extSignature = externalSignature.sign(sh);
-        sgn.setExternalDigest(extSignature, null, externalSignature.getEncryptionAlgorithm());
-
-        byte[] encodedSig = sgn.getEncodedPKCS7(hash, cal, tsaClient, ocsp, crlBytes, sigtype);
-
+    /**
+     * Writes an encoded signature in the reserved space and closes the document.
+     * @param sap the PdfSignatureAppearance
+     * @param encodedSig the encoded signature
+     * @param estimatedSize the reserved size for the signature
+     * @throws IOException
+     * @throws DocumentException
+     */
+    static void close(PdfSignatureAppearance sap, byte[] encodedSig, int estimatedSize) throws IOException, DocumentException {
         if (estimatedSize < encodedSig.length)
             throw new IOException("Not enough space");
 
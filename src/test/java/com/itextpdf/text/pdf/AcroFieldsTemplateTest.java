@@ -0,0 +1,207 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AcroFieldsTemplateTest {
+
+    private static final String FORM = "./src/test/resources/com/itextpdf/text/pdf/AcroFieldsTest/SimpleRegistrationForm.pdf";
+
+    @Test
+    public void compilesTheFields() throws Exception {
+        AcroFieldsTemplate template = new AcroFieldsTemplate(new PdfReader(FORM));
+        Assert.assertEquals(4, template.getFieldNames().size());
+        Assert.assertEquals(AcroFields.FIELD_TYPE_TEXT, template.getFieldType("name"));
+        Assert.assertEquals(AcroFields.FIELD_TYPE_NONE, template.getFieldType("missing"));
+        Assert.assertEquals(1, template.getFieldPositions("email").size());
+        Assert.assertNull(template.getFieldPositions("missing"));
+    }
+
+    @Test
+    public void fillsLikeAStamper() throws Exception {
+        Map<String, String> record = record(7);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        PdfStamper stamper = new PdfStamper(new PdfReader(FORM), expected);
+        for (Map.Entry<String, String> field : record.entrySet())
+            stamper.getAcroFields().setField(field.getKey(), field.getValue());
+        stamper.close();
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        new AcroFieldsTemplate(new PdfReader(FORM)).fill(record, actual);
+
+        PdfReader expectedReader = new PdfReader(expected.toByteArray());
+        PdfReader actualReader = new PdfReader(actual.toByteArray());
+        for (String name : record.keySet()) {
+            Assert.assertEquals(record.get(name), actualReader.getAcroFields().getField(name));
+            Assert.assertArrayEquals(name, appearance(expectedReader, name), appearance(actualReader, name));
+        }
+    }
+
+    @Test
+    public void fillsRecordsInParallel() throws Exception {
+        AcroFieldsTemplate template = new AcroFieldsTemplate(new PdfReader(FORM));
+        template.setFlatten(true);
+        final List<ByteArrayOutputStream> outputs = new ArrayList<ByteArrayOutputStream>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        int count;
+        try {
+            count = template.fill(new AcroFieldsTemplate.RecordSource() {
+                private int next;
+
+                public Map<String, String> nextRecord() {
+                    return next < 40 ? record(next++) : null;
+                }
+
+                public OutputStream getOutputStream(int index, Map<String, String> record) {
+                    ByteArrayOutputStream os = new ByteArrayOutputStream();
+                    outputs.add(os);
+                    return os;
+                }
+            }, executor, 8);
+        }
+        finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(40, count);
+        for (int k = 0; k < outputs.size(); ++k) {
+            PdfReader reader = new PdfReader(outputs.get(k).toByteArray());
+            Assert.assertTrue(reader.getAcroFields().getFields().isEmpty());
+            String content = new String(reader.getPageContent(1), "ISO-8859-1");
+            Assert.assertTrue(content, content.indexOf("Do") >= 0);
+            reader.close();
+        }
+    }
+
+    @Test
+    public void fillsFormsWithUndecodableFontPrograms() throws Exception {
+        byte form[] = createFormWithBrokenFont();
+        Map<String, String> record = record(3);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PdfStamper stamper = new PdfStamper(new PdfReader(form), baos);
+        for (Map.Entry<String, String> field : record.entrySet())
+            stamper.getAcroFields().setField(field.getKey(), field.getValue());
+        stamper.close();
+        Assert.assertEquals("Name 3", new PdfReader(baos.toByteArray()).getAcroFields().getField("name"));
+
+        baos = new ByteArrayOutputStream();
+        new AcroFieldsTemplate(new PdfReader(form)).fill(record, baos);
+        Assert.assertEquals("Name 3", new PdfReader(baos.toByteArray()).getAcroFields().getField("name"));
+    }
+
+    @Test
+    public void closesTheStreamOfAFailedRecord() throws Exception {
+        final boolean closed[] = new boolean[1];
+        OutputStream os = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        try {
+            new AcroFieldsTemplate(new PdfReader(FORM)).fill(record(1), os);
+            Assert.fail("the record was written");
+        }
+        catch (IOException e) {
+            Assert.assertEquals("disk full", e.getMessage());
+        }
+        Assert.assertTrue(closed[0]);
+    }
+
+    /**
+     * Gives the fonts of the form a TrueType program with a filter that can't be decoded.
+     */
+    private static byte[] createFormWithBrokenFont() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PdfReader reader = new PdfReader(FORM);
+        PdfStamper stamper = new PdfStamper(reader, baos);
+        PdfStream program = new PdfStream(new byte[]{1, 2, 3, 4});
+        program.put(PdfName.FILTER, new PdfName("UnknownDecode"));
+        PdfIndirectReference programRef = stamper.getWriter().addToBody(program).getIndirectReference();
+        PdfDictionary fonts = reader.getAcroForm().getAsDict(PdfName.DR).getAsDict(PdfName.FONT);
+        int broken = 0;
+        for (PdfName name : fonts.getKeys()) {
+            PdfDictionary font = fonts.getAsDict(name);
+            PdfDictionary descriptor = new PdfDictionary(PdfName.FONTDESCRIPTOR);
+            descriptor.put(PdfName.FONTFILE2, programRef);
+            font.put(PdfName.FONTDESCRIPTOR, descriptor);
+            ++broken;
+        }
+        Assert.assertTrue(broken > 0);
+        stamper.close();
+        return baos.toByteArray();
+    }
+
+    private static Map<String, String> record(int k) {
+        Map<String, String> record = new HashMap<String, String>();
+        record.put("name", "Name " + k);
+        record.put("address", k + " Main Street");
+        record.put("postal_code", String.valueOf(1000 + k));
+        record.put("email", "user" + k + "@example.com");
+        return record;
+    }
+
+    private static byte[] appearance(PdfReader reader, String name) throws IOException {
+        PdfDictionary widget = reader.getAcroFields().getFieldItem(name).getWidget(0);
+        PRStream stream = (PRStream)widget.getAsDict(PdfName.AP).getAsStream(PdfName.N);
+        return PdfReader.getStreamBytes(stream);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+import com.itextpdf.text.Chunk;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.languages.ArabicLigaturizer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BidiShapingCacheTest {
+
+    private static final String TEXTS[] = {
+        "السلام عليكم",
+        "Total: المجموع 123 (لا) [x]",
+        "abc لام def ١٢٣ ghi",
+        "plain latin text",
+        "שלום (עולם) 42"
+    };
+
+    private static final int OPTIONS[] = {
+        0,
+        ArabicLigaturizer.ar_lig,
+        ArabicLigaturizer.ar_novowel | ArabicLigaturizer.DIGITS_EN2AN,
+        ArabicLigaturizer.ar_composedtashkeel | ArabicLigaturizer.DIGITS_AN2EN
+    };
+
+    private static final int DIRECTIONS[] = {PdfWriter.RUN_DIRECTION_LTR, PdfWriter.RUN_DIRECTION_RTL};
+
+    private int maxCachedParagraphs;
+
+    @Before
+    public void setUp() {
+        maxCachedParagraphs = BidiShapingCache.getMaxCachedParagraphs();
+        BidiShapingCache.clear();
+        BidiShapingCache.resetStatistics();
+    }
+
+    @After
+    public void tearDown() {
+        BidiShapingCache.setMaxCachedParagraphs(maxCachedParagraphs);
+        BidiShapingCache.clear();
+        BidiShapingCache.resetStatistics();
+    }
+
+    /** The pieces of the first line of a paragraph made of chunks with different sizes. */
+    private static String layout(String text, int runDirection, int arabicOptions) {
+        BidiLine bidi = new BidiLine();
+        int third = text.length() / 3;
+        bidi.addChunk(new PdfChunk(new Chunk(text.substring(0, third), new Font(Font.FontFamily.HELVETICA, 10)), null));
+        bidi.addChunk(new PdfChunk(new Chunk(text.substring(third, 2 * third), new Font(Font.FontFamily.HELVETICA, 11)), null));
+        bidi.addChunk(new PdfChunk(new Chunk(text.substring(2 * third), new Font(Font.FontFamily.HELVETICA, 12)), null));
+        bidi.arabicOptions = arabicOptions;
+        bidi.getParagraph(runDirection);
+        ArrayList<PdfChunk> chunks = bidi.createArrayOfPdfChunks(0, bidi.totalTextLength - 1);
+        StringBuilder sb = new StringBuilder();
+        for (PdfChunk ck : chunks)
+            sb.append(ck.toString()).append('/').append(ck.font().size()).append('|');
+        return sb.toString();
+    }
+
+    @Test
+    public void cachedParagraphsMatchProcessedOnes() {
+        for (String text : TEXTS) {
+            for (int runDirection : DIRECTIONS) {
+                for (int options : OPTIONS) {
+                    BidiShapingCache.setMaxCachedParagraphs(0);
+                    String expected = layout(text, runDirection, options);
+                    BidiShapingCache.setMaxCachedParagraphs(1000);
+                    Assert.assertEquals(expected, layout(text, runDirection, options));
+                    Assert.assertEquals(expected, layout(text, runDirection, options));
+                }
+            }
+        }
+        int count = TEXTS.length * DIRECTIONS.length * OPTIONS.length;
+        Assert.assertEquals(count, BidiShapingCache.getMisses());
+        Assert.assertEquals(count, BidiShapingCache.getHits());
+        // disabling the cache drops the paragraphs of the previous rounds
+        Assert.assertEquals(1, BidiShapingCache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedParagraphsAreEvicted() {
+        BidiShapingCache.setMaxCachedParagraphs(2);
+        BidiLine.processLTR(TEXTS[0], PdfWriter.RUN_DIRECTION_RTL, 0);
+        BidiLine.processLTR(TEXTS[1], PdfWriter.RUN_DIRECTION_RTL, 0);
+        BidiLine.processLTR(TEXTS[0], PdfWriter.RUN_DIRECTION_RTL, 0);
+        BidiLine.processLTR(TEXTS[2], PdfWriter.RUN_DIRECTION_RTL, 0);
+        Assert.assertEquals(2, BidiShapingCache.size());
+        Assert.assertEquals(1, BidiShapingCache.getEvictions());
+        BidiLine.processLTR(TEXTS[0], PdfWriter.RUN_DIRECTION_RTL, 0);
+        Assert.assertEquals(2, BidiShapingCache.getHits());
+    }
+
+    @Test
+    public void longParagraphsAreNotCached() {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() <= BidiShapingCache.getMaxTextLength())
+            sb.append(TEXTS[0]).append(' ');
+        BidiLine.processLTR(sb.toString(), PdfWriter.RUN_DIRECTION_RTL, 0);
+        BidiLine.processLTR(sb.toString(), PdfWriter.RUN_DIRECTION_RTL, 0);
+        Assert.assertEquals(0, BidiShapingCache.size());
+        Assert.assertEquals(0, BidiShapingCache.getMisses());
+    }
+
+    private static byte[] createPdf() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        document.open();
+        PdfContentByte cb = writer.getDirectContent();
+        for (int k = 0; k < 3; ++k) {
+            ColumnText ct = new ColumnText(cb);
+            ct.setSimpleColumn(36, 36, 300, 806);
+            ct.setRunDirection(PdfWriter.RUN_DIRECTION_RTL);
+            ct.setArabicOptions(ArabicLigaturizer.ar_lig);
+            for (String text : TEXTS)
+                ct.addText(new Phrase(text + "\n"));
+            ct.go();
+            document.newPage();
+        }
+        document.close();
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void columnTextContentIsUnchanged() throws Exception {
+        BidiShapingCache.setMaxCachedParagraphs(0);
+        PdfReader expected = new PdfReader(createPdf());
+        BidiShapingCache.setMaxCachedParagraphs(1000);
+        PdfReader actual = new PdfReader(createPdf());
+        Assert.assertEquals(expected.getNumberOfPages(), actual.getNumberOfPages());
+        for (int page = 1; page <= expected.getNumberOfPages(); ++page)
+            Assert.assertArrayEquals(expected.getPageContent(page), actual.getPageContent(page));
+        Assert.assertTrue(BidiShapingCache.getHits() > 0);
+        expected.close();
+        actual.close();
+    }
+}
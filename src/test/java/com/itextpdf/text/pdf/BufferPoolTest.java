@@ -0,0 +1,168 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.Deflater;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+
+public class BufferPoolTest {
+
+    @After
+    public void tearDown() {
+        BufferPool.clear();
+        BufferPool.setEnabled(false);
+        BufferPool.resetStatistics();
+    }
+
+    @Test
+    public void testDisabledPoolAllocatesExactSizes() {
+        BufferPool.setEnabled(false);
+        byte[] b = BufferPool.borrow(300);
+        Assert.assertEquals(300, b.length);
+        BufferPool.release(b);
+        Assert.assertNotSame(b, BufferPool.borrow(300));
+    }
+
+    @Test
+    public void testDisabledPoolKeepsNoStatistics() {
+        BufferPool.setEnabled(false);
+        BufferPool.resetStatistics();
+        BufferPool.borrow(300);
+        BufferPool.releaseDeflater(BufferPool.borrowDeflater(6), 6);
+        Assert.assertEquals(0, BufferPool.getAllocatedArrays());
+        Assert.assertEquals(0, BufferPool.getAllocatedBytes());
+        Assert.assertEquals(0, BufferPool.getAllocatedDeflaters());
+    }
+
+    @Test
+    public void testArraysAreReused() {
+        BufferPool.setEnabled(true);
+        BufferPool.resetStatistics();
+        byte[] b = BufferPool.borrow(300);
+        Assert.assertEquals(512, b.length);
+        BufferPool.release(b);
+        Assert.assertSame(b, BufferPool.borrow(400));
+        Assert.assertEquals(1, BufferPool.getAllocatedArrays());
+        Assert.assertEquals(1, BufferPool.getReusedArrays());
+        Assert.assertEquals(512, BufferPool.getReusedBytes());
+    }
+
+    @Test
+    public void testDeflatersAreReused() {
+        BufferPool.setEnabled(true);
+        BufferPool.resetStatistics();
+        Deflater deflater = BufferPool.borrowDeflater(9);
+        BufferPool.releaseDeflater(deflater, 9);
+        Assert.assertSame(deflater, BufferPool.borrowDeflater(9));
+        Assert.assertNotSame(deflater, BufferPool.borrowDeflater(9));
+        Assert.assertEquals(2, BufferPool.getAllocatedDeflaters());
+        Assert.assertEquals(1, BufferPool.getReusedDeflaters());
+    }
+
+    @Test
+    public void testByteBufferRelease() {
+        BufferPool.setEnabled(true);
+        ByteBuffer buf = new ByteBuffer(100);
+        byte[] internal = buf.buf;
+        buf.append("abc");
+        buf.release();
+        Assert.assertEquals(0, buf.size());
+        buf.append("de");
+        Assert.assertEquals("de", buf.toString());
+        Assert.assertSame(internal, buf.buf);
+    }
+
+    @Test
+    public void testExposedBufferIsNotReused() {
+        BufferPool.setEnabled(true);
+        ByteBuffer buf = new ByteBuffer(100);
+        byte[] internal = buf.getBuffer();
+        buf.release();
+        Assert.assertNotSame(internal, BufferPool.borrow(100));
+    }
+
+    @Test
+    public void testSameOutputWithPool() throws Exception {
+        byte[] expected = createPdf();
+        BufferPool.setEnabled(true);
+        BufferPool.resetStatistics();
+        createPdf();
+        byte[] pooled = createPdf();
+        Assert.assertTrue(BufferPool.getReusedArrays() > 0);
+        Assert.assertTrue(BufferPool.getReusedDeflaters() > 0);
+        Assert.assertEquals(expected.length, pooled.length);
+        Assert.assertEquals(new String(getPageContents(expected), "ISO-8859-1"), new String(getPageContents(pooled), "ISO-8859-1"));
+    }
+
+    private static byte[] createPdf() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        writer.setFullCompression();
+        document.open();
+        for (int i = 0; i < 20; ++i) {
+            document.add(new Paragraph("Paragraph " + i));
+            document.newPage();
+        }
+        document.close();
+        return baos.toByteArray();
+    }
+
+    private static byte[] getPageContents(byte[] pdf) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (int i = 1; i <= reader.getNumberOfPages(); ++i)
+            baos.write(reader.getPageContent(i));
+        reader.close();
+        return baos.toByteArray();
+    }
+}
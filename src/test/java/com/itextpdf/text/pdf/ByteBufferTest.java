@@ -0,0 +1,130 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteBufferTest {
+
+    private static final double[] NUMBERS = {0, -0.0, 0.000001, 0.000015, -0.000015, 0.5, 0.999996,
+        -0.999996, 1, 1.005, 99.995, 32767, 32767.004, 32767.006, 1e10, -1e10, 123.456, 0.1,
+        0.0000005, 2.5e-7, 1.0000005, Double.NaN, Double.POSITIVE_INFINITY};
+
+    @After
+    public void tearDown() {
+        ByteBuffer.HIGH_PRECISION = false;
+    }
+
+    private static String append(double d) {
+        return new ByteBuffer().append(d).toString();
+    }
+
+    @Test
+    public void appendsLikeFormatDouble() {
+        Random random = new Random(42);
+        for (double d : NUMBERS)
+            Assert.assertEquals(ByteBuffer.formatDouble(d), append(d));
+        for (int k = 0; k < 100000; ++k) {
+            double d = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 6);
+            Assert.assertEquals(ByteBuffer.formatDouble(d), append(d));
+        }
+        Assert.assertEquals("-12.5", append(-12.5));
+        Assert.assertEquals("0.33333", append(1.0 / 3));
+        Assert.assertEquals("40000", append(39999.6));
+    }
+
+    @Test
+    public void appendsLikeDecimalFormatInHighPrecision() {
+        ByteBuffer.HIGH_PRECISION = true;
+        DecimalFormat format = new DecimalFormat("0.######", new DecimalFormatSymbols(Locale.US));
+        Random random = new Random(42);
+        for (double d : NUMBERS) {
+            // DecimalFormat writes NaN and infinity with non Latin-1 symbols
+            if (!Double.isNaN(d) && !Double.isInfinite(d))
+                Assert.assertEquals(format.format(d), append(d));
+        }
+        for (int k = 0; k < 100000; ++k) {
+            double d = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 6);
+            Assert.assertEquals(format.format(d), append(d));
+            d = random.nextInt(2000000) / 2000000.0 + random.nextInt(100);
+            Assert.assertEquals(format.format(d), append(d));
+        }
+        Assert.assertEquals("0.333333", append(1.0 / 3));
+    }
+
+    @Test
+    public void appendsStrings() {
+        ByteBuffer buf = new ByteBuffer(1);
+        buf.append("abc").append(" \u00e9");
+        Assert.assertArrayEquals(new byte[]{'a', 'b', 'c', ' ', (byte)0xe9}, buf.toByteArray());
+    }
+
+    @Test
+    public void appendsPolylines() {
+        PdfContentByte cb = new PdfContentByte(null);
+        cb.moveTo(1, 2.5f);
+        cb.lineTo(3, 4);
+        cb.lineTo(-5, 6.25f);
+        cb.closePath();
+        PdfContentByte batch = new PdfContentByte(null);
+        batch.polygon(new float[]{1, 2.5f, 3, 4, -5, 6.25f});
+        Assert.assertEquals(cb.toString(), batch.toString());
+        batch.reset();
+        batch.polyline(new double[]{1, 2.5, 3, 4, -5, 6.25});
+        Assert.assertEquals("1 2.5 m\n3 4 l\n-5 6.25 l\n", batch.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddCoordinates() {
+        new PdfContentByte(null).polyline(new float[]{1, 2, 3});
+    }
+}
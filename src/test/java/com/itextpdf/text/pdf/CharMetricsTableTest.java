@@ -0,0 +1,98 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CharMetricsTableTest {
+
+    private static final String FONT = "./src/test/resources/com/itextpdf/text/pdf/MultithreadedTtfTest/FreeSans.ttf";
+
+    private static TrueTypeFontUnicode createFont() throws Exception {
+        // not cached, the test changes the metrics
+        return (TrueTypeFontUnicode)BaseFont.createFont(FONT, BaseFont.IDENTITY_H, BaseFont.EMBEDDED, false, null, null);
+    }
+
+    @Test
+    public void widthsMatchTheFontMaps() throws Exception {
+        TrueTypeFontUnicode font = createFont();
+        StringBuilder sb = new StringBuilder();
+        int total = 0;
+        for (int c = 0; c < 0x10000; ++c) {
+            int metrics[] = font.getMetricsTT(c);
+            int expected = metrics == null ? 0 : metrics[1];
+            Assert.assertEquals(expected, font.getWidth(c));
+            if (c >= 0x20 && c < 0x2000 && (c < 0xd800 || c > 0xdfff)) {
+                sb.append((char)c);
+                total += expected;
+            }
+        }
+        Assert.assertEquals(total, font.getWidth(sb.toString()));
+    }
+
+    @Test
+    public void charAdvanceReplacesTheCachedWidth() throws Exception {
+        TrueTypeFontUnicode font = createFont();
+        int width = font.getWidth('a');
+        Assert.assertTrue(width > 0);
+        Assert.assertTrue(font.setCharAdvance('a', width + 100));
+        Assert.assertEquals(width + 100, font.getWidth('a'));
+        Assert.assertEquals(2 * (width + 100), font.getWidth("aa"));
+    }
+
+    @Test
+    public void kerningUsesTheGlyphIndexes() throws Exception {
+        TrueTypeFontUnicode font = createFont();
+        int kern = font.getKerning('A', 'V');
+        Assert.assertTrue(font.setKerning('A', 'V', kern - 50));
+        Assert.assertEquals(kern - 50, font.getKerning('A', 'V'));
+        Assert.assertEquals(kern - 50, font.getKerning('A', 'V'));
+        Assert.assertEquals(0, font.getKerning('A', 0x10ffff));
+        int metricsA[] = font.getMetricsTT('A');
+        int metricsV[] = font.getMetricsTT('V');
+        Assert.assertEquals(font.kerning.get((metricsA[0] << 16) + metricsV[0]), font.getKerning('A', 'V'));
+    }
+}
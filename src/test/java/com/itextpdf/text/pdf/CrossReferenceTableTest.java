@@ -0,0 +1,150 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+
+public class CrossReferenceTableTest {
+
+    @Test
+    public void testCrossReferenceTable() throws Exception {
+        byte[] pdf = createPdf(false, 1000);
+        String s = new String(pdf, "ISO-8859-1");
+        int xref = s.lastIndexOf("\nxref\n") + 1;
+        int startxref = Integer.parseInt(s.substring(s.lastIndexOf("startxref") + 10, s.lastIndexOf("%%EOF")).trim());
+        Assert.assertEquals(xref, startxref);
+        int p = s.indexOf('\n', xref + 5);
+        String[] section = s.substring(xref + 5, p).split(" ");
+        Assert.assertEquals("0", section[0]);
+        int size = Integer.parseInt(section[1]);
+        Assert.assertEquals("0000000000 65535 f \n", s.substring(p + 1, p + 21));
+        for (int k = 1; k < size; ++k) {
+            String line = s.substring(p + 1 + 20 * k, p + 21 + 20 * k);
+            Assert.assertTrue(line, line.matches("\\d{10} 00000 n \n"));
+            int offset = Integer.parseInt(line.substring(0, 10));
+            Assert.assertTrue(s.startsWith(k + " 0 obj", offset));
+        }
+        checkPdf(pdf, 1000);
+    }
+
+    @Test
+    public void testCrossReferenceStream() throws Exception {
+        byte[] pdf = createPdf(true, 1000);
+        checkPdf(pdf, 1000);
+        // the cross-reference stream has an entry for itself
+        String s = new String(pdf, "ISO-8859-1");
+        int startxref = Integer.parseInt(s.substring(s.lastIndexOf("startxref") + 10, s.lastIndexOf("%%EOF")).trim());
+        int xrefStream = Integer.parseInt(s.substring(startxref, s.indexOf(' ', startxref)));
+        int dictEnd = s.indexOf("stream", startxref);
+        String dict = s.substring(startxref, dictEnd);
+        Matcher w = Pattern.compile("/W\\[1 (\\d) 2\\]").matcher(dict);
+        Assert.assertTrue(dict, w.find());
+        Assert.assertTrue(dict, dict.contains("/Index[0 " + (xrefStream + 1) + "]"));
+        int mid = Integer.parseInt(w.group(1));
+        int start = s.indexOf('\n', dictEnd) + 1;
+        byte[] entries = PdfReader.FlateDecode(Arrays.copyOfRange(pdf, start, s.indexOf("endstream", start)));
+        int entry = xrefStream * (mid + 3);
+        Assert.assertEquals(1, entries[entry]);
+        long offset = 0;
+        for (int k = 1; k <= mid; ++k)
+            offset = offset << 8 | entries[entry + k] & 0xff;
+        Assert.assertEquals(startxref, offset);
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws Exception {
+        byte[] pdf = createPdf(false, 10);
+        PdfReader reader = new PdfReader(pdf);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PdfStamper stamper = new PdfStamper(reader, baos, '\0', true);
+        HashMap<String, String> info = new HashMap<String, String>();
+        info.put("Title", "Updated");
+        stamper.setMoreInfo(info);
+        stamper.close();
+        reader = new PdfReader(baos.toByteArray());
+        Assert.assertEquals("Updated", reader.getInfo().get("Title"));
+        Assert.assertEquals(2, reader.getNumberOfPages());
+        reader.close();
+    }
+
+    private static byte[] createPdf(boolean fullCompression, int objects) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        if (fullCompression)
+            writer.setFullCompression();
+        document.open();
+        document.add(new Paragraph("Hello"));
+        PdfArray numbers = new PdfArray();
+        for (int k = 0; k < objects; ++k)
+            numbers.add(writer.addToBody(new PdfNumber(k)).getIndirectReference());
+        writer.getExtraCatalog().put(new PdfName("Numbers"), writer.addToBody(numbers).getIndirectReference());
+        document.newPage();
+        document.add(new Paragraph("World"));
+        document.close();
+        return baos.toByteArray();
+    }
+
+    private static void checkPdf(byte[] pdf, int objects) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        Assert.assertFalse(reader.isRebuilt());
+        Assert.assertEquals(2, reader.getNumberOfPages());
+        PdfArray numbers = reader.getCatalog().getAsArray(new PdfName("Numbers"));
+        Assert.assertEquals(objects, numbers.size());
+        for (int k = 0; k < objects; ++k)
+            Assert.assertEquals(k, numbers.getAsNumber(k).intValue());
+        reader.close();
+    }
+}
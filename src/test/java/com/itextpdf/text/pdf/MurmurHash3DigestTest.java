@@ -0,0 +1,84 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.security.MessageDigest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MurmurHash3DigestTest {
+
+    private static String toHex(byte[] b) {
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < b.length; ++k)
+            sb.append(Integer.toHexString((b[k] & 0xff) | 0x100).substring(1));
+        return sb.toString();
+    }
+
+    @Test
+    public void testKnownValues() throws Exception {
+        MessageDigest md = new MurmurHash3Digest();
+        Assert.assertEquals("00000000000000000000000000000000", toHex(md.digest(new byte[0])));
+        Assert.assertEquals("029bbd41b3a7d8cb191dae486a901e5b", toHex(md.digest("hello".getBytes("UTF-8"))));
+        Assert.assertEquals("6c1b07bc7bbc4be347939ac4a93c437a", toHex(md.digest("The quick brown fox jumps over the lazy dog".getBytes("UTF-8"))));
+    }
+
+    @Test
+    public void testIncrementalUpdates() throws Exception {
+        byte[] data = new byte[1000];
+        for (int k = 0; k < data.length; ++k)
+            data[k] = (byte)(k * 7);
+        MessageDigest md = new MurmurHash3Digest();
+        byte[] expected = md.digest(data);
+        for (int k = 0; k < data.length; ++k)
+            md.update(data[k]);
+        Assert.assertArrayEquals(expected, md.digest());
+        md.update(data, 0, 3);
+        md.update(data, 3, 500);
+        md.update(data, 503, 497);
+        Assert.assertArrayEquals(expected, md.digest());
+    }
+}
@@ -67,6 +67,40 @@ public class PRTokeniserTest {
 		checkNumberValue("--9", "0");
 	}
 
+	@Test
+	public void testDoubleValue() throws Exception {
+		String[] numbers = {"0", "-0", "12", "-12.5", "+3.25", ".5", "-.125", "4.", "0.1", "0.7",
+				"123456.789012", "1234567890123456789", "0.00000000000000000000001", "3.4028235E38"};
+		for (String number : numbers) {
+			PRTokeniser tok = new PRTokeniser(new RandomAccessFileOrArray(number.getBytes()));
+			tok.nextToken();
+			Assert.assertEquals(number, Double.parseDouble(tok.getStringValue()), tok.doubleValue());
+		}
+	}
+
+	@Test
+	public void testTokenBytes() throws Exception {
+		PRTokeniser tok = new PRTokeniser(new RandomAccessFileOrArray("/Na#6De (a\\)b) 12 Tf".getBytes()));
+		String[] expected = {"Name", "a)b", "12", "Tf"};
+		for (String value : expected) {
+			tok.nextValidToken();
+			Assert.assertEquals(value, new String(tok.getTokenBytes(), 0, tok.getTokenLength(), "ISO-8859-1"));
+			Assert.assertEquals(value, tok.getStringValue());
+		}
+		tok.nextValidToken();
+		Assert.assertEquals(TokenType.ENDOFFILE, tok.getTokenType());
+	}
+
+	@Test
+	public void testNumberAfterReferenceLookAhead() throws Exception {
+		PRTokeniser tok = new PRTokeniser(new RandomAccessFileOrArray("12 0 Tf".getBytes()));
+		tok.nextValidToken();
+		Assert.assertEquals(TokenType.NUMBER, tok.getTokenType());
+		Assert.assertEquals("12", new String(tok.getTokenBytes(), 0, tok.getTokenLength(), "ISO-8859-1"));
+		Assert.assertEquals(12, tok.intValue());
+		Assert.assertEquals(12.0, tok.doubleValue());
+	}
+
 	@Test
 	public void test() throws Exception {
 		checkTokenTypes(
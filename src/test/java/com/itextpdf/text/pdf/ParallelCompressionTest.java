@@ -0,0 +1,134 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.Paragraph;
+
+public class ParallelCompressionTest {
+
+    private static final String FONT = "./src/test/resources/com/itextpdf/text/pdf/MultithreadedTtfTest/FreeSans.ttf";
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSameOutputAsSequentialCompression() throws Exception {
+        byte[] sequential = createPdf(null, false);
+        byte[] parallel = createPdf(executor, false);
+        Assert.assertEquals(normalize(sequential), normalize(parallel));
+    }
+
+    @Test
+    public void testSameOutputWithFullCompression() throws Exception {
+        byte[] sequential = createPdf(null, true);
+        byte[] parallel = createPdf(executor, true);
+        Assert.assertEquals(normalize(sequential), normalize(parallel));
+        PdfReader reader = new PdfReader(parallel);
+        Assert.assertEquals(30, reader.getNumberOfPages());
+        reader.close();
+    }
+
+    private static byte[] createPdf(ExecutorService executor, boolean fullCompression) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        writer.setCompressionExecutor(executor, 4);
+        if (fullCompression)
+            writer.setFullCompression();
+        document.open();
+        BaseFont bf = BaseFont.createFont(FONT, BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+        // a subset would get a random name
+        bf.setSubset(false);
+        Font font = new Font(bf, 10);
+        PdfTemplate template = writer.getDirectContent().createTemplate(100, 100);
+        template.rectangle(10, 10, 80, 80);
+        template.stroke();
+        byte[] data = new byte[64 * 64 * 3];
+        new Random(42).nextBytes(data);
+        Image image = Image.getInstance(64, 64, 3, 8, data);
+        for (int page = 1; page <= 30; ++page) {
+            document.newPage();
+            for (int k = 0; k < 20; ++k)
+                document.add(new Paragraph("Page " + page + " line " + k + " the quick brown fox jumps over the lazy dog", font));
+            writer.getDirectContent().addTemplate(template, 400, 50);
+            if (page % 10 == 0)
+                document.add(image);
+        }
+        document.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Blanks the dates and the file identifiers, the only parts of the output that change between runs.
+     */
+    private static String normalize(byte[] pdf) throws Exception {
+        String s = new String(pdf, "ISO-8859-1");
+        s = s.replaceAll("D:\\d{14}[^)]*", "D:");
+        s = s.replaceAll("<[0-9a-f]{32}>", "<>");
+        return s;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Rectangle;
+
+public class ParallelFlatteningTest {
+
+    private static final int PAGES = 12;
+    private static final int FIELDS = 30;
+
+    private static ExecutorService executor;
+    private static byte form[];
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+        form = createForm();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void flattensAllTheFieldsAsOnOneThread() throws Exception {
+        PdfReader expected = new PdfReader(flatten(null, null));
+        PdfReader actual = new PdfReader(flatten(executor, null));
+        assertSamePages(expected, actual);
+        Assert.assertTrue(actual.getAcroFields().getFields().isEmpty());
+    }
+
+    @Test
+    public void flattensSomeFieldsAsOnOneThread() throws Exception {
+        List<String> names = new ArrayList<String>();
+        for (int p = 0; p < PAGES; p += 2) {
+            for (int k = 0; k < FIELDS; k += 2)
+                names.add("group" + p + ".f" + k);
+        }
+        for (int k = 1; k < FIELDS; k += 4)
+            names.add("single3_" + k);
+        PdfReader expected = new PdfReader(flatten(null, names));
+        PdfReader actual = new PdfReader(flatten(executor, names));
+        assertSamePages(expected, actual);
+        Assert.assertEquals(expected.getAcroFields().getFields().keySet(), actual.getAcroFields().getFields().keySet());
+    }
+
+    @Test
+    public void removesTheParentsOfFlattenedFields() throws Exception {
+        List<String> names = new ArrayList<String>();
+        for (int k = 0; k < FIELDS; k += 2)
+            names.add("group1.f" + k);
+        PdfReader reader = new PdfReader(flatten(executor, names));
+        PdfArray fields = reader.getCatalog().getAsDict(PdfName.ACROFORM).getAsArray(PdfName.FIELDS);
+        Assert.assertEquals(PAGES - 1 + PAGES * FIELDS / 2, fields.size());
+        AcroFields form = reader.getAcroFields();
+        Assert.assertNull(form.getFieldItem("group1.f0"));
+        Assert.assertNotNull(form.getFieldItem("group2.f0"));
+        Assert.assertEquals(FIELDS / 2, reader.getPageN(2).getAsArray(PdfName.ANNOTS).size());
+        String content = new String(reader.getPageContent(2), "ISO-8859-1");
+        Assert.assertEquals(FIELDS / 2, content.split(" Do Q").length - 1);
+    }
+
+    private static byte[] flatten(ExecutorService executor, List<String> names) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PdfStamper stamper = new PdfStamper(new PdfReader(form), baos);
+        stamper.setFormFlattening(true);
+        stamper.setFlatteningExecutor(executor);
+        if (names != null) {
+            for (String name : names)
+                Assert.assertTrue(name, stamper.partialFormFlattening(name));
+        }
+        stamper.close();
+        return baos.toByteArray();
+    }
+
+    private static void assertSamePages(PdfReader expected, PdfReader actual) throws Exception {
+        Assert.assertEquals(expected.getNumberOfPages(), actual.getNumberOfPages());
+        for (int p = 1; p <= expected.getNumberOfPages(); ++p) {
+            Assert.assertArrayEquals(expected.getPageContent(p), actual.getPageContent(p));
+            PdfDictionary expectedXObjects = expected.getPageResources(p).getAsDict(PdfName.XOBJECT);
+            PdfDictionary actualXObjects = actual.getPageResources(p).getAsDict(PdfName.XOBJECT);
+            Assert.assertEquals(expectedXObjects == null, actualXObjects == null);
+            if (expectedXObjects != null)
+                Assert.assertEquals(expectedXObjects.getKeys(), actualXObjects.getKeys());
+            PdfArray expectedAnnots = expected.getPageN(p).getAsArray(PdfName.ANNOTS);
+            PdfArray actualAnnots = actual.getPageN(p).getAsArray(PdfName.ANNOTS);
+            Assert.assertEquals(expectedAnnots == null, actualAnnots == null);
+            if (expectedAnnots != null)
+                Assert.assertEquals(expectedAnnots.size(), actualAnnots.size());
+        }
+    }
+
+    private static byte[] createForm() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        document.open();
+        BaseFont font = BaseFont.createFont();
+        for (int p = 0; p < PAGES; ++p) {
+            document.newPage();
+            document.add(new Paragraph("Page " + (p + 1)));
+            PdfFormField group = PdfFormField.createEmpty(writer);
+            group.setFieldName("group" + p);
+            for (int k = 0; k < FIELDS; ++k) {
+                float x = 36 + (k % 3) * 180;
+                float y = 760 - (k / 3) * 32;
+                TextField text = new TextField(writer, new Rectangle(x, y, x + 170, y + 20), "f" + k);
+                text.setFont(font);
+                text.setFontSize(9);
+                text.setText("Value " + p + "/" + k);
+                PdfFormField field = text.getTextField();
+                if (k % 2 == 0) {
+                    group.addKid(field);
+                }
+                else {
+                    field.setFieldName("single" + p + "_" + k);
+                    writer.addAnnotation(field);
+                }
+            }
+            writer.addAnnotation(group);
+        }
+        document.close();
+        return baos.toByteArray();
+    }
+}
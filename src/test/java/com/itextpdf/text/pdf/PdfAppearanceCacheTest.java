@@ -0,0 +1,216 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Rectangle;
+
+public class PdfAppearanceCacheTest {
+
+    private static final int FIELDS = 20;
+
+    @Test
+    public void sharesAppearancesInADocument() throws Exception {
+        byte form[] = createForm();
+        Map<String, String> record = new HashMap<String, String>();
+        for (int k = 0; k < FIELDS; ++k) {
+            record.put("text" + k, k < 15 ? "Same" : "Other " + k);
+            record.put("check" + k, "Yes");
+        }
+        byte plain[] = fill(form, record, null);
+        byte cached[] = fill(form, record, new PdfAppearanceCache(1 << 20));
+
+        Assert.assertEquals(FIELDS * 2, appearances(plain).size());
+        Assert.assertEquals(1 + 5 + 1, appearances(cached).size());
+        Assert.assertTrue(cached.length < plain.length);
+        PdfReader reader = new PdfReader(cached);
+        AcroFields fields = reader.getAcroFields();
+        Assert.assertEquals("Same", fields.getField("text3"));
+        Assert.assertEquals("Other 17", fields.getField("text17"));
+        Assert.assertEquals("Yes", fields.getField("check5"));
+    }
+
+    @Test
+    public void sharesAppearancesBetweenDocuments() throws Exception {
+        byte form[] = createForm();
+        PdfAppearanceCache cache = new PdfAppearanceCache(1 << 20);
+        AcroFieldsTemplate template = new AcroFieldsTemplate(new PdfReader(form));
+        template.setAppearanceCache(cache);
+        Map<String, String> record = new HashMap<String, String>();
+        record.put("text0", "Repeated header");
+        record.put("text1", "Repeated header");
+        record.put("check0", "Yes");
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        template.fill(record, first);
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(2, cache.size());
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        template.fill(record, second);
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(2, cache.size());
+
+        PdfReader expected = new PdfReader(first.toByteArray());
+        PdfReader actual = new PdfReader(second.toByteArray());
+        for (String name : record.keySet()) {
+            Assert.assertEquals(name, expected.getAcroFields().getField(name), actual.getAcroFields().getField(name));
+            Assert.assertArrayEquals(name, appearance(expected, name), appearance(actual, name));
+        }
+    }
+
+    @Test
+    public void keepsTheAppearancesOfDifferentFormsApart() throws Exception {
+        PdfAppearanceCache cache = new PdfAppearanceCache(1 << 20);
+        Map<String, String> record = new HashMap<String, String>();
+        record.put("text0", "Same value");
+        byte helvetica[] = createCenteredForm(BaseFont.HELVETICA);
+        byte courier[] = createCenteredForm(BaseFont.COURIER);
+        fill(helvetica, record, cache);
+        byte cached[] = fill(courier, record, cache);
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(2, cache.size());
+        byte plain[] = fill(courier, record, null);
+        Assert.assertArrayEquals(appearance(new PdfReader(plain), "text0"), appearance(new PdfReader(cached), "text0"));
+
+        fill(helvetica, record, cache);
+        Assert.assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void dropsTheLeastRecentlyUsedAppearances() throws Exception {
+        byte form[] = createForm();
+        PdfAppearanceCache cache = new PdfAppearanceCache(1500);
+        AcroFieldsTemplate template = new AcroFieldsTemplate(new PdfReader(form));
+        template.setAppearanceCache(cache);
+        for (int k = 0; k < 50; ++k) {
+            Map<String, String> record = new HashMap<String, String>();
+            record.put("text0", "Value " + k);
+            template.fill(record, new ByteArrayOutputStream());
+        }
+        Assert.assertTrue(cache.getBytes() <= 1500);
+        Assert.assertTrue(cache.size() < 50);
+        Assert.assertEquals(50, cache.getMisses());
+    }
+
+    private static byte[] createForm() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        document.open();
+        document.add(new Paragraph("Form"));
+        BaseFont font = BaseFont.createFont();
+        for (int k = 0; k < FIELDS; ++k) {
+            float y = 760 - k * 32;
+            TextField text = new TextField(writer, new Rectangle(36, y, 236, y + 20), "text" + k);
+            text.setFont(font);
+            text.setFontSize(10);
+            writer.addAnnotation(text.getTextField());
+            RadioCheckField check = new RadioCheckField(writer, new Rectangle(260, y, 280, y + 20), "check" + k, "Yes");
+            writer.addAnnotation(check.getCheckField());
+        }
+        document.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Creates forms that only differ by the font behind the same object number and
+     * font name, with centered text so that the appearances differ.
+     */
+    private static byte[] createCenteredForm(String fontName) throws Exception {
+        PdfReader reader = new PdfReader(createForm());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PdfStamper stamper = new PdfStamper(reader, baos);
+        AcroFields.Item item = stamper.getAcroFields().getFieldItem("text0");
+        item.getMerged(0).getAsDict(PdfName.DR).getAsDict(PdfName.FONT).getAsDict(new PdfName("Helv")).put(PdfName.BASEFONT, new PdfName(fontName));
+        item.getValue(0).put(PdfName.Q, new PdfNumber(1));
+        item.getMerged(0).put(PdfName.Q, new PdfNumber(1));
+        stamper.close();
+        return baos.toByteArray();
+    }
+
+    private static byte[] fill(byte form[], Map<String, String> record, PdfAppearanceCache cache) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PdfStamper stamper = new PdfStamper(new PdfReader(form), baos);
+        AcroFields fields = stamper.getAcroFields();
+        fields.setAppearanceCache(cache);
+        for (Map.Entry<String, String> field : record.entrySet())
+            fields.setField(field.getKey(), field.getValue());
+        stamper.close();
+        return baos.toByteArray();
+    }
+
+    private static Set<Integer> appearances(byte pdf[]) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        Set<Integer> refs = new HashSet<Integer>();
+        for (AcroFields.Item item : reader.getAcroFields().getFields().values()) {
+            PdfDictionary ap = item.getWidget(0).getAsDict(PdfName.AP);
+            PdfObject normal = ap.get(PdfName.N);
+            PdfDictionary states = ap.getAsDict(PdfName.N);
+            if (states != null && !states.isStream())
+                normal = states.get(new PdfName("Yes"));
+            refs.add(Integer.valueOf(((PdfIndirectReference)normal).getNumber()));
+        }
+        reader.close();
+        return refs;
+    }
+
+    private static byte[] appearance(PdfReader reader, String name) throws Exception {
+        PdfDictionary ap = reader.getAcroFields().getFieldItem(name).getWidget(0).getAsDict(PdfName.AP);
+        PdfObject normal = PdfReader.getPdfObject(ap.get(PdfName.N));
+        if (normal.isDictionary())
+            normal = PdfReader.getPdfObject(((PdfDictionary)normal).get(new PdfName("Yes")));
+        return PdfReader.getStreamBytes((PRStream)normal);
+    }
+}
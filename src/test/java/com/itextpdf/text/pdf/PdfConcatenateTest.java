@@ -0,0 +1,132 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.itextpdf.text.Chapter;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+
+public class PdfConcatenateTest {
+
+    private static final int DOCUMENTS = 25;
+
+    private static byte[] createPdf(int n) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, baos);
+        document.open();
+        Chapter chapter = new Chapter(new Paragraph("Invoice " + n), n);
+        chapter.add(new Paragraph("Page one of invoice " + n));
+        document.add(chapter);
+        document.newPage();
+        document.add(new Paragraph("Page two of invoice " + n));
+        document.close();
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testConcatenateIterator() throws Exception {
+        final List<byte[]> pdfs = new ArrayList<byte[]>();
+        for (int i = 1; i <= DOCUMENTS; ++i)
+            pdfs.add(createPdf(i));
+        Iterator<PdfReader> readers = new Iterator<PdfReader>() {
+            private int next = 0;
+
+            public boolean hasNext() {
+                return next < pdfs.size();
+            }
+
+            public PdfReader next() {
+                try {
+                    return new PdfReader(pdfs.get(next++));
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        final int[] notifications = new int[1];
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PdfConcatenate concatenate = new PdfConcatenate(baos, true);
+        concatenate.setKeepBookmarks(true);
+        concatenate.setProgressListener(new PdfConcatenate.ProgressListener() {
+            public void documentAdded(PdfConcatenate concatenate, int pages) {
+                Assert.assertEquals(2, pages);
+                Assert.assertEquals(++notifications[0], concatenate.getNumberOfDocuments());
+                Assert.assertTrue(concatenate.getCurrentDocumentSize() > 0);
+                Assert.assertTrue(concatenate.getWriter().indirectMap.isEmpty());
+                Assert.assertTrue(concatenate.getWriter().readerInstances.isEmpty());
+            }
+        });
+        Assert.assertEquals(2 * DOCUMENTS, concatenate.addPages(readers));
+        Assert.assertEquals(DOCUMENTS, concatenate.getNumberOfDocuments());
+        Assert.assertEquals(2 * DOCUMENTS, concatenate.getNumberOfPages());
+        concatenate.close();
+        Assert.assertEquals(DOCUMENTS, notifications[0]);
+
+        PdfReader reader = new PdfReader(baos.toByteArray());
+        Assert.assertEquals(2 * DOCUMENTS, reader.getNumberOfPages());
+        List<HashMap<String, Object>> bookmarks = SimpleBookmark.getBookmark(reader);
+        Assert.assertEquals(DOCUMENTS, bookmarks.size());
+        for (int i = 0; i < DOCUMENTS; ++i) {
+            Assert.assertTrue(((String)bookmarks.get(i).get("Title")).endsWith("Invoice " + (i + 1)));
+            Assert.assertTrue(((String)bookmarks.get(i).get("Page")).startsWith((2 * i + 1) + " "));
+        }
+        reader.close();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PdfContentParserTest {
+
+    private static PdfContentParser parser(String content) {
+        return new PdfContentParser(new PRTokeniser(new RandomAccessFileOrArray(content.getBytes())));
+    }
+
+    @Test
+    public void sharesNamesAndOperators() throws Exception {
+        PdfContentParser ps = parser("/F1 12 Tf /F1 10.5 Tf");
+        ArrayList<PdfObject> first = new ArrayList<PdfObject>(ps.parse(null));
+        ArrayList<PdfObject> second = new ArrayList<PdfObject>(ps.parse(null));
+        Assert.assertEquals(3, first.size());
+        Assert.assertEquals(3, second.size());
+        Assert.assertEquals(new PdfName("F1"), first.get(0));
+        Assert.assertSame(first.get(0), second.get(0));
+        Assert.assertEquals("Tf", first.get(2).toString());
+        Assert.assertSame(first.get(2), second.get(2));
+        Assert.assertEquals(PdfContentParser.COMMAND_TYPE, second.get(2).type());
+        Assert.assertEquals(12, ((PdfNumber)first.get(1)).intValue());
+        Assert.assertEquals(10.5, ((PdfNumber)second.get(1)).doubleValue(), 0);
+        Assert.assertEquals("10.5", second.get(1).toString());
+        Assert.assertEquals(0, ps.parse(null).size());
+    }
+
+    @Test
+    public void readsDictionaryKeys() throws Exception {
+        PdfContentParser ps = parser("/Span <</MCID 3 /ActualText (x)>> BDC <</MCID 4>> BDC");
+        ArrayList<PdfObject> first = new ArrayList<PdfObject>(ps.parse(null));
+        ArrayList<PdfObject> second = new ArrayList<PdfObject>(ps.parse(null));
+        PdfDictionary dic = (PdfDictionary)first.get(1);
+        Assert.assertEquals(3, dic.getAsNumber(PdfName.MCID).intValue());
+        Assert.assertEquals("x", dic.getAsString(PdfName.ACTUALTEXT).toString());
+        Assert.assertSame(dic.getKeys().iterator().next().getClass(), PdfName.class);
+        Assert.assertEquals(4, ((PdfDictionary)second.get(0)).getAsNumber(PdfName.MCID).intValue());
+        Assert.assertSame(first.get(2), second.get(1));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void reportsInvalidNumbers() throws Exception {
+        parser("1.2.3 w").parse(null);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Image;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PdfImageCacheTest {
+
+    private static byte[] pixels(int seed) {
+        byte data[] = new byte[64 * 64 * 3];
+        for (int k = 0; k < data.length; ++k)
+            data[k] = (byte)(k * seed);
+        return data;
+    }
+
+    private static Image image(int seed) throws Exception {
+        return Image.getInstance(64, 64, 3, 8, pixels(seed));
+    }
+
+    private static byte[] createPdf(boolean deduplicate, PdfImageCache cache, int... seeds) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        writer.setDeduplicateImages(deduplicate);
+        writer.setImageCache(cache);
+        document.open();
+        for (int seed : seeds) {
+            document.newPage();
+            // a new Image for every page, as when it is loaded again each time
+            Image img = image(seed);
+            img.setAbsolutePosition(36, 36);
+            document.add(img);
+        }
+        document.close();
+        return baos.toByteArray();
+    }
+
+    private static Set<Integer> imageObjects(byte[] pdf) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        Set<Integer> numbers = new HashSet<Integer>();
+        for (int page = 1; page <= reader.getNumberOfPages(); ++page) {
+            PdfDictionary xobjects = reader.getPageResources(page).getAsDict(PdfName.XOBJECT);
+            for (PdfName name : xobjects.getKeys()) {
+                PdfIndirectReference ref = xobjects.getAsIndirectObject(name);
+                numbers.add(ref.getNumber());
+                PRStream stream = (PRStream)PdfReader.getPdfObject(ref);
+                Assert.assertArrayEquals(pixels(1), PdfReader.getStreamBytes(stream));
+            }
+        }
+        reader.close();
+        return numbers;
+    }
+
+    @Test
+    public void addsEqualImagesOnce() throws Exception {
+        Assert.assertEquals(3, imageObjects(createPdf(false, null, 1, 1, 1)).size());
+        Assert.assertEquals(1, imageObjects(createPdf(true, null, 1, 1, 1)).size());
+    }
+
+    @Test
+    public void keepsDifferentImages() throws Exception {
+        Assert.assertNotNull(PdfImageCache.keyOf(image(1)));
+        Assert.assertEquals(PdfImageCache.keyOf(image(1)), PdfImageCache.keyOf(image(1)));
+        Assert.assertFalse(PdfImageCache.keyOf(image(1)).equals(PdfImageCache.keyOf(image(2))));
+        Image inverted = image(1);
+        inverted.setInverted(true);
+        Assert.assertFalse(PdfImageCache.keyOf(image(1)).equals(PdfImageCache.keyOf(inverted)));
+        Image mask = Image.getInstance(64, 64, 1, 8, new byte[64 * 64]);
+        mask.makeMask();
+        Image masked = image(1);
+        masked.setImageMask(mask);
+        Assert.assertFalse(PdfImageCache.keyOf(image(1)).equals(PdfImageCache.keyOf(masked)));
+    }
+
+    @Test
+    public void sharesEncodedImagesBetweenWriters() throws Exception {
+        PdfImageCache cache = new PdfImageCache(1024 * 1024);
+        byte[] first = createPdf(false, cache, 1, 1);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(0, cache.getHits());
+        byte[] second = createPdf(false, cache, 1);
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, imageObjects(first).size());
+        Assert.assertEquals(1, imageObjects(second).size());
+    }
+
+    @Test
+    public void sharesMaskedImages() throws Exception {
+        PdfImageCache cache = new PdfImageCache(1024 * 1024);
+        for (int doc = 0; doc < 2; ++doc) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            Document document = new Document();
+            PdfWriter writer = PdfWriter.getInstance(document, baos);
+            writer.setImageCache(cache);
+            document.open();
+            for (int page = 0; page < 2; ++page) {
+                document.newPage();
+                Image mask = Image.getInstance(64, 64, 1, 8, new byte[64 * 64]);
+                mask.makeMask();
+                Image img = image(1);
+                img.setImageMask(mask);
+                img.setAbsolutePosition(36, 36);
+                document.add(img);
+            }
+            document.close();
+            PdfReader reader = new PdfReader(baos.toByteArray());
+            Set<Integer> numbers = new HashSet<Integer>();
+            for (int page = 1; page <= 2; ++page) {
+                PdfDictionary xobjects = reader.getPageResources(page).getAsDict(PdfName.XOBJECT);
+                PdfName name = xobjects.getKeys().iterator().next();
+                numbers.add(xobjects.getAsIndirectObject(name).getNumber());
+                PRStream smask = (PRStream)xobjects.getAsStream(name).getAsStream(PdfName.SMASK);
+                Assert.assertNotNull(smask);
+                Assert.assertEquals(64 * 64, PdfReader.getStreamBytes(smask).length);
+            }
+            Assert.assertEquals(1, numbers.size());
+            reader.close();
+        }
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void staysBounded() throws Exception {
+        PdfImageCache cache = new PdfImageCache(1);
+        createPdf(false, cache, 1);
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getBytes());
+    }
+}
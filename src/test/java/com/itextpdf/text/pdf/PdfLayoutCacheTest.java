@@ -0,0 +1,179 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Chunk;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PdfLayoutCacheTest {
+
+    private static final String TEXTS[] = {
+        "Short",
+        "A longer description of the item that wraps over a few lines in the narrow column",
+        "Amount due",
+        "The party of the first part shall indemnify the party of the second part"
+    };
+
+    private static PdfPTable createTable(PdfLayoutCache cache, int round) {
+        PdfPTable table = new PdfPTable(new float[]{1, 2, 1, 3});
+        table.setLayoutCache(cache);
+        Font small = new Font(Font.FontFamily.HELVETICA, 8);
+        Font big = new Font(Font.FontFamily.TIMES_ROMAN, 14, Font.BOLD | Font.UNDERLINE);
+        for (int k = 0; k < TEXTS.length; ++k) {
+            table.addCell(new Phrase(TEXTS[k], k % 2 == 0 ? small : big));
+            PdfPCell cell = new PdfPCell(new Phrase(TEXTS[(k + round) % TEXTS.length], small));
+            if (k == 1)
+                cell.setRotation(90);
+            if (k == 2)
+                cell.setNoWrap(true);
+            if (k == 3)
+                cell.setPadding(6);
+            table.addCell(cell);
+            Chunk chunk = new Chunk(TEXTS[k], big);
+            chunk.setHorizontalScaling(0.8f);
+            table.addCell(new Phrase(chunk));
+            PdfPCell composite = new PdfPCell();
+            composite.addElement(new Paragraph(TEXTS[k], small));
+            table.addCell(composite);
+        }
+        return table;
+    }
+
+    private static byte[] createPdf(PdfLayoutCache cache) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, baos);
+        document.open();
+        for (int round = 0; round < 8; ++round)
+            document.add(createTable(cache, round));
+        document.close();
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void cachedHeightsGiveTheSameLayout() throws Exception {
+        PdfLayoutCache cache = new PdfLayoutCache(1000);
+        PdfReader expected = new PdfReader(createPdf(null));
+        PdfReader actual = new PdfReader(createPdf(cache));
+        Assert.assertEquals(expected.getNumberOfPages(), actual.getNumberOfPages());
+        for (int page = 1; page <= expected.getNumberOfPages(); ++page)
+            Assert.assertArrayEquals(expected.getPageContent(page), actual.getPageContent(page));
+        Assert.assertTrue(cache.getHits() > 0);
+        // the composite cells are always measured
+        Assert.assertEquals(cache.getMisses(), cache.size());
+        Assert.assertTrue(cache.size() < 3 * TEXTS.length + TEXTS.length * TEXTS.length);
+        expected.close();
+        actual.close();
+    }
+
+    @Test
+    public void cellsWithDifferentFontsAreNotConfused() {
+        PdfLayoutCache cache = new PdfLayoutCache(1000);
+        float heights[] = new float[3];
+        Font fonts[] = {new Font(Font.FontFamily.HELVETICA, 8), new Font(Font.FontFamily.HELVETICA, 20), new Font(Font.FontFamily.HELVETICA, 8)};
+        for (int k = 0; k < fonts.length; ++k) {
+            PdfPTable table = new PdfPTable(1);
+            table.setLayoutCache(cache);
+            table.setTotalWidth(100);
+            table.addCell(new Phrase(TEXTS[1], fonts[k]));
+            heights[k] = table.getRowHeight(0);
+        }
+        Assert.assertTrue(heights[1] > heights[0]);
+        Assert.assertEquals(heights[0], heights[2], 0);
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void keysOnlyHoldLayoutAttributes() {
+        PdfLayoutCache cache = new PdfLayoutCache(1000);
+        Chunk plain = new Chunk(TEXTS[1]);
+        Chunk background = new Chunk(TEXTS[1]);
+        background.setBackground(BaseColor.YELLOW);
+        background.setUnderline(0.5f, -2);
+        Chunk link = new Chunk(TEXTS[1]);
+        link.setLocalGoto("details");
+        Chunk spaced = new Chunk(TEXTS[1]);
+        spaced.setCharacterSpacing(2);
+        float heights[] = new float[4];
+        Chunk chunks[] = {plain, background, link, spaced};
+        for (int k = 0; k < chunks.length; ++k) {
+            PdfPTable table = new PdfPTable(1);
+            table.setLayoutCache(cache);
+            table.setTotalWidth(100);
+            table.addCell(new Phrase(chunks[k]));
+            heights[k] = table.getRowHeight(0);
+        }
+        Assert.assertEquals(heights[0], heights[1], 0);
+        Assert.assertEquals(heights[0], heights[2], 0);
+        Assert.assertTrue(heights[3] > heights[0]);
+        // the background and the underline don't change the key, the link isn't cached
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedHeightsAreDropped() {
+        PdfLayoutCache cache = new PdfLayoutCache(2);
+        for (int k = 0; k < 3; ++k) {
+            PdfPTable table = new PdfPTable(1);
+            table.setLayoutCache(cache);
+            table.setTotalWidth(100);
+            table.addCell(TEXTS[k]);
+            table.getRowHeight(0);
+        }
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(3, cache.getMisses());
+    }
+}
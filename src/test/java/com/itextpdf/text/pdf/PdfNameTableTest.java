@@ -0,0 +1,138 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PdfNameTableTest {
+
+    @Before
+    public void setUp() {
+        PdfNameTable.clear();
+        PdfNameTable.resetStatistics();
+        PdfNameTable.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        PdfNameTable.setEnabled(false);
+        PdfNameTable.setMaxSize(16 * 1024);
+    }
+
+    private static PdfName get(String name) {
+        byte[] b = PdfEncodings.convertToBytes(name, null);
+        return PdfNameTable.get(b, 0, b.length);
+    }
+
+    @Test
+    public void startsWithStaticNames() {
+        Assert.assertSame(PdfName.TYPE, get("Type"));
+        Assert.assertSame(PdfName.FONT, get("Font"));
+        Assert.assertEquals(PdfName.staticNames.size(), PdfNameTable.size());
+        Assert.assertEquals(2, PdfNameTable.getHits());
+        Assert.assertEquals(0, PdfNameTable.getMisses());
+    }
+
+    @Test
+    public void internsNewNames() {
+        PdfName first = get("F1 x");
+        Assert.assertEquals(new PdfName("F1 x"), first);
+        Assert.assertEquals("/F1#20x", first.toString());
+        Assert.assertSame(first, get("F1 x"));
+        Assert.assertSame(first, PdfNameTable.get("/F1 x/".getBytes(), 1, 4));
+        Assert.assertEquals(1, PdfNameTable.getMisses());
+        Assert.assertEquals(2, PdfNameTable.getHits());
+        Assert.assertEquals(2.0 / 3, PdfNameTable.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void staysBounded() {
+        int max = PdfName.staticNames.size() + 10;
+        PdfNameTable.setMaxSize(max);
+        for (int k = 0; k < 1000; ++k)
+            Assert.assertEquals(new PdfName("N" + k), get("N" + k));
+        Assert.assertTrue(PdfNameTable.size() <= max);
+        Assert.assertEquals(new PdfName("N999"), get("N999"));
+    }
+
+    @Test
+    public void sharesNamesBetweenParsers() throws Exception {
+        PdfContentParser ps1 = new PdfContentParser(new PRTokeniser(new RandomAccessFileOrArray("/F1 12 Tf".getBytes())));
+        PdfContentParser ps2 = new PdfContentParser(new PRTokeniser(new RandomAccessFileOrArray("/F1 10 Tf".getBytes())));
+        ArrayList<PdfObject> first = new ArrayList<PdfObject>(ps1.parse(null));
+        ArrayList<PdfObject> second = ps2.parse(null);
+        Assert.assertSame(first.get(0), second.get(0));
+    }
+
+    @Test
+    public void sharesNamesBetweenReaders() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, baos);
+        document.open();
+        document.add(new Paragraph("Hello"));
+        document.close();
+        PdfReader reader1 = new PdfReader(baos.toByteArray());
+        PdfReader reader2 = new PdfReader(baos.toByteArray());
+        PdfDictionary font1 = reader1.getPageN(1).getAsDict(PdfName.RESOURCES).getAsDict(PdfName.FONT);
+        PdfDictionary font2 = reader2.getPageN(1).getAsDict(PdfName.RESOURCES).getAsDict(PdfName.FONT);
+        PdfName key1 = font1.getKeys().iterator().next();
+        PdfName key2 = font2.getKeys().iterator().next();
+        Assert.assertEquals(key1, key2);
+        Assert.assertSame(key1, key2);
+        Assert.assertSame(PdfName.PAGE, reader1.getPageN(1).getAsName(PdfName.TYPE));
+        Assert.assertTrue(PdfNameTable.getHitRate() > 0.5);
+        reader1.close();
+        reader2.close();
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.io.RandomAccessSourceFactory;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+
+public class PdfObjectCacheTest {
+
+    private static final int PAGES = 30;
+
+    private byte[] pdf;
+
+    @Before
+    public void setUp() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        writer.setFullCompression();
+        document.open();
+        for (int i = 1; i <= PAGES; ++i) {
+            document.add(new Paragraph("Page " + i));
+            document.newPage();
+        }
+        document.close();
+        pdf = baos.toByteArray();
+    }
+
+    private PdfReader openPartial(PdfObjectCache cache) throws Exception {
+        return openPartial(pdf, cache);
+    }
+
+    private static PdfReader openPartial(byte pdf[], PdfObjectCache cache) throws Exception {
+        PdfReader reader = new PdfReader(new RandomAccessFileOrArray(new RandomAccessSourceFactory().createSource(pdf)), null);
+        reader.setObjectCache(cache);
+        return reader;
+    }
+
+    private static void assertPagesText(PdfReader reader) throws Exception {
+        for (int i = 1; i <= PAGES; ++i) {
+            Assert.assertEquals("Page " + i, PdfTextExtractor.getTextFromPage(reader, i));
+            reader.releasePage(i);
+        }
+    }
+
+    @Test
+    public void testObjectStreamsAreDecodedOnce() throws Exception {
+        PdfObjectCache cache = new PdfObjectCache();
+        PdfReader reader = openPartial(cache);
+        assertPagesText(reader);
+        long streamMisses = cache.getObjectStreamMisses();
+        Assert.assertTrue(cache.getObjectStreamHits() > streamMisses);
+        assertPagesText(reader);
+        Assert.assertEquals(streamMisses, cache.getObjectStreamMisses());
+        Assert.assertTrue(cache.getObjectHits() > 0);
+        Assert.assertEquals(0, cache.getEvictions());
+        reader.close();
+    }
+
+    @Test
+    public void testMemoryBudget() throws Exception {
+        PdfObjectCache cache = new PdfObjectCache(1024);
+        PdfReader reader = openPartial(cache);
+        assertPagesText(reader);
+        assertPagesText(reader);
+        Assert.assertTrue(cache.getEvictions() > 0);
+        Assert.assertTrue(cache.getMemoryUsed() <= cache.getMemoryBudget());
+        reader.close();
+    }
+
+    @Test
+    public void testChangesAreNotCached() throws Exception {
+        PdfReader reader = openPartial(new PdfObjectCache());
+        PdfDictionary page = reader.getPageN(1);
+        page.put(PdfName.ROTATE, new PdfNumber(90));
+        reader.releasePage(1);
+        Assert.assertNull(reader.getPageN(1).get(PdfName.ROTATE));
+        reader.close();
+    }
+
+    @Test
+    public void testChangedNumbersAreNotCached() throws Exception {
+        PdfReader reader = openPartial(new PdfObjectCache());
+        PdfNumber width = reader.getPageN(1).getAsArray(PdfName.MEDIABOX).getAsNumber(2);
+        float expected = width.floatValue();
+        width.increment();
+        reader.releasePage(1);
+        Assert.assertEquals(expected, reader.getPageN(1).getAsArray(PdfName.MEDIABOX).getAsNumber(2).floatValue(), 0);
+        reader.close();
+    }
+
+    @Test
+    public void testSharedByReadersOfTheSameFile() throws Exception {
+        PdfObjectCache cache = new PdfObjectCache();
+        PdfReader first = openPartial(cache);
+        assertPagesText(first);
+        long hits = cache.getObjectHits();
+        PdfReader second = openPartial(cache);
+        assertPagesText(second);
+        Assert.assertTrue(cache.getObjectHits() > hits);
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testReadersOfAnotherFileAreRejected() throws Exception {
+        PdfObjectCache cache = new PdfObjectCache();
+        PdfReader reader = openPartial(cache);
+        assertPagesText(reader);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        writer.setFullCompression();
+        document.open();
+        document.add(new Paragraph("Another file"));
+        document.close();
+        try {
+            openPartial(baos.toByteArray(), cache);
+            Assert.fail("the cache was shared with another file");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+        reader.close();
+    }
+}
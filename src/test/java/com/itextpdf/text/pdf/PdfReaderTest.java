@@ -52,8 +52,11 @@ import org.junit.*;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -127,4 +130,78 @@ public class PdfReaderTest {
         rdr.close();
     }
 
+    private static byte[] deflate(byte[] b) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DeflaterOutputStream zip = new DeflaterOutputStream(baos, new Deflater(Deflater.BEST_COMPRESSION));
+        zip.write(b);
+        zip.close();
+        return baos.toByteArray();
+    }
+
+    private static void addStream(PdfWriter writer, String key, byte[] data, PdfObject filter, PdfDictionary decodeParms) throws IOException {
+        PdfStream stream = new PdfStream(data);
+        stream.put(PdfName.FILTER, filter);
+        if (decodeParms != null)
+            stream.put(PdfName.DECODEPARMS, decodeParms);
+        writer.getExtraCatalog().put(new PdfName(key), writer.addToBody(stream).getIndirectReference());
+    }
+
+    @Test
+    public void testGetStreamBytesFromMappedFile() throws Exception {
+        byte[] payload = new byte[100000];
+        for (int k = 0; k < payload.length; ++k)
+            payload[k] = (byte)(k % 251 + k / 1000);
+        int columns = 100;
+        byte[] predicted = new byte[payload.length / columns * (columns + 1)];
+        for (int row = 0, p = 0; row < payload.length / columns; ++row) {
+            predicted[p++] = 2;
+            for (int k = 0; k < columns; ++k, ++p) {
+                int above = row == 0 ? 0 : payload[(row - 1) * columns + k];
+                predicted[p] = (byte)(payload[row * columns + k] - above);
+            }
+        }
+        PdfDictionary decodeParms = new PdfDictionary();
+        decodeParms.put(PdfName.PREDICTOR, new PdfNumber(12));
+        decodeParms.put(PdfName.COLUMNS, new PdfNumber(columns));
+        ByteBuffer hex = new ByteBuffer();
+        for (int k = 0; k < payload.length; ++k)
+            hex.appendHex(payload[k]);
+        hex.append('>');
+
+        File file = File.createTempFile("streams", ".pdf");
+        try {
+            Document document = new Document();
+            FileOutputStream fos = new FileOutputStream(file);
+            PdfWriter writer = PdfWriter.getInstance(document, fos);
+            document.open();
+            document.add(new com.itextpdf.text.Paragraph("Hello"));
+            addStream(writer, "Flate", deflate(payload), PdfName.FLATEDECODE, null);
+            addStream(writer, "Predictor", deflate(predicted), new PdfArray(PdfName.FLATEDECODE), decodeParms);
+            PdfArray filters = new PdfArray(PdfName.FLATEDECODE);
+            filters.add(PdfName.ASCIIHEXDECODE);
+            addStream(writer, "Hex", deflate(hex.toByteArray()), filters, null);
+            byte[] deflated = deflate(payload);
+            byte[] truncated = new byte[deflated.length / 2];
+            System.arraycopy(deflated, 0, truncated, 0, truncated.length);
+            addStream(writer, "Truncated", truncated, PdfName.FLATEDECODE, null);
+            document.close();
+            fos.close();
+
+            PdfReader reader = new PdfReader(file.getAbsolutePath());
+            for (String key : new String[]{"Flate", "Predictor", "Hex"}) {
+                PRStream stream = (PRStream)PdfReader.getPdfObject(reader.getCatalog().get(new PdfName(key)));
+                Assert.assertArrayEquals(key, payload, PdfReader.getStreamBytes(stream));
+            }
+            PRStream stream = (PRStream)PdfReader.getPdfObject(reader.getCatalog().get(new PdfName("Truncated")));
+            byte[] recovered = PdfReader.getStreamBytes(stream);
+            Assert.assertArrayEquals(PdfReader.decodeBytes(PdfReader.getStreamBytesRaw(stream), stream), recovered);
+            Assert.assertTrue(recovered.length > 0);
+            Assert.assertEquals("Hello", new String(reader.getPageContent(1), "ISO-8859-1").replaceAll("(?s).*\\((.*)\\).*", "$1"));
+            reader.close();
+        }
+        finally {
+            file.delete();
+        }
+    }
+
 }
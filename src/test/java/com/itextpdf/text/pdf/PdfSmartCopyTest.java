@@ -0,0 +1,123 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.Paragraph;
+
+public class PdfSmartCopyTest {
+
+    private static byte[] createPdf(String text) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, baos);
+        document.open();
+        byte[] data = new byte[64 * 64 * 3];
+        new Random(1).nextBytes(data);
+        Image img = Image.getInstance(64, 64, 3, 8, data);
+        document.add(img);
+        document.add(new Paragraph(text));
+        document.close();
+        return baos.toByteArray();
+    }
+
+    private static byte[] merge(PdfSmartCopy.DigestFactory digestFactory, long[] stats) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfSmartCopy copy = new PdfSmartCopy(document, baos);
+        if (digestFactory != null)
+            copy.setDigestFactory(digestFactory);
+        document.open();
+        for (int i = 0; i < 5; ++i) {
+            PdfReader reader = new PdfReader(createPdf("Document " + i));
+            copy.addDocument(reader);
+            copy.freeReader(reader);
+            reader.close();
+        }
+        document.close();
+        stats[0] = copy.getDuplicates();
+        stats[1] = copy.getBytesSaved();
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testIdenticalImagesAreShared() throws Exception {
+        long[] stats = new long[2];
+        byte[] pdf = merge(null, stats);
+        Assert.assertTrue(stats[0] >= 4);
+        Assert.assertTrue(stats[1] >= 4 * 64 * 64 * 3);
+        PdfReader reader = new PdfReader(pdf);
+        Assert.assertEquals(5, reader.getNumberOfPages());
+        PdfObject first = reader.getPageResources(1).getAsDict(PdfName.XOBJECT).get(new PdfName("img0"));
+        for (int i = 2; i <= 5; ++i) {
+            PdfObject img = reader.getPageResources(i).getAsDict(PdfName.XOBJECT).get(new PdfName("img0"));
+            Assert.assertEquals(first.toString(), img.toString());
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testSameResultWithMd5() throws Exception {
+        long[] murmur = new long[2];
+        long[] md5 = new long[2];
+        long[] sha256 = new long[2];
+        byte[] pdf1 = merge(PdfSmartCopy.MURMUR3_128, murmur);
+        byte[] pdf2 = merge(PdfSmartCopy.MD5, md5);
+        byte[] pdf3 = merge(PdfSmartCopy.SHA256, sha256);
+        Assert.assertEquals(murmur[0], md5[0]);
+        Assert.assertEquals(murmur[1], md5[1]);
+        Assert.assertEquals(pdf1.length, pdf2.length);
+        Assert.assertEquals(murmur[0], sha256[0]);
+        Assert.assertEquals(murmur[1], sha256[1]);
+        Assert.assertEquals(pdf1.length, pdf3.length);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Rectangle;
+
+public class SharedBaseFontTest {
+
+    private static final String FONT = "./src/test/resources/com/itextpdf/text/pdf/MultithreadedTtfTest/FreeSans.ttf";
+
+    @Test
+    public void textFontOfAFieldDoesNotChangeTheFont() throws Exception {
+        String encodings[] = {BaseFont.WINANSI, BaseFont.IDENTITY_H};
+        for (String encoding : encodings) {
+            BaseFont bf = BaseFont.createFont(FONT, encoding, BaseFont.EMBEDDED, false, null, null);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            PdfStamper stamper = new PdfStamper(new PdfReader(createForm()), baos);
+            AcroFields fields = stamper.getAcroFields();
+            Assert.assertTrue(fields.setFieldProperty("name", "textfont", bf, null));
+            fields.setField("name", "Hello");
+            stamper.close();
+            Assert.assertTrue(encoding, bf.isSubset());
+            Assert.assertEquals(encoding, Arrays.asList("FreeSans"), getFontNames(baos.toByteArray()));
+            Assert.assertEquals(encoding, Arrays.asList("FreeSans"), getAppearanceFontNames(baos.toByteArray()));
+
+            List<String> names = getFontNames(createDocument(bf, "Hello"));
+            Assert.assertEquals(encoding, 1, names.size());
+            Assert.assertTrue(encoding, names.get(0).endsWith("+FreeSans"));
+        }
+    }
+
+    @Test
+    public void embedsTheSameFontOnAnyThread() throws Exception {
+        final BaseFont subset = BaseFont.createFont(FONT, BaseFont.IDENTITY_H, BaseFont.EMBEDDED, false, null, null);
+        final BaseFont full = BaseFont.createFont(FONT, BaseFont.IDENTITY_H, BaseFont.EMBEDDED, false, null, null);
+        full.setSubset(false);
+        final String text = "The quick brown fox jumps over the lazy dog 0123456789";
+        final byte expectedSubset[] = getFontFile(createDocument(subset, text));
+        final byte expectedFull[] = getFontFile(createDocument(full, text));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int k = 0; k < 32; ++k) {
+                final BaseFont bf = k % 2 == 0 ? subset : full;
+                final byte expected[] = k % 2 == 0 ? expectedSubset : expectedFull;
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        Assert.assertArrayEquals(expected, getFontFile(createDocument(bf, text)));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures)
+                future.get();
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private static byte[] createForm() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        document.open();
+        TextField field = new TextField(writer, new Rectangle(36, 700, 300, 730), "name");
+        writer.addAnnotation(field.getTextField());
+        document.close();
+        return baos.toByteArray();
+    }
+
+    private static byte[] createDocument(BaseFont bf, String text) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, baos);
+        document.open();
+        document.add(new Paragraph(text, new Font(bf, 12)));
+        document.close();
+        return baos.toByteArray();
+    }
+
+    private static List<String> getFontNames(byte pdf[]) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        List<String> names = new ArrayList<String>();
+        for (int k = 1; k < reader.getXrefSize(); ++k) {
+            PdfObject obj = reader.getPdfObject(k);
+            if (obj == null || !obj.isDictionary())
+                continue;
+            PdfDictionary dic = (PdfDictionary)obj;
+            if (PdfName.FONTDESCRIPTOR.equals(dic.get(PdfName.TYPE)))
+                names.add(PdfName.decodeName(dic.getAsName(PdfName.FONTNAME).toString()));
+        }
+        return names;
+    }
+
+    private static List<String> getAppearanceFontNames(byte pdf[]) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        PdfDictionary widget = reader.getAcroFields().getFieldItem("name").getWidget(0);
+        PdfDictionary normal = (PdfDictionary)PdfReader.getPdfObject(widget.getAsDict(PdfName.AP).get(PdfName.N));
+        PdfDictionary fonts = normal.getAsDict(PdfName.RESOURCES).getAsDict(PdfName.FONT);
+        List<String> names = new ArrayList<String>();
+        for (PdfName name : fonts.getKeys())
+            names.add(PdfName.decodeName(name.toString()));
+        return names;
+    }
+
+    private static byte[] getFontFile(byte pdf[]) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        for (int k = 1; k < reader.getXrefSize(); ++k) {
+            PdfObject obj = reader.getPdfObject(k);
+            if (obj == null || !obj.isDictionary())
+                continue;
+            PdfDictionary dic = (PdfDictionary)obj;
+            if (PdfName.FONTDESCRIPTOR.equals(dic.get(PdfName.TYPE)))
+                return PdfReader.getStreamBytes((PRStream)dic.getAsStream(PdfName.FONTFILE2));
+        }
+        return null;
+    }
+}
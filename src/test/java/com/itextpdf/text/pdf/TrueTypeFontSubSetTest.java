@@ -0,0 +1,89 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf;
+
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TrueTypeFontSubSetTest {
+
+    private static final String FONT = "./src/test/resources/com/itextpdf/text/pdf/MultithreadedTtfTest/FreeSans.ttf";
+
+    @Test
+    public void reusesTheTablesOfTheFont() throws Exception {
+        TrueTypeFontUnicode font = (TrueTypeFontUnicode)BaseFont.createFont(FONT, BaseFont.IDENTITY_H, BaseFont.EMBEDDED, false);
+        String texts[] = {"Hello World", "Ångström été ășț", "Hello Å World", "0123456789"};
+        for (String text : texts) {
+            HashSet<Integer> glyphs = getGlyphs(font, text);
+            byte shared[] = font.getSubSet(new HashSet<Integer>(glyphs), true);
+            TrueTypeFontSubSet sb = new TrueTypeFontSubSet(FONT, new RandomAccessFileOrArray(font.rf), new HashSet<Integer>(glyphs), font.directoryOffset, true, false);
+            Assert.assertArrayEquals(text, sb.process(), shared);
+        }
+    }
+
+    @Test
+    public void includesTheComponentsOfCompositeGlyphs() throws Exception {
+        TrueTypeFontUnicode font = (TrueTypeFontUnicode)BaseFont.createFont(FONT, BaseFont.IDENTITY_H, BaseFont.EMBEDDED, false);
+        HashSet<Integer> glyphs = getGlyphs(font, "Åé");
+        TrueTypeFontSubSet.FontTables tables = null;
+        for (int k = 0; k < 2; ++k) {
+            HashSet<Integer> used = new HashSet<Integer>(glyphs);
+            TrueTypeFontSubSet sb = new TrueTypeFontSubSet(FONT, new RandomAccessFileOrArray(font.rf), used, font.directoryOffset, true, false, tables);
+            sb.process();
+            tables = sb.getFontTables();
+            Assert.assertTrue(used.contains(Integer.valueOf(0)));
+            Assert.assertTrue(used.containsAll(getGlyphs(font, "Ae")));
+        }
+    }
+
+    private static HashSet<Integer> getGlyphs(TrueTypeFontUnicode font, String text) {
+        HashSet<Integer> glyphs = new HashSet<Integer>();
+        for (int k = 0; k < text.length(); ++k)
+            glyphs.add(Integer.valueOf(font.getMetricsTT(text.charAt(k))[0]));
+        return glyphs;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf.fonts.cmaps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CMapCacheTest {
+
+    @After
+    public void tearDown() {
+        CMapCache.setMaxCachedCMaps(0);
+        CMapCache.clear();
+        CMapCache.resetStatistics();
+    }
+
+    @Test
+    public void testConcurrentLoadParsesOnce() throws Exception {
+        CMapCache.clear();
+        CMapCache.resetStatistics();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CMapUniCid>> results = new ArrayList<Future<CMapUniCid>>();
+            for (int i = 0; i < 32; ++i) {
+                results.add(executor.submit(new Callable<CMapUniCid>() {
+                    public CMapUniCid call() throws Exception {
+                        return CMapCache.getCachedCMapUniCid("UniGB-UTF16-H");
+                    }
+                }));
+            }
+            CMapUniCid first = results.get(0).get();
+            for (Future<CMapUniCid> result : results)
+                Assert.assertSame(first, result.get());
+        }
+        finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, CMapCache.getMisses());
+        Assert.assertEquals(31, CMapCache.getHits());
+        Assert.assertTrue(CMapCache.getLoadTime() > 0);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        CMapCache.clear();
+        CMapCache.setMaxCachedCMaps(2);
+        CMapCidByte first = CMapCache.getCachedCMapCidByte("UniGB-UCS2-H");
+        CMapCache.getCachedCMapCidByte("UniJIS-UCS2-H");
+        CMapCache.getCachedCMapCidByte("UniGB-UCS2-H");
+        CMapCache.getCachedCMapCidByte("UniKS-UCS2-H");
+        Assert.assertEquals(2, CMapCache.size());
+        Assert.assertEquals(1, CMapCache.getEvictions());
+        // the least recently used CMap was UniJIS-UCS2-H
+        Assert.assertSame(first, CMapCache.getCachedCMapCidByte("UniGB-UCS2-H"));
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testFailedLoadIsNotCached() throws Exception {
+        try {
+            CMapCache.getCachedCMapCidUni("No-Such-CMap");
+        }
+        catch (java.io.IOException e) {
+            Assert.assertEquals(0, CMapCache.size());
+            throw e;
+        }
+    }
+}
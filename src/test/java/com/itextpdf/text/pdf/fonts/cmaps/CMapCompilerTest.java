@@ -0,0 +1,109 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf.fonts.cmaps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CMapCompilerTest {
+
+    @Test
+    public void testUniCidAndCidUni() throws Exception {
+        byte[] compiled = compile("UniJIS-UTF16-H");
+        CMapUniCid parsedUniCid = new CMapUniCid();
+        CMapParserEx.parseCid("UniJIS-UTF16-H", parsedUniCid, new CidResource());
+        CMapUniCid uniCid = new CMapUniCid();
+        CMapCompiler.read(new ByteArrayInputStream(compiled), uniCid);
+        CMapCidUni parsedCidUni = new CMapCidUni();
+        CMapParserEx.parseCid("UniJIS-UTF16-H", parsedCidUni, new CidResource());
+        CMapCidUni cidUni = new CMapCidUni();
+        CMapCompiler.read(new ByteArrayInputStream(compiled), cidUni);
+        Assert.assertEquals(parsedUniCid.getName(), uniCid.getName());
+        Assert.assertEquals(parsedUniCid.getRegistry(), uniCid.getRegistry());
+        Assert.assertEquals(parsedUniCid.getOrdering(), uniCid.getOrdering());
+        Assert.assertEquals(parsedUniCid.getSupplement(), uniCid.getSupplement());
+        for (int c = 0; c < 0x30000; ++c)
+            Assert.assertEquals(parsedUniCid.lookup(c), uniCid.lookup(c));
+        for (int cid = 0; cid < 0x10000; ++cid)
+            Assert.assertEquals(parsedCidUni.lookup(cid), cidUni.lookup(cid));
+    }
+
+    @Test
+    public void testCidByteAndByteCidWithUsecmap() throws Exception {
+        // UniJIS-UCS2-HW-H uses UniJIS-UCS2-H
+        byte[] compiled = compile("UniJIS-UCS2-HW-H");
+        CMapCidByte parsedCidByte = new CMapCidByte();
+        CMapParserEx.parseCid("UniJIS-UCS2-HW-H", parsedCidByte, new CidResource());
+        CMapCidByte cidByte = new CMapCidByte();
+        CMapCompiler.read(new ByteArrayInputStream(compiled), cidByte);
+        for (int cid = 0; cid < 0x10000; ++cid)
+            Assert.assertArrayEquals(parsedCidByte.lookup(cid), cidByte.lookup(cid));
+        CMapByteCid parsedByteCid = new CMapByteCid();
+        CMapParserEx.parseCid("UniJIS-UCS2-HW-H", parsedByteCid, new CidResource());
+        CMapByteCid byteCid = new CMapByteCid();
+        CMapCompiler.read(new ByteArrayInputStream(compiled), byteCid);
+        byte[] seq = new byte[2];
+        for (int c = 0; c < 0x10000; ++c) {
+            seq[0] = (byte)(c >> 8);
+            seq[1] = (byte)c;
+            Assert.assertEquals(parsedByteCid.decodeSequence(new CMapSequence(seq, 0, 2)), byteCid.decodeSequence(new CMapSequence(seq, 0, 2)));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotCompiled() throws Exception {
+        CMapCompiler.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}), new CMapUniCid());
+    }
+
+    private static byte[] compile(String name) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        CMapCompiler.compile(name, new CidResource(), baos);
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, Kevin Day, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfWriter;
+
+public class ParallelTextExtractorTest {
+
+    private static final int PAGES = 40;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSameTextAsSequentialExtraction() throws Exception {
+        PdfReader reader = new PdfReader(createPdf());
+        List<String> text = new ParallelTextExtractor(reader, executor).getTextFromPages();
+        Assert.assertEquals(PAGES, text.size());
+        for (int page = 1; page <= PAGES; ++page) {
+            Assert.assertEquals(PdfTextExtractor.getTextFromPage(reader, page), text.get(page - 1));
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testPageRangeAndStrategyFactory() throws Exception {
+        PdfReader reader = new PdfReader(createPdf());
+        List<String> text = new ParallelTextExtractor(reader, executor).getTextFromPages(5, 9, new ParallelTextExtractor.StrategyFactory() {
+            public TextExtractionStrategy createStrategy(int pageNumber) {
+                return new SimpleTextExtractionStrategy();
+            }
+        });
+        Assert.assertEquals(5, text.size());
+        for (int k = 0; k < text.size(); ++k) {
+            Assert.assertEquals(pageText(5 + k) + "\nLine two", text.get(k));
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testPartialReaderOnMappedFile() throws Exception {
+        File file = File.createTempFile("parallel", ".pdf");
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(createPdf());
+        fos.close();
+        PdfReader reader = new PdfReader(file.getAbsolutePath(), null, true);
+        List<String> text = new ParallelTextExtractor(reader, executor).getTextFromPages();
+        for (int page = 1; page <= PAGES; ++page) {
+            Assert.assertTrue(text.get(page - 1).startsWith(pageText(page)));
+        }
+        reader.close();
+        file.delete();
+    }
+
+    private static String pageText(int page) {
+        return "This is the text of page " + page;
+    }
+
+    private static byte[] createPdf() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, baos);
+        document.open();
+        for (int page = 1; page <= PAGES; ++page) {
+            document.newPage();
+            document.add(new Paragraph(pageText(page)));
+            document.add(new Paragraph("Line two"));
+        }
+        document.close();
+        return baos.toByteArray();
+    }
+}
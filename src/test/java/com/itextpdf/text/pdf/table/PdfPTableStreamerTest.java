@@ -0,0 +1,176 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.pdf.table;
+
+import java.io.ByteArrayOutputStream;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfPTableStreamer;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PdfPTableStreamerTest {
+
+    private static final int ROWS = 1000;
+
+    private static PdfPTable createTable() {
+        PdfPTable table = new PdfPTable(3);
+        table.setHeaderRows(2);
+        table.setFooterRows(1);
+        table.addCell("Header A");
+        table.addCell("Header B");
+        table.addCell("Header C");
+        table.addCell("Footer A");
+        table.addCell("Footer B");
+        table.addCell("Footer C");
+        return table;
+    }
+
+    private static boolean startsSpan(int row) {
+        return row % 7 == 0 && row + 3 <= ROWS;
+    }
+
+    private static void addCells(PdfPTableStreamer streamer, int row) throws DocumentException {
+        if (startsSpan(row)) {
+            PdfPCell cell = new PdfPCell(new Phrase("Span " + row));
+            cell.setRowspan(3);
+            streamer.addCell(cell);
+        }
+        else if (!startsSpan(row - row % 7) || row % 7 > 2)
+            streamer.addCell("First " + row);
+        streamer.addCell("Second " + row);
+        streamer.addCell("Third " + row);
+    }
+
+    private static String[] pages(byte[] pdf) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        String[] pages = new String[reader.getNumberOfPages()];
+        for (int k = 0; k < pages.length; ++k)
+            pages[k] = PdfTextExtractor.getTextFromPage(reader, k + 1);
+        reader.close();
+        return pages;
+    }
+
+    @Test
+    public void streamsTheRowsOfALargeTable() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, baos);
+        document.open();
+        final PdfPTableStreamer streamer = new PdfPTableStreamer(document, createTable(), 20);
+        streamer.addRows(new PdfPTableStreamer.RowSupplier() {
+            int row = 0;
+            public boolean addRow(PdfPTableStreamer s) throws DocumentException {
+                if (row == ROWS)
+                    return false;
+                addCells(s, row++);
+                return true;
+            }
+        });
+        streamer.close();
+        document.close();
+
+        Assert.assertEquals(ROWS, streamer.getRowsWritten());
+        Assert.assertTrue(streamer.getMaxBufferedRows() <= 23);
+        String[] pages = pages(baos.toByteArray());
+        Assert.assertTrue(pages.length > 10);
+        StringBuilder all = new StringBuilder();
+        for (String page : pages) {
+            Assert.assertTrue(page.contains("Header A"));
+            Assert.assertTrue(page.contains("Footer C"));
+            all.append(page).append('\n');
+        }
+        String text = all.toString();
+        for (int row = 0; row < ROWS; ++row) {
+            Assert.assertTrue(text.contains("Second " + row + "\n") || text.contains("Second " + row + " "));
+            if (startsSpan(row))
+                Assert.assertTrue(text.contains("Span " + row));
+        }
+    }
+
+    @Test
+    public void keepsRowsTogether() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, baos);
+        document.open();
+        PdfPTable table = new PdfPTable(1);
+        PdfPTableStreamer streamer = new PdfPTableStreamer(document, table, 4);
+        for (int group = 0; group < 30; ++group) {
+            streamer.addCell("Gap " + group);
+            streamer.keepRowsTogether(10);
+            for (int row = 0; row < 10; ++row)
+                streamer.addCell("Group " + group + " row " + row);
+        }
+        streamer.close();
+        document.close();
+
+        Assert.assertEquals(330, streamer.getRowsWritten());
+        Assert.assertTrue(streamer.getMaxBufferedRows() >= 10);
+        Assert.assertTrue(streamer.getMaxBufferedRows() <= 20);
+        for (String page : pages(baos.toByteArray())) {
+            // a group is never split
+            Assert.assertTrue(page, page.startsWith("Gap ") || page.indexOf(" row 0") == page.indexOf(" row "));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refusesCellsAfterClose() throws Exception {
+        Document document = new Document();
+        PdfWriter.getInstance(document, new ByteArrayOutputStream());
+        document.open();
+        PdfPTableStreamer streamer = new PdfPTableStreamer(document, new PdfPTable(1), 10);
+        streamer.addCell("a");
+        streamer.close();
+        streamer.addCell("b");
+    }
+}
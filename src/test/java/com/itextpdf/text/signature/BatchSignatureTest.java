@@ -0,0 +1,201 @@
+/*
+ * $Id$
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 1998-2015 iText Group NV
+ * Authors: Bruno Lowagie, Paulo Soares, et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.text.signature;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.Security;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.AcroFields;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfSignatureAppearance;
+import com.itextpdf.text.pdf.PdfStamper;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.itextpdf.text.pdf.security.BatchSignature;
+import com.itextpdf.text.pdf.security.BouncyCastleDigest;
+import com.itextpdf.text.pdf.security.CrlClient;
+import com.itextpdf.text.pdf.security.DigestAlgorithms;
+import com.itextpdf.text.pdf.security.ExternalSignature;
+import com.itextpdf.text.pdf.security.MakeSignature.CryptoStandard;
+import com.itextpdf.text.pdf.security.PdfPKCS7;
+import com.itextpdf.text.pdf.security.PrivateKeySignature;
+
+public class BatchSignatureTest {
+
+    public static final String KEYSTORE = "./src/test/resources/com/itextpdf/text/signature/ds-ks/ks";
+    public static final char[] PASSWORD = "password".toCharArray();
+
+    private static PrivateKey pk;
+    private static Certificate[] chain;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        KeyStore ks = KeyStore.getInstance(KeyStore.getDefaultType());
+        ks.load(new FileInputStream(KEYSTORE), PASSWORD);
+        String alias = ks.aliases().nextElement();
+        pk = (PrivateKey)ks.getKey(alias, PASSWORD);
+        chain = ks.getCertificateChain(alias);
+    }
+
+    @Test
+    public void signsBatchesWithSharedRevocationData() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CountingCrlClient crlClient = new CountingCrlClient();
+            CountingSignature signature = new CountingSignature(new PrivateKeySignature(pk, DigestAlgorithms.SHA256, null));
+            BatchSignature batch = new BatchSignature(new BouncyCastleDigest(), signature, chain,
+                    Collections.<CrlClient>singletonList(crlClient), null, null, 0, CryptoStandard.CMS);
+            batch.setExecutor(executor);
+            for (int b = 0; b < 2; ++b) {
+                List<ByteArrayOutputStream> outputs = new ArrayList<ByteArrayOutputStream>();
+                List<PdfSignatureAppearance> appearances = new ArrayList<PdfSignatureAppearance>();
+                for (int k = 0; k < 4; ++k) {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    PdfStamper stamper = PdfStamper.createSignature(new PdfReader(createDocument("Payslip " + b + "/" + k)), baos, '\0');
+                    PdfSignatureAppearance appearance = stamper.getSignatureAppearance();
+                    appearance.setReason("Batch " + b);
+                    outputs.add(baos);
+                    appearances.add(appearance);
+                }
+                batch.signDetached(appearances);
+                for (ByteArrayOutputStream baos : outputs)
+                    assertSigned(baos.toByteArray());
+            }
+            Assert.assertEquals(1, crlClient.calls);
+            Assert.assertEquals(8, signature.calls);
+            Assert.assertFalse(signature.otherThread);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void fetchesExpiredRevocationDataAgain() throws Exception {
+        CountingCrlClient crlClient = new CountingCrlClient();
+        BatchSignature batch = new BatchSignature(new BouncyCastleDigest(), new PrivateKeySignature(pk, DigestAlgorithms.SHA256, null), chain,
+                Collections.<CrlClient>singletonList(crlClient), null, null, 0, CryptoStandard.CMS);
+        batch.setRevocationDataMaxAge(0);
+        for (int b = 0; b < 2; ++b) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            PdfStamper stamper = PdfStamper.createSignature(new PdfReader(createDocument("Payslip " + b)), baos, '\0');
+            batch.signDetached(Collections.singletonList(stamper.getSignatureAppearance()));
+            assertSigned(baos.toByteArray());
+        }
+        Assert.assertEquals(2, crlClient.calls);
+    }
+
+    private static void assertSigned(byte[] pdf) throws Exception {
+        AcroFields fields = new PdfReader(pdf).getAcroFields();
+        List<String> names = fields.getSignatureNames();
+        Assert.assertEquals(1, names.size());
+        Assert.assertTrue(fields.signatureCoversWholeDocument(names.get(0)));
+        PdfPKCS7 pkcs7 = fields.verifySignature(names.get(0));
+        Assert.assertTrue(pkcs7.verify());
+    }
+
+    private static byte[] createDocument(String text) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, baos);
+        document.open();
+        document.add(new Paragraph(text));
+        document.close();
+        return baos.toByteArray();
+    }
+
+    private static class CountingCrlClient implements CrlClient {
+        int calls;
+
+        public Collection<byte[]> getEncoded(X509Certificate checkCert, String url) {
+            ++calls;
+            return null;
+        }
+    }
+
+    private static class CountingSignature implements ExternalSignature {
+        private final ExternalSignature signature;
+        private final Thread thread = Thread.currentThread();
+        int calls;
+        boolean otherThread;
+
+        CountingSignature(ExternalSignature signature) {
+            this.signature = signature;
+        }
+
+        public String getHashAlgorithm() {
+            return signature.getHashAlgorithm();
+        }
+
+        public String getEncryptionAlgorithm() {
+            return signature.getEncryptionAlgorithm();
+        }
+
+        public byte[] sign(byte[] message) throws GeneralSecurityException {
+            ++calls;
+            otherThread |= Thread.currentThread() != thread;
+            return signature.sign(message);
+        }
+    }
+}